@@ -3,12 +3,19 @@ package org.apereo.openlrw;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.apereo.model.oneroster.Org;
 import org.apereo.model.oneroster.OrgType;
 import org.apereo.model.oneroster.Status;
 import org.apereo.openlrw.admin.AdminUser;
 import org.apereo.openlrw.admin.AdminUserConfig;
 import org.apereo.openlrw.admin.service.AdminUserService;
+import org.apereo.openlrw.common.StartupJobs;
+import org.apereo.openlrw.events.service.EventIdGenerator;
+import org.apereo.openlrw.events.service.IngestionSettings;
+import org.apereo.openlrw.events.service.TimeOrderedEventIdGenerator;
+import org.apereo.openlrw.events.service.UuidEventIdGenerator;
 import org.apereo.openlrw.oneroster.service.OrgService;
 import org.apereo.openlrw.tenant.Tenant;
 import org.apereo.openlrw.tenant.service.TenantService;
@@ -17,8 +24,13 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.web.filter.CommonsRequestLoggingFilter;
 import springfox.documentation.builders.ApiInfoBuilder;
@@ -51,8 +63,10 @@ import java.util.concurrent.Executors;
 @EnableMongoRepositories
 @EnableSwagger2
 @EnableAsync
+@EnableScheduling
 public class OpenLRW {
 
+
     public static void main(String[] args) {
         SpringApplication.run(OpenLRW.class, args);
     }
@@ -113,7 +127,26 @@ public class OpenLRW {
 
     @Bean
     public ObjectMapper objectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
+        return configure(new ObjectMapper());
+    }
+
+    /**
+     * Smile bodies, sent as application/x-jackson-smile, are read into the same model as JSON
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(configure(new ObjectMapper(new SmileFactory())));
+    }
+
+    /**
+     * CBOR bodies, sent as application/cbor, are read into the same model as JSON
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(configure(new ObjectMapper(new CBORFactory())));
+    }
+
+    public static ObjectMapper configure(ObjectMapper mapper) {
         mapper.findAndRegisterModules();
         mapper.setDateFormat(new ISO8601DateFormat());
         mapper.enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
@@ -122,10 +155,37 @@ public class OpenLRW {
     }
     
     @Bean
+    public EventIdGenerator eventIdGenerator(IngestionSettings ingestionSettings) {
+      if (ingestionSettings.getIdFormat() == IngestionSettings.IdFormat.TIME_ORDERED)
+        return new TimeOrderedEventIdGenerator();
+      return new UuidEventIdGenerator();
+    }
+
+    /**
+     * Pool of the background jobs started on request
+     */
+    @Bean
+    @Primary
     public ExecutorService ExecutorService() {
       return Executors.newFixedThreadPool(3);
     }
 
+    /**
+     * Single thread running the jobs of the application start one after the other, see {@link StartupJobs}
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService startupExecutorService() {
+      return Executors.newSingleThreadExecutor(new CustomizableThreadFactory("startup-"));
+    }
+
+    /**
+     * Threads of the queue writers or of the journal replayer, which never give them back
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ingestionExecutorService(IngestionSettings ingestionSettings) {
+      return Executors.newFixedThreadPool(Math.max(1, ingestionSettings.getWorkers()), new CustomizableThreadFactory("event-ingestion-"));
+    }
+
     @Bean
     public Docket api() {
         return new Docket(DocumentationType.SWAGGER_2)
@@ -6,4 +6,9 @@ public interface Vocabulary {
   
   static final String TENANT_USER_PREFIX = "https://matthews/tenant/user/prefix";
   static final String TENANT_CLASS_PREFIX = "https://matthews/tenant/class/prefix";
+
+  /** comma separated domains of the agent ids that are looked up in the user mappings */
+  static final String TENANT_USER_MAPPING_DOMAINS = "https://matthews/tenant/user/mapping/domains";
+  /** comma separated domains of the group ids for which the course number is used as class id */
+  static final String TENANT_CLASS_COURSE_NUMBER_DOMAINS = "https://matthews/tenant/class/coursenumber/domains";
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package org.apereo.openlrw.common;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Normalized form of an identifier that is looked up whatever its case.
+ * It is stored next to the identifier so that the lookups are exact matches
+ * using an index instead of case insensitive regular expressions.
+ * The documents saved before the keys existed have no key until
+ * {@link org.apereo.openlrw.common.migration.CaseInsensitiveKeyMigration} reaches them,
+ * the lookups match their identifier with the former regular expression meanwhile.
+ */
+public final class CaseInsensitiveKey {
+
+  private CaseInsensitiveKey() {}
+
+  /**
+   * @param value an identifier
+   * @return its key, null for a null identifier
+   */
+  public static String of(String value) {
+    return value == null ? null : value.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * @param value an identifier
+   * @return the anchored regular expression matching it, to be applied ignoring the case
+   */
+  public static String pattern(String value) {
+    return value == null ? null : "^" + Pattern.quote(value) + "$";
+  }
+
+  /**
+   * @param field the identifier
+   * @param keyField its key
+   * @param value the identifier looked up
+   * @return the documents whose key matches, or without a key whose identifier matches ignoring the case
+   */
+  public static Criteria matching(String field, String keyField, String value) {
+    if (value == null)
+      return where(field).is(null);
+
+    return new Criteria().orOperator(
+        where(keyField).is(of(value)),
+        where(keyField).exists(false).and(field).regex(pattern(value), "i"));
+  }
+}
@@ -0,0 +1,191 @@
+package org.apereo.openlrw.common;
+
+import org.apereo.openlrw.common.exception.PayloadTooLargeException;
+import org.apereo.openlrw.events.service.IngestionSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes gzip and deflate request bodies of the ingestion endpoints while they are read,
+ * so the compressed body is never inflated in memory. Reading more than the configured
+ * number of decompressed bytes fails with a {@link PayloadTooLargeException}.
+ *
+ * @see IngestionSettings#getMaxDecompressedBytes()
+ */
+@Component
+public class ContentEncodingFilter extends OncePerRequestFilter {
+
+  public static final String BULK_PATH = "/api/caliper/bulk";
+
+  private final IngestionSettings ingestionSettings;
+
+  @Autowired
+  public ContentEncodingFilter(IngestionSettings ingestionSettings) {
+    this.ingestionSettings = ingestionSettings;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+    if (encoding == null || "identity".equalsIgnoreCase(encoding.trim())) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    encoding = encoding.trim().toLowerCase();
+    if (!"gzip".equals(encoding) && !"deflate".equals(encoding)) {
+      response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported Content-Encoding " + encoding);
+      return;
+    }
+
+    long limit = BULK_PATH.equals(request.getServletPath())
+        ? ingestionSettings.getMaxDecompressedBulkBytes()
+        : ingestionSettings.getMaxDecompressedBytes();
+
+    filterChain.doFilter(new DecodedRequest(request, encoding, limit), response);
+  }
+
+  private static class DecodedRequest extends HttpServletRequestWrapper {
+    private final String encoding;
+    private final long limit;
+    private ServletInputStream inputStream;
+
+    private DecodedRequest(HttpServletRequest request, String encoding, long limit) {
+      super(request);
+      this.encoding = encoding;
+      this.limit = limit;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+      if (inputStream == null) {
+        InputStream raw = super.getInputStream();
+        InputStream decoded = "gzip".equals(encoding) ? new GZIPInputStream(raw, 8192) : new InflaterInputStream(raw);
+        inputStream = new LimitedInputStream(decoded, limit);
+      }
+      return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+      String characterEncoding = getCharacterEncoding();
+      Charset charset = characterEncoding == null ? StandardCharsets.UTF_8 : Charset.forName(characterEncoding);
+      return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+    @Override
+    public int getContentLength() {
+      return -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+      return -1;
+    }
+
+    @Override
+    public String getHeader(String name) {
+      if (isDecodedHeader(name))
+        return null;
+      return super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+      if (isDecodedHeader(name))
+        return Collections.emptyEnumeration();
+      return super.getHeaders(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+      return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+          .filter(name -> !isDecodedHeader(name))
+          .collect(Collectors.toList()));
+    }
+
+    private static boolean isDecodedHeader(String name) {
+      return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+    }
+  }
+
+  private static class LimitedInputStream extends ServletInputStream {
+    private final InputStream in;
+    private final long limit;
+    private long count;
+    private boolean finished;
+
+    private LimitedInputStream(InputStream in, long limit) {
+      this.in = in;
+      this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b == -1)
+        finished = true;
+      else
+        count(1);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = in.read(buffer, offset, length);
+      if (read == -1)
+        finished = true;
+      else
+        count(read);
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+    @Override
+    public boolean isFinished() {
+      return finished;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      throw new UnsupportedOperationException();
+    }
+
+    private void count(int read) {
+      count += read;
+      if (count > limit)
+        throw new PayloadTooLargeException(String.format("Decompressed request body is larger than %d bytes", limit));
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package org.apereo.openlrw.common;
+
+/**
+ * Order of the jobs run once the application is ready. Their listeners queue them on the single
+ * thread of the startupExecutorService, so each job starts when the previous one is done: the indexes
+ * first, then the backfills, then the rebuilds of the counters reading the backfilled fields.
+ */
+public final class StartupJobs {
+  public static final int INDEXES = 1;
+  public static final int KEY_BACKFILL = 2;
+  public static final int FIELD_BACKFILL = 3;
+  public static final int REBUILDS = 4;
+
+  private StartupJobs() {}
+}
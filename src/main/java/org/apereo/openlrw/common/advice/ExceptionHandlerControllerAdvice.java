@@ -4,13 +4,16 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
 import org.apereo.openlrw.events.caliper.exception.CaliperNotFoundException;
 import org.apereo.openlrw.events.caliper.exception.EventNotFoundException;
+import org.apereo.openlrw.events.caliper.exception.IngestionRejectedException;
 import org.apereo.openlrw.common.exception.BadRequestException;
 import org.apereo.openlrw.common.exception.MessageResponse;
+import org.apereo.openlrw.common.exception.PayloadTooLargeException;
 import org.apereo.openlrw.oneroster.exception.OneRosterNotFoundException;
 import org.apereo.openlrw.events.xapi.exception.InvalidXAPIRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.crossstore.ChangeSetPersister;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
@@ -23,6 +26,7 @@ import org.springframework.web.util.NestedServletException;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -87,6 +91,14 @@ public class ExceptionHandlerControllerAdvice {
         return response;
     }
 
+    @ExceptionHandler(PayloadTooLargeException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public MessageResponse handlePayloadTooLargeException(HttpServletRequest request, PayloadTooLargeException e) {
+        MessageResponse response = new MessageResponse(HttpStatus.PAYLOAD_TOO_LARGE, buildDate(), request, e.getLocalizedMessage());
+        log(e, response);
+        return response;
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public MessageResponse handleMethodArgumentNotValidException(HttpServletRequest request, MethodArgumentNotValidException e) {
@@ -121,9 +133,19 @@ public class ExceptionHandlerControllerAdvice {
         return response;
     }
 
+    /**
+     * A body inflated past its limit is answered 413, even when the JSON mapping wrapped the {@link PayloadTooLargeException}
+     */
     @ExceptionHandler(HttpMessageNotReadableException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public MessageResponse handleHttpMessageNotReadableException(HttpServletRequest request, HttpMessageNotReadableException e) {
+    public MessageResponse handleHttpMessageNotReadableException(HttpServletRequest request, HttpServletResponse httpResponse, HttpMessageNotReadableException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof PayloadTooLargeException) {
+                httpResponse.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                return handlePayloadTooLargeException(request, (PayloadTooLargeException)cause);
+            }
+        }
+
+        httpResponse.setStatus(HttpStatus.BAD_REQUEST.value());
         if (e.getCause() instanceof UnrecognizedPropertyException) {
             return handleUnrecognizedPropertyException(request, (UnrecognizedPropertyException)e.getCause());
         } else {
@@ -173,6 +195,15 @@ public class ExceptionHandlerControllerAdvice {
         return response;
     }
 
+    @ExceptionHandler(IngestionRejectedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public MessageResponse ingestionRejectedHandler(HttpServletRequest request, HttpServletResponse httpResponse, IngestionRejectedException e) {
+        httpResponse.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        MessageResponse response = new MessageResponse(HttpStatus.SERVICE_UNAVAILABLE, buildDate(), request, e.getLocalizedMessage());
+        log(e, response);
+        return response;
+    }
+
     @ExceptionHandler(BadRequestException.class)
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
     public MessageResponse genericBadRequestHandler(HttpServletRequest request, Exception e) {
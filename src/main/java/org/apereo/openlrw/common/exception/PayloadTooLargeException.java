@@ -0,0 +1,13 @@
+package org.apereo.openlrw.common.exception;
+
+/**
+ * Thrown when a compressed request body inflates to more than the allowed size
+ */
+public class PayloadTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,69 @@
+package org.apereo.openlrw.common.index;
+
+import org.bson.Document;
+
+/**
+ * An index the application needs, its keys being property paths of the entity
+ * that are mapped to field names when the index is created.
+ */
+public class DeclaredIndex {
+  private final Class<?> entityClass;
+  private final String name;
+  private final Document keys;
+  private final boolean unique;
+  private final String usedBy;
+
+  private DeclaredIndex(Class<?> entityClass, String name, Document keys, boolean unique, String usedBy) {
+    this.entityClass = entityClass;
+    this.name = name;
+    this.keys = keys;
+    this.unique = unique;
+    this.usedBy = usedBy;
+  }
+
+  /**
+   * @param entityClass
+   * @param name
+   * @param usedBy the queries the index is for
+   * @param keys property paths, descending when prefixed with a -
+   * @return the index
+   */
+  public static DeclaredIndex of(Class<?> entityClass, String name, String usedBy, String... keys) {
+    return new DeclaredIndex(entityClass, name, keys(keys), false, usedBy);
+  }
+
+  public static DeclaredIndex unique(Class<?> entityClass, String name, String usedBy, String... keys) {
+    return new DeclaredIndex(entityClass, name, keys(keys), true, usedBy);
+  }
+
+  private static Document keys(String... keys) {
+    Document document = new Document();
+    for (String key : keys) {
+      if (key.startsWith("-"))
+        document.append(key.substring(1), -1);
+      else
+        document.append(key, 1);
+    }
+    return document;
+  }
+
+  public Class<?> getEntityClass() {
+    return entityClass;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Document getKeys() {
+    return keys;
+  }
+
+  public boolean isUnique() {
+    return unique;
+  }
+
+  public String getUsedBy() {
+    return usedBy;
+  }
+}
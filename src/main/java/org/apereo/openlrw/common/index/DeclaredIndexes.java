@@ -0,0 +1,127 @@
+package org.apereo.openlrw.common.index;
+
+import com.google.common.collect.ImmutableList;
+import org.apereo.model.entity.ClassMapping;
+import org.apereo.model.entity.UserMapping;
+import org.apereo.openlrw.admin.AdminUser;
+import org.apereo.openlrw.entity.DataSync;
+import org.apereo.openlrw.entity.UserMappingKeyListener;
+import org.apereo.openlrw.events.service.repository.MongoClassActivity;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.apereo.openlrw.oneroster.service.repository.*;
+import org.apereo.openlrw.risk.MongoRisk;
+import org.apereo.openlrw.tenant.Tenant;
+
+import java.util.List;
+
+import static org.apereo.openlrw.common.index.DeclaredIndex.of;
+import static org.apereo.openlrw.common.index.DeclaredIndex.unique;
+
+/**
+ * The indexes backing the repository methods and the queries of the services.
+ * A query whose fields are a prefix of an index, in the same order, uses that index.
+ * The events are filtered and sorted on the fields copied to the top of {@link MongoEvent},
+ * which the class statistics read from the events_by_class index alone, or on their ids for the
+ * time they were stored.
+ * Case insensitive lookups match the {@link org.apereo.openlrw.common.CaseInsensitiveKey} of the identifiers.
+ */
+public final class DeclaredIndexes {
+
+  public static final List<DeclaredIndex> ALL = ImmutableList.of(
+      // events
+      of(MongoEvent.class, "events_by_class", "MongoEventRepository.*ByTenantIdAndOrganizationIdAndClassId*, ClassActivityRollups.countForClass and rebuild",
+          "tenantId", "organizationId", "classId", "student", "userId", "action", "eventTime"),
+      of(MongoEvent.class, "events_by_class_and_user_key", "MongoEventRepository.findByTenantIdAndOrganizationIdAndClassIdAndUserIdIgnoreCase, EventService.getEventSummariesForClassAndUser",
+          "tenantId", "organizationId", "classId", "userIdKey", "-eventTime"),
+      of(MongoEvent.class, "events_by_event_id", "MongoEventRepository.findByTenantIdAndOrganizationIdAndEventId*",
+          "tenantId", "organizationId", "event.id"),
+      of(MongoEvent.class, "events_by_user_and_time", "EventService.getEventsForUser",
+          "tenantId", "organizationId", "userId", "eventTime"),
+      of(MongoEvent.class, "events_by_time", "EventService.findAll, EventExportService, MongoEventRepository.findByTenantIdAndOrganizationId*",
+          "tenantId", "organizationId", "-eventTime", "-id"),
+      of(MongoEvent.class, "events_by_edapp_and_time", "EventService.findByEdApp",
+          "tenantId", "organizationId", "edAppId", "-eventTime", "-id"),
+      of(MongoEvent.class, "events_by_stored_time", "EventService.findEvents, XapiStatementExportService",
+          "tenantId", "organizationId", "-id"),
+      of(MongoEvent.class, "events_by_agent_and_stored_time", "EventService.findEvents filtered by agent",
+          "tenantId", "organizationId", "event.agent.id", "-id"),
+      of(MongoEvent.class, "events_by_action_and_stored_time", "EventService.findEvents filtered by verb",
+          "tenantId", "organizationId", "action", "-id"),
+      of(MongoEvent.class, "events_by_object_and_stored_time", "EventService.findEvents filtered by activity",
+          "tenantId", "organizationId", "event.object.id", "-id"),
+      unique(MongoClassActivity.class, "class_activity_key", "ClassActivityRollups",
+          "tenantId", "organizationId", "classId", "student", "day", "userId", "action"),
+
+      // oneroster
+      of(MongoEnrollment.class, "enrollments_by_class", "MongoEnrollmentRepository.*ByTenantIdAndOrgIdAndClassSourcedId*",
+          "tenantId", "orgId", "classSourcedId", "enrollment.status", "enrollment.role"),
+      of(MongoEnrollment.class, "enrollments_by_user", "EnrollmentService.findEnrollmentsForUser",
+          "tenantId", "orgId", "userSourcedId", "enrollment.status"),
+      of(MongoEnrollment.class, "enrollments_by_user_key", "MongoEnrollmentRepository.*ByTenantIdAndOrgId*AndUserSourcedIdKey*",
+          "tenantId", "orgId", "userSourcedIdKey", "enrollment.status"),
+      of(MongoEnrollment.class, "enrollments_by_sourced_id", "MongoEnrollmentRepository.deleteByTenantIdAndOrgIdAndEnrollmentSourcedId, deleteAllByTenantIdAndOrgId",
+          "tenantId", "orgId", "enrollment.sourcedId"),
+      of(MongoEnrollment.class, "enrollments_by_role", "MongoEnrollmentRepository.findByTenantIdAndOrgIdAndEnrollmentRole",
+          "tenantId", "orgId", "enrollment.role"),
+      of(MongoEnrollment.class, "enrollments_by_begin_date", "MongoEnrollmentRepository.findTopByTenantIdAndOrgIdOrderByEnrollmentBeginDateDesc",
+          "tenantId", "orgId", "-enrollment.beginDate"),
+      of(MongoEnrollment.class, "enrollments_by_end_date", "MongoEnrollmentRepository.findTopByTenantIdAndOrgIdOrderByEnrollmentEndDateDesc",
+          "tenantId", "orgId", "-enrollment.endDate"),
+      of(MongoUser.class, "users_by_sourced_id", "MongoUserRepository, UserService",
+          "tenantId", "orgId", "user.sourcedId"),
+      of(MongoClass.class, "classes_by_sourced_id", "MongoClassRepository.*ByTenantIdAndOrgIdAndClassSourcedId, findByTenantIdAndOrgId",
+          "tenantId", "orgId", "classSourcedId"),
+      of(MongoClass.class, "classes_by_course", "MongoClassRepository.findByTenantIdAndOrgIdAndKlassCourseSourcedId",
+          "tenantId", "orgId", "klass.course.sourcedId"),
+      of(MongoLineItem.class, "lineitems_by_sourced_id", "MongoLineItemRepository.*ByTenantIdAndOrgIdAndLineItemSourcedId, findByTenantIdAndOrgId",
+          "tenantId", "orgId", "lineItem.sourcedId"),
+      of(MongoLineItem.class, "lineitems_by_class", "MongoLineItemRepository.findByOrgIdAndClassSourcedId",
+          "orgId", "classSourcedId"),
+      of(MongoResult.class, "results_by_sourced_id", "MongoResultRepository.findByTenantIdAndOrgIdAndResultSourcedId, ResultService.save",
+          "tenantId", "orgId", "result.sourcedId"),
+      of(MongoResult.class, "results_by_class", "MongoResultRepository.findByTenantIdAndOrgIdAndClassSourcedId",
+          "tenantId", "orgId", "classSourcedId"),
+      of(MongoResult.class, "results_by_lineitem", "MongoResultRepository.findByTenantIdAndOrgIdAndLineitemSourcedId",
+          "tenantId", "orgId", "lineitemSourcedId"),
+      of(MongoResult.class, "results_by_user", "MongoResultRepository.findByTenantIdAndOrgIdAndUserSourcedId, ResultService",
+          "tenantId", "orgId", "userSourcedId", "classSourcedId"),
+      of(MongoResult.class, "results_by_date", "MongoResultRepository.findTopByTenantIdAndOrgIdOrderByResultDateDesc",
+          "tenantId", "orgId", "-result.date"),
+      of(MongoCourse.class, "courses_by_sourced_id", "MongoCourseRepository.findByTenantIdAndOrgIdAndCourseSourcedId",
+          "tenantId", "orgId", "courseSourcedId"),
+      of(MongoAcademicSession.class, "academic_sessions_by_sourced_id", "MongoAcademicSessionRepository.findByTenantIdAndOrgIdAndAcademicSessionSourcedId",
+          "tenantId", "orgId", "academicSessionSourcedId"),
+      of(MongoOrg.class, "orgs_by_api_key", "MongoOrgRepository.findByApiKey*",
+          "apiKey"),
+      of(MongoOrg.class, "orgs_by_sourced_id", "MongoOrgRepository.findByTenantIdAndOrgSourcedId",
+          "tenantId", "org.sourcedId"),
+      of(MongoOrg.class, "orgs_by_name", "MongoOrgRepository.findByOrgName",
+          "org.name"),
+
+      // risks
+      of(MongoRisk.class, "risks_by_class", "MongoRiskRepository.findByTenantIdAndOrgIdAndClassSourcedIdAndActive, RiskService.getRisksForClass",
+          "tenantId", "orgId", "classSourcedId", "-dateTime"),
+      of(MongoRisk.class, "risks_by_user", "MongoRiskRepository.findTopByTenantIdAndOrgIdAndUserSourcedIdAndClassSourcedIdAndActiveOrderByDateTime, RiskService.getRisksForUserAndClass",
+          "tenantId", "orgId", "userSourcedId", "classSourcedId", "-dateTime"),
+      of(MongoRisk.class, "risks_by_name", "MongoRiskRepository.*ByTenantIdAndOrgIdAndUserSourcedIdAndClassSourcedIdAndName*",
+          "tenantId", "orgId", "userSourcedId", "classSourcedId", "name", "dateTime"),
+
+      // mappings, tenants and admin users
+      of(ClassMapping.class, "class_mappings_by_external_id", "MongoClassMappingRepository.findByTenantIdAndOrganizationIdAndClassExternalId",
+          "tenantId", "organizationId", "classExternalId"),
+      of(UserMapping.class, "user_mappings_by_org", "MongoUserMappingRepository.findByTenantIdAndOrganizationIdAndUserExternalIdKey",
+          "tenantId", "organizationId", UserMappingKeyListener.USER_EXTERNAL_ID_KEY),
+      of(UserMapping.class, "user_mappings_by_external_id", "MongoUserMappingRepository.findByTenantIdAndUserExternalIdKey",
+          "tenantId", UserMappingKeyListener.USER_EXTERNAL_ID_KEY),
+      of(DataSync.class, "data_syncs_by_time", "MongoDataSyncRepository.findTopByTenantIdAndOrgIdOrderBySyncDateTimeDesc",
+          "tenantId", "orgId", "-syncDateTime"),
+      of(DataSync.class, "data_syncs_by_type", "MongoDataSyncRepository.findTopByTenantIdAndOrgIdAndSyncTypeOrderBySyncDateTimeDesc",
+          "tenantId", "orgId", "syncType", "-syncDateTime"),
+      of(Tenant.class, "tenants_by_name", "TenantRepository.findByName",
+          "name"),
+      of(AdminUser.class, "admin_users_by_username", "AdminUserRepository.findByUsername",
+          "username")
+  );
+
+  private DeclaredIndexes() {}
+}
@@ -0,0 +1,213 @@
+package org.apereo.openlrw.common.index;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import org.apereo.openlrw.common.StartupJobs;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the {@link DeclaredIndexes} missing from the collections once the application is started.
+ * The indexes are built in the background, one after the other, and an index whose keys already exist
+ * under another name is left as it is, so starting the application again does nothing. An index named
+ * as a declared one but with other keys is an older version of it and is replaced.
+ *
+ * Once done, the indexes that could not be created, the indexes of the collections that the application
+ * does not declare and the ones no operation used since MongoDB started are logged.
+ */
+@Service
+public class IndexManager {
+  private static Logger logger = LoggerFactory.getLogger(IndexManager.class);
+
+  private final MongoOperations mongoOps;
+  private final ExecutorService executorService;
+  private final List<DeclaredIndex> declaredIndexes;
+
+  @Autowired
+  public IndexManager(MongoOperations mongoOperations, @Qualifier("startupExecutorService") ExecutorService executorService) {
+    this(mongoOperations, executorService, DeclaredIndexes.ALL);
+  }
+
+  IndexManager(MongoOperations mongoOperations, ExecutorService executorService, List<DeclaredIndex> declaredIndexes) {
+    this.mongoOps = mongoOperations;
+    this.executorService = executorService;
+    this.declaredIndexes = declaredIndexes;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(StartupJobs.INDEXES)
+  public void onApplicationReady() {
+    executorService.execute(() -> {
+      try {
+        ensureIndexes();
+        report();
+      } catch (RuntimeException e) {
+        logger.error("Unable to check the indexes", e);
+      }
+    });
+  }
+
+  /**
+   * Creates the declared indexes that are missing
+   *
+   * @return the number of created indexes
+   */
+  public int ensureIndexes() {
+    int created = 0;
+    for (DeclaredIndex declaredIndex : declaredIndexes) {
+      String collectionName = mongoOps.getCollectionName(declaredIndex.getEntityClass());
+      Document keys = mappedKeys(declaredIndex);
+
+      List<Document> existing = existingIndexes(collectionName);
+      if (findByKeys(existing, keys) != null)
+        continue;
+
+      try {
+        if (findByName(existing, declaredIndex.getName()) != null) {
+          logger.info("Replacing the index {} of {}", declaredIndex.getName(), collectionName);
+          mongoOps.getCollection(collectionName).dropIndex(declaredIndex.getName());
+        }
+        logger.info("Creating the index {} {} of {}", declaredIndex.getName(), keys.toJson(), collectionName);
+        mongoOps.getCollection(collectionName).createIndex(keys,
+            new IndexOptions().name(declaredIndex.getName()).unique(declaredIndex.isUnique()).background(true));
+        created++;
+      } catch (RuntimeException e) {
+        logger.error("Unable to create the index {} of {}: {}", declaredIndex.getName(), collectionName, e.getMessage());
+      }
+    }
+    return created;
+  }
+
+  /**
+   * @return the declared indexes, then the indexes of their collections that are not declared
+   */
+  public List<IndexStatus> getStatus() {
+    Map<String, List<DeclaredIndex>> declaredByCollection = new LinkedHashMap<>();
+    for (DeclaredIndex declaredIndex : declaredIndexes) {
+      declaredByCollection.computeIfAbsent(mongoOps.getCollectionName(declaredIndex.getEntityClass()), c -> new ArrayList<>()).add(declaredIndex);
+    }
+
+    List<IndexStatus> declared = new ArrayList<>();
+    List<IndexStatus> undeclared = new ArrayList<>();
+
+    for (Map.Entry<String, List<DeclaredIndex>> collection : declaredByCollection.entrySet()) {
+      String collectionName = collection.getKey();
+      List<Document> existing = existingIndexes(collectionName);
+      Map<String, Document> accesses = accesses(collectionName);
+      Set<String> matched = new HashSet<>();
+
+      for (DeclaredIndex declaredIndex : collection.getValue()) {
+        Document keys = mappedKeys(declaredIndex);
+        Document index = findByKeys(existing, keys);
+        String name = index == null ? declaredIndex.getName() : index.getString("name");
+        if (index != null)
+          matched.add(name);
+
+        declared.add(status(collectionName, name, keys, true, index != null, declaredIndex.getUsedBy(), accesses.get(name)));
+      }
+
+      for (Document index : existing) {
+        String name = index.getString("name");
+        if (!matched.contains(name) && !"_id_".equals(name))
+          undeclared.add(status(collectionName, name, index.get("key", Document.class), false, true, null, accesses.get(name)));
+      }
+    }
+
+    declared.addAll(undeclared);
+    return declared;
+  }
+
+  private void report() {
+    for (IndexStatus status : getStatus()) {
+      if (status.isDeclared() && !status.isPresent())
+        logger.warn("Missing index {} of {}, used by {}", status.getName(), status.getCollection(), status.getUsedBy());
+      else if (!status.isDeclared())
+        logger.warn("Index {} {} of {} is not declared by the application, {} accesses", status.getName(), status.getKeys().toJson(),
+            status.getCollection(), status.getAccesses() == null ? "unknown" : status.getAccesses());
+      else if (status.getAccesses() != null && status.getAccesses() == 0)
+        logger.info("Index {} of {} was not used since {}", status.getName(), status.getCollection(), status.getAccessesSince());
+    }
+  }
+
+  private Document mappedKeys(DeclaredIndex declaredIndex) {
+    MongoPersistentEntity<?> entity = mongoOps.getConverter().getMappingContext().getPersistentEntity(declaredIndex.getEntityClass());
+    return new QueryMapper(mongoOps.getConverter()).getMappedSort(declaredIndex.getKeys(), entity);
+  }
+
+  private List<Document> existingIndexes(String collectionName) {
+    List<Document> indexes = new ArrayList<>();
+    if (mongoOps.collectionExists(collectionName))
+      mongoOps.getCollection(collectionName).listIndexes().into(indexes);
+    return indexes;
+  }
+
+  /**
+   * @return the $indexStats of the indexes by name, empty when the server does not give them
+   */
+  private Map<String, Document> accesses(String collectionName) {
+    Map<String, Document> accesses = new HashMap<>();
+    if (!mongoOps.collectionExists(collectionName))
+      return accesses;
+
+    try {
+      MongoCollection<Document> collection = mongoOps.getCollection(collectionName);
+      for (Document stats : collection.aggregate(Collections.singletonList(new Document("$indexStats", new Document())))) {
+        accesses.put(stats.getString("name"), stats.get("accesses", Document.class));
+      }
+    } catch (RuntimeException e) {
+      logger.debug("No index statistics for {}: {}", collectionName, e.getMessage());
+    }
+    return accesses;
+  }
+
+  private static IndexStatus status(String collection, String name, Document keys, boolean declared, boolean present, String usedBy, Document accesses) {
+    Long ops = accesses == null || accesses.get("ops") == null ? null : ((Number) accesses.get("ops")).longValue();
+    Date since = accesses == null ? null : accesses.getDate("since");
+    return new IndexStatus(collection, name, keys, declared, present, usedBy, ops, since);
+  }
+
+  static Document findByKeys(List<Document> indexes, Document keys) {
+    List<String> signature = signature(keys);
+    for (Document index : indexes) {
+      Document indexKeys = index.get("key", Document.class);
+      if (indexKeys != null && signature.equals(signature(indexKeys)))
+        return index;
+    }
+    return null;
+  }
+
+  private static Document findByName(List<Document> indexes, String name) {
+    for (Document index : indexes) {
+      if (name.equals(index.getString("name")))
+        return index;
+    }
+    return null;
+  }
+
+  /**
+   * @return the fields and directions of index keys, in their order, whatever the number type of the directions
+   */
+  private static List<String> signature(Document keys) {
+    List<String> signature = new ArrayList<>(keys.size());
+    for (Map.Entry<String, Object> key : keys.entrySet()) {
+      Object direction = key.getValue();
+      if (direction instanceof Number)
+        direction = ((Number) direction).doubleValue() < 0 ? -1 : 1;
+      signature.add(key.getKey() + ":" + direction);
+    }
+    return signature;
+  }
+}
@@ -0,0 +1,73 @@
+package org.apereo.openlrw.common.index;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.bson.Document;
+
+import java.util.Date;
+
+/**
+ * State of an index, declared by the application or found in a collection
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IndexStatus {
+  private final String collection;
+  private final String name;
+  private final Document keys;
+  private final boolean declared;
+  private final boolean present;
+  private final String usedBy;
+  private final Long accesses;
+  private final Date accessesSince;
+
+  IndexStatus(String collection, String name, Document keys, boolean declared, boolean present, String usedBy, Long accesses, Date accessesSince) {
+    this.collection = collection;
+    this.name = name;
+    this.keys = keys;
+    this.declared = declared;
+    this.present = present;
+    this.usedBy = usedBy;
+    this.accesses = accesses;
+    this.accessesSince = accessesSince;
+  }
+
+  public String getCollection() {
+    return collection;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Document getKeys() {
+    return keys;
+  }
+
+  /**
+   * @return true when the application declares the index, false for an index only found in the collection
+   */
+  public boolean isDeclared() {
+    return declared;
+  }
+
+  /**
+   * @return false when the index is declared but missing from the collection
+   */
+  public boolean isPresent() {
+    return present;
+  }
+
+  public String getUsedBy() {
+    return usedBy;
+  }
+
+  /**
+   * @return the number of operations that used the index since {@link #getAccessesSince()}, null when unknown
+   */
+  public Long getAccesses() {
+    return accesses;
+  }
+
+  public Date getAccessesSince() {
+    return accessesSince;
+  }
+}
@@ -0,0 +1,44 @@
+package org.apereo.openlrw.common.index.endpoint;
+
+import org.apereo.openlrw.common.index.IndexManager;
+import org.apereo.openlrw.common.index.IndexStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Index status of the collections, restricted to the super admins
+ */
+@RestController
+@RequestMapping("/api/admin/indexes")
+public class IndexController {
+
+  private final IndexManager indexManager;
+
+  @Autowired
+  public IndexController(IndexManager indexManager) {
+    this.indexManager = indexManager;
+  }
+
+  /**
+   * @return the declared indexes, whether they exist and how much they are used, then the undeclared ones
+   */
+  @RequestMapping(method = RequestMethod.GET)
+  public List<IndexStatus> get() {
+    return indexManager.getStatus();
+  }
+
+  /**
+   * Creates the missing indexes, e.g. after a collection was dropped
+   *
+   * @return the index status once created
+   */
+  @RequestMapping(method = RequestMethod.POST)
+  public List<IndexStatus> post() {
+    indexManager.ensureIndexes();
+    return indexManager.getStatus();
+  }
+}
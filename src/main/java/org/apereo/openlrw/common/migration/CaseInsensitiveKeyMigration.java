@@ -0,0 +1,108 @@
+package org.apereo.openlrw.common.migration;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.*;
+import org.apereo.model.entity.UserMapping;
+import org.apereo.openlrw.common.CaseInsensitiveKey;
+import org.apereo.openlrw.common.StartupJobs;
+import org.apereo.openlrw.entity.UserMappingKeyListener;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.apereo.openlrw.oneroster.service.repository.MongoEnrollment;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Stores the {@link CaseInsensitiveKey} of the identifiers saved before the keys existed.
+ * Each start of the application goes through the documents without a key, by batches
+ * in the order of their ids, so an interrupted migration goes on where it stopped.
+ * Until then the lookups match the identifiers of the documents without a key ignoring their case,
+ * see {@link CaseInsensitiveKey#matching(String, String, String)}.
+ */
+@Service
+public class CaseInsensitiveKeyMigration {
+  private static Logger logger = LoggerFactory.getLogger(CaseInsensitiveKeyMigration.class);
+
+  static final int BATCH_SIZE = 1000;
+
+  private final MongoOperations mongoOps;
+  private final ExecutorService executorService;
+
+  @Autowired
+  public CaseInsensitiveKeyMigration(MongoOperations mongoOperations, @Qualifier("startupExecutorService") ExecutorService executorService) {
+    this.mongoOps = mongoOperations;
+    this.executorService = executorService;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(StartupJobs.KEY_BACKFILL)
+  public void onApplicationReady() {
+    executorService.execute(() -> {
+      try {
+        migrate();
+      } catch (RuntimeException e) {
+        logger.error("Unable to store the case insensitive keys", e);
+      }
+    });
+  }
+
+  public void migrate() {
+    backfill(mongoOps.getCollectionName(MongoEvent.class), "userId", "userIdKey");
+    backfill(mongoOps.getCollectionName(MongoEnrollment.class), "userSourcedId", "userSourcedIdKey");
+    backfill(mongoOps.getCollectionName(UserMapping.class), "userExternalId", UserMappingKeyListener.USER_EXTERNAL_ID_KEY);
+  }
+
+  /**
+   * @param collectionName
+   * @param field the identifier
+   * @param keyField its key
+   * @return the number of documents updated
+   */
+  long backfill(String collectionName, String field, String keyField) {
+    if (!mongoOps.collectionExists(collectionName))
+      return 0;
+
+    MongoCollection<Document> collection = mongoOps.getCollection(collectionName);
+    Bson withoutKey = Filters.and(Filters.exists(keyField, false), Filters.type(field, BsonType.STRING));
+
+    long updated = 0;
+    Object lastId = null;
+    List<Document> batch;
+    do {
+      Bson filter = lastId == null ? withoutKey : Filters.and(Filters.gt("_id", lastId), withoutKey);
+      batch = collection.find(filter)
+          .projection(Projections.include(field))
+          .sort(Sorts.ascending("_id"))
+          .limit(BATCH_SIZE)
+          .into(new ArrayList<>(BATCH_SIZE));
+
+      if (batch.isEmpty())
+        break;
+
+      List<WriteModel<Document>> updates = new ArrayList<>(batch.size());
+      for (Document document : batch) {
+        updates.add(new UpdateOneModel<>(Filters.eq("_id", document.get("_id")),
+            Updates.set(keyField, CaseInsensitiveKey.of(document.getString(field)))));
+      }
+      updated += collection.bulkWrite(updates, new BulkWriteOptions().ordered(false)).getModifiedCount();
+      lastId = batch.get(batch.size() - 1).get("_id");
+    } while (batch.size() == BATCH_SIZE);
+
+    if (updated > 0)
+      logger.info("Stored the {} of {} documents of {}", keyField, updated, collectionName);
+    return updated;
+  }
+}
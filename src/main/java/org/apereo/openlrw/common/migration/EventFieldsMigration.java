@@ -0,0 +1,160 @@
+package org.apereo.openlrw.common.migration;
+
+import org.apereo.openlrw.common.StartupJobs;
+import org.apereo.openlrw.events.service.ClassStatisticsCache;
+import org.apereo.openlrw.events.service.StoredTime;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Copies the time, action, type, edApp id and student flag of the events saved before
+ * {@link MongoEvent} had them at its top. Each start of the application goes through the
+ * events without a top level eventTime, by batches in the order of their ids.
+ *
+ * Until a pass went through every event, the events are filtered and sorted on the fields of their
+ * Caliper event, see {@link org.apereo.openlrw.events.service.EventFieldPaths}. The instances of the
+ * former version still running during a rolling deploy keep saving events without the fields, so
+ * a pass runs again at each start and every matthews.migration.eventFieldsRecheckMillis. Those
+ * passes only go through the events stored since the previous pass started, their ids being made
+ * when they were inserted, less {@link #INSERT_MARGIN}.
+ */
+@Service
+public class EventFieldsMigration {
+  private static Logger logger = LoggerFactory.getLogger(EventFieldsMigration.class);
+
+  static final int BATCH_SIZE = 1000;
+  static final String MARKER = "event_fields";
+  /** covers the clocks of the instances and the inserts still in flight when a pass started */
+  static final Duration INSERT_MARGIN = Duration.ofMinutes(10);
+
+  private final MongoOperations mongoOps;
+  private final ExecutorService executorService;
+  private final MigrationMarkers migrationMarkers;
+  private final ClassStatisticsCache classStatisticsCache;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  @Autowired
+  public EventFieldsMigration(MongoOperations mongoOperations, @Qualifier("startupExecutorService") ExecutorService executorService,
+                              MigrationMarkers migrationMarkers, ClassStatisticsCache classStatisticsCache) {
+    this.mongoOps = mongoOperations;
+    this.executorService = executorService;
+    this.migrationMarkers = migrationMarkers;
+    this.classStatisticsCache = classStatisticsCache;
+  }
+
+  /**
+   * @return true once every event has its fields copied to its top
+   */
+  public boolean isComplete() {
+    return migrationMarkers.isDone(MARKER);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(StartupJobs.FIELD_BACKFILL)
+  public void onApplicationReady() {
+    executorService.execute(() -> {
+      try {
+        migrate();
+      } catch (RuntimeException e) {
+        logger.error("Unable to copy the fields of the events", e);
+      }
+    });
+  }
+
+  @Scheduled(initialDelayString = "${matthews.migration.eventFieldsRecheckMillis:3600000}", fixedDelayString = "${matthews.migration.eventFieldsRecheckMillis:3600000}")
+  public void recheck() {
+    try {
+      migrate();
+    } catch (RuntimeException e) {
+      logger.error("Unable to copy the fields of the events", e);
+    }
+  }
+
+  /**
+   * Copies the fields of the events without them, then marks the migration as complete.
+   * A pass already running in this instance is not started again.
+   *
+   * @return the number of events updated
+   */
+  public long migrate() {
+    if (!running.compareAndSet(false, true))
+      return 0;
+
+    try {
+      Instant started = Instant.now();
+      long updated = migrate(migrationMarkers.completedAt(MARKER));
+      migrationMarkers.markDone(MARKER, started);
+      return updated;
+    } finally {
+      running.set(false);
+    }
+  }
+
+  /**
+   * @param since (optional) time the previous pass started at
+   */
+  private long migrate(Instant since) {
+    Criteria withoutFields = where("eventTime").exists(false).and("event.eventTime").exists(true);
+    if (since != null)
+      withoutFields = new Criteria().andOperator(withoutFields, StoredTime.between(since.minus(INSERT_MARGIN), null));
+
+    long updated = 0;
+    String lastId = null;
+    List<MongoEvent> batch;
+    do {
+      Criteria criteria = lastId == null ? withoutFields : new Criteria().andOperator(where("id").gt(lastId), withoutFields);
+      batch = mongoOps.find(new Query(criteria).with(Sort.by("id")).limit(BATCH_SIZE), MongoEvent.class);
+
+      if (batch.isEmpty())
+        break;
+
+      BulkOperations bulkOperations = mongoOps.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoEvent.class);
+      for (MongoEvent stored : batch) {
+        MongoEvent mongoEvent = new MongoEvent.Builder()
+            .withId(stored.getId())
+            .withTenantId(stored.getTenantId())
+            .withEvent(stored.getEvent())
+            .build();
+
+        bulkOperations.updateOne(new Query(where("id").is(stored.getId())), new Update()
+            .set("eventTime", mongoEvent.getEventTime())
+            .set("action", mongoEvent.getAction())
+            .set("eventType", mongoEvent.getEventType())
+            .set("edAppId", mongoEvent.getEdAppId())
+            .set("student", mongoEvent.isStudent()));
+      }
+      updated += bulkOperations.execute().getModifiedCount();
+      lastId = batch.get(batch.size() - 1).getId();
+    } while (batch.size() == BATCH_SIZE);
+
+    if (updated > 0) {
+      // the statistics counted from the events not copied yet missed them
+      classStatisticsCache.invalidateAll();
+      logger.info("Copied the fields of {} events", updated);
+    }
+    return updated;
+  }
+}
@@ -0,0 +1,49 @@
+package org.apereo.openlrw.common.migration;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Records that a migration went through every document it had to update, and which instance of
+ * the application is running it meanwhile.
+ *
+ * @see MigrationMarkers
+ */
+@Document
+public class MigrationMarker implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  @Id
+  private String name;
+  private Instant completedAt;
+  private String leasedBy;
+  private Instant leasedUntil;
+
+  private MigrationMarker() {}
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return null while the migration is not done
+   */
+  public Instant getCompletedAt() {
+    return completedAt;
+  }
+
+  public String getLeasedBy() {
+    return leasedBy;
+  }
+
+  /**
+   * @return the time after which another instance may run the migration, when one runs it
+   */
+  public Instant getLeasedUntil() {
+    return leasedUntil;
+  }
+}
@@ -0,0 +1,123 @@
+package org.apereo.openlrw.common.migration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Tells whether a migration is done, so the queries that depend on it keep reading the former
+ * fields meanwhile. A migration is done once one of the instances of the application marked it,
+ * which the other instances see within {@link #RECHECK_MILLIS}. A migration stays done.
+ *
+ * A migration is run by one instance at a time, the one holding the lease of its marker. A lease
+ * not released, e.g. by an instance that stopped, lets another instance take over once it ends.
+ */
+@Service
+public class MigrationMarkers {
+  static final long RECHECK_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  /** the leases of this instance */
+  private static final String INSTANCE = UUID.randomUUID().toString();
+
+  private final MongoOperations mongoOps;
+
+  private final Set<String> done = ConcurrentHashMap.newKeySet();
+  /** when the migrations not done were last checked */
+  private final Map<String, Long> checked = new ConcurrentHashMap<>();
+
+  @Autowired
+  public MigrationMarkers(MongoOperations mongoOperations) {
+    this.mongoOps = mongoOperations;
+  }
+
+  /**
+   * @param name
+   * @return true when the migration was marked as done
+   */
+  public boolean isDone(String name) {
+    if (done.contains(name))
+      return true;
+
+    long now = System.currentTimeMillis();
+    Long last = checked.get(name);
+    if (last != null && now - last < RECHECK_MILLIS)
+      return false;
+
+    checked.put(name, now);
+    MigrationMarker marker = mongoOps.findById(name, MigrationMarker.class);
+    if (marker == null || marker.getCompletedAt() == null)
+      return false;
+
+    done.add(name);
+    checked.remove(name);
+    return true;
+  }
+
+  /**
+   * @param name
+   */
+  public void markDone(String name) {
+    markDone(name, Instant.now());
+  }
+
+  /**
+   * @param name
+   * @param completedAt time before which the documents are all migrated
+   */
+  public void markDone(String name, Instant completedAt) {
+    mongoOps.upsert(new Query(where("name").is(name)), new Update().set("completedAt", completedAt), MigrationMarker.class);
+    done.add(name);
+    checked.remove(name);
+  }
+
+  /**
+   * @param name
+   * @return the time the migration was last marked done at, null when it is not done
+   */
+  public Instant completedAt(String name) {
+    MigrationMarker marker = mongoOps.findById(name, MigrationMarker.class);
+    return marker == null ? null : marker.getCompletedAt();
+  }
+
+  /**
+   * Takes the lease of a migration, done or not, so this instance is the only one running it
+   *
+   * @param name
+   * @param duration time after which the lease is given to another instance, if not released before
+   * @return false when another instance holds the lease
+   */
+  public boolean lease(String name, Duration duration) {
+    Instant now = Instant.now();
+    Query free = new Query(where("name").is(name)
+        .orOperator(where("leasedUntil").lt(now), where("leasedUntil").is(null)));
+    try {
+      // inserts the marker when there is none, fails on the marker leased by another instance
+      mongoOps.upsert(free, new Update().set("leasedBy", INSTANCE).set("leasedUntil", now.plus(duration)), MigrationMarker.class);
+      return true;
+    } catch (DuplicateKeyException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Gives back the lease of a migration taken by this instance
+   *
+   * @param name
+   */
+  public void release(String name) {
+    mongoOps.updateFirst(new Query(where("name").is(name).and("leasedBy").is(INSTANCE)),
+        new Update().unset("leasedBy").unset("leasedUntil"), MigrationMarker.class);
+  }
+}
@@ -1,13 +1,36 @@
 package org.apereo.openlrw.entity;
 
 import org.apereo.model.entity.UserMapping;
+import org.apereo.openlrw.common.CaseInsensitiveKey;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 /**
+ * The external user ids are looked up with the key that {@link UserMappingKeyListener} stores next to them,
+ * or with a case insensitive regular expression in the mappings saved without a key,
+ * see {@link CaseInsensitiveKey#matching(String, String, String)}.
+ *
  * @author ggilbert
  *
  */
 public interface MongoUserMappingRepository extends MongoRepository<UserMapping, String> {
-  UserMapping findByTenantIdAndOrganizationIdAndUserExternalIdIgnoreCase(String tenantId, String organizationId, String userExternalId);
-  UserMapping findByTenantIdAndUserExternalIdIgnoreCase(String tenantId, String userExternalId);
+  @Query("{ 'tenantId': ?0, 'organizationId': ?1, '" + UserMappingKeyListener.USER_EXTERNAL_ID_KEY + "': ?2 }")
+  UserMapping findByTenantIdAndOrganizationIdAndUserExternalIdKey(String tenantId, String organizationId, String userExternalIdKey);
+
+  @Query("{ 'tenantId': ?0, '" + UserMappingKeyListener.USER_EXTERNAL_ID_KEY + "': ?1 }")
+  UserMapping findByTenantIdAndUserExternalIdKey(String tenantId, String userExternalIdKey);
+
+  @Query("{ 'tenantId': ?0, 'organizationId': ?1, $or: [ { '" + UserMappingKeyListener.USER_EXTERNAL_ID_KEY + "': ?2 }, { '" + UserMappingKeyListener.USER_EXTERNAL_ID_KEY + "': { $exists: false }, 'userExternalId': { $regex: ?3, $options: 'i' } } ] }")
+  UserMapping findByTenantIdAndOrganizationIdAndUserExternalIdKeyOrPattern(String tenantId, String organizationId, String userExternalIdKey, String userExternalIdPattern);
+
+  @Query("{ 'tenantId': ?0, $or: [ { '" + UserMappingKeyListener.USER_EXTERNAL_ID_KEY + "': ?1 }, { '" + UserMappingKeyListener.USER_EXTERNAL_ID_KEY + "': { $exists: false }, 'userExternalId': { $regex: ?2, $options: 'i' } } ] }")
+  UserMapping findByTenantIdAndUserExternalIdKeyOrPattern(String tenantId, String userExternalIdKey, String userExternalIdPattern);
+
+  default UserMapping findByTenantIdAndOrganizationIdAndUserExternalIdIgnoreCase(String tenantId, String organizationId, String userExternalId) {
+    return findByTenantIdAndOrganizationIdAndUserExternalIdKeyOrPattern(tenantId, organizationId, CaseInsensitiveKey.of(userExternalId), CaseInsensitiveKey.pattern(userExternalId));
+  }
+
+  default UserMapping findByTenantIdAndUserExternalIdIgnoreCase(String tenantId, String userExternalId) {
+    return findByTenantIdAndUserExternalIdKeyOrPattern(tenantId, CaseInsensitiveKey.of(userExternalId), CaseInsensitiveKey.pattern(userExternalId));
+  }
 }
@@ -0,0 +1,22 @@
+package org.apereo.openlrw.entity;
+
+import org.apereo.model.entity.UserMapping;
+import org.apereo.openlrw.common.CaseInsensitiveKey;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores the key of the external user id in the user mapping documents, {@link UserMapping}
+ * having no property for it.
+ */
+@Component
+public class UserMappingKeyListener extends AbstractMongoEventListener<UserMapping> {
+  public static final String USER_EXTERNAL_ID_KEY = "userExternalIdKey";
+
+  @Override
+  public void onBeforeSave(BeforeSaveEvent<UserMapping> event) {
+    if (event.getDocument() != null)
+      event.getDocument().put(USER_EXTERNAL_ID_KEY, CaseInsensitiveKey.of(event.getSource().getUserExternalId()));
+  }
+}
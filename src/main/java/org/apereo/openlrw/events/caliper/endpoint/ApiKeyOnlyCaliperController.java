@@ -2,7 +2,11 @@ package org.apereo.openlrw.events.caliper.endpoint;
 
 import org.apereo.model.oneroster.Org;
 import org.apereo.openlrw.Vocabulary;
+import org.apereo.openlrw.events.service.BatchSaveResult;
+import org.apereo.openlrw.events.service.EventIngestionQueue;
 import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.events.service.IngestionSettings;
+import org.apereo.openlrw.events.service.journal.EventJournalService;
 import org.apereo.openlrw.oneroster.exception.OrgNotFoundException;
 import org.apereo.openlrw.oneroster.service.OrgService;
 import org.slf4j.Logger;
@@ -16,6 +20,7 @@ import org.apereo.openlrw.caliper.Event;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/key/caliper")
@@ -24,14 +29,21 @@ public class ApiKeyOnlyCaliperController {
 
   private EventService eventService;
   private OrgService orgService;
+  private EventIngestionQueue eventIngestionQueue;
+  private EventJournalService eventJournalService;
+  private IngestionSettings ingestionSettings;
   
   @Autowired
-  public ApiKeyOnlyCaliperController(EventService eventService, OrgService orgService) {
+  public ApiKeyOnlyCaliperController(EventService eventService, OrgService orgService, EventIngestionQueue eventIngestionQueue,
+      EventJournalService eventJournalService, IngestionSettings ingestionSettings) {
     this.eventService = eventService;
     this.orgService = orgService;
+    this.eventIngestionQueue = eventIngestionQueue;
+    this.eventJournalService = eventJournalService;
+    this.ingestionSettings = ingestionSettings;
   }
   
-  @RequestMapping(method = RequestMethod.POST, consumes = "application/json", produces = "application/json;charset=utf-8")
+  @RequestMapping(method = RequestMethod.POST, consumes = {"application/json", "application/x-jackson-smile", "application/cbor"}, produces = "application/json;charset=utf-8")
   public ResponseEntity<?> post(@RequestHeader(value="Authorization") String authorization, @RequestBody Envelope envelope) throws OrgNotFoundException {
     Org org = orgService.findByApiKey(authorization);
     
@@ -39,15 +51,16 @@ public class ApiKeyOnlyCaliperController {
       List<Event> events = envelope.getData();
       List<String> ids = null;
       if (events != null && !events.isEmpty()) {
-        ids = new ArrayList<>();
-        for (Event event : events) {
-          try {
-            String savedId = this.eventService.save(org.getMetadata().get(Vocabulary.TENANT), org.getSourcedId(), event);
-            ids.add(savedId);
-          } catch (Exception e) {
-            logger.error("Unable to save event {}",event);
-          }
+        if (ingestionSettings.getMode() == IngestionSettings.Mode.QUEUE)
+          return new ResponseEntity<>(eventIngestionQueue.enqueue(org.getMetadata().get(Vocabulary.TENANT), org.getSourcedId(), events), null, HttpStatus.ACCEPTED);
+        if (ingestionSettings.getMode() == IngestionSettings.Mode.JOURNAL)
+          return new ResponseEntity<>(eventJournalService.append(org.getMetadata().get(Vocabulary.TENANT), org.getSourcedId(), events), null, HttpStatus.ACCEPTED);
+
+        BatchSaveResult result = this.eventService.saveAll(org.getMetadata().get(Vocabulary.TENANT), org.getSourcedId(), events);
+        for (Map.Entry<Integer, String> failure : result.getFailures().entrySet()) {
+          logger.error("Unable to save event {}: {}", events.get(failure.getKey()), failure.getValue());
         }
+        ids = new ArrayList<>(result.getIds());
       }
       
       return new ResponseEntity<>(ids, null, HttpStatus.OK);
@@ -0,0 +1,57 @@
+package org.apereo.openlrw.events.caliper.endpoint;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apereo.openlrw.events.service.BulkIngestionService;
+import org.apereo.openlrw.security.auth.JwtAuthenticationToken;
+import org.apereo.openlrw.security.model.UserContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bulk import of Caliper events for backfills: the body holds one event per line
+ * and may be gzip or deflate encoded. The response is written as the lines are imported, one record
+ * per line: the rejected lines, then the totals or the error that stopped the import.
+ *
+ * @see BulkIngestionService
+ * @see org.apereo.openlrw.common.ContentEncodingFilter
+ */
+@RestController
+@RequestMapping("/api/caliper/bulk")
+public class CaliperBulkController {
+  private static Logger logger = LoggerFactory.getLogger(CaliperBulkController.class);
+
+  private BulkIngestionService bulkIngestionService;
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  public CaliperBulkController(BulkIngestionService bulkIngestionService, ObjectMapper objectMapper) {
+    this.bulkIngestionService = bulkIngestionService;
+    this.objectMapper = objectMapper;
+  }
+
+  @RequestMapping(method = RequestMethod.POST, consumes = {"application/x-ndjson", "application/json"})
+  public void post(JwtAuthenticationToken token, HttpServletRequest request, HttpServletResponse response) throws IOException {
+    UserContext userContext = (UserContext) token.getPrincipal();
+
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType("application/x-ndjson;charset=utf-8");
+
+    try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8);
+         JsonGenerator summary = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+      long accepted = bulkIngestionService.importEvents(userContext.getTenantId(), userContext.getOrgId(), reader, summary);
+      logger.info("Bulk import saved {} events for org {}", accepted, userContext.getOrgId());
+    }
+  }
+}
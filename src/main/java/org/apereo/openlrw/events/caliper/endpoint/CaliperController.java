@@ -1,6 +1,10 @@
 package org.apereo.openlrw.events.caliper.endpoint;
 
+import org.apereo.openlrw.events.service.BatchSaveResult;
+import org.apereo.openlrw.events.service.EventIngestionQueue;
 import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.events.service.IngestionSettings;
+import org.apereo.openlrw.events.service.journal.EventJournalService;
 import org.apereo.openlrw.security.auth.JwtAuthenticationToken;
 import org.apereo.openlrw.security.model.UserContext;
 import org.slf4j.Logger;
@@ -17,6 +21,7 @@ import org.apereo.openlrw.caliper.Event;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author ggilbert
@@ -28,13 +33,20 @@ public class CaliperController {
   private static Logger logger = LoggerFactory.getLogger(CaliperController.class);
 
   private EventService eventService;
+  private EventIngestionQueue eventIngestionQueue;
+  private EventJournalService eventJournalService;
+  private IngestionSettings ingestionSettings;
   
   @Autowired
-  public CaliperController(EventService eventService) {
+  public CaliperController(EventService eventService, EventIngestionQueue eventIngestionQueue,
+      EventJournalService eventJournalService, IngestionSettings ingestionSettings) {
     this.eventService = eventService;
+    this.eventIngestionQueue = eventIngestionQueue;
+    this.eventJournalService = eventJournalService;
+    this.ingestionSettings = ingestionSettings;
   }
   
-  @RequestMapping(method = RequestMethod.POST, consumes = "application/json", produces = "application/json;charset=utf-8")
+  @RequestMapping(method = RequestMethod.POST, consumes = {"application/json", "application/x-jackson-smile", "application/cbor"}, produces = "application/json;charset=utf-8")
   public ResponseEntity<?> post(JwtAuthenticationToken token, @RequestBody Envelope envelope) {
     UserContext userContext = (UserContext) token.getPrincipal();
     
@@ -42,15 +54,16 @@ public class CaliperController {
       List<Event> events = envelope.getData();
       List<String> ids = null;
       if (events != null && !events.isEmpty()) {
-        ids = new ArrayList<>();
-        for (Event event : events) {
-          try {
-            String savedId = this.eventService.save(userContext.getTenantId(), userContext.getOrgId(), event);
-            ids.add(savedId);
-          } catch (Exception e) {
-            logger.error("Unable to save event {}",event);
-          }
+        if (ingestionSettings.getMode() == IngestionSettings.Mode.QUEUE)
+          return new ResponseEntity<>(eventIngestionQueue.enqueue(userContext.getTenantId(), userContext.getOrgId(), events), null, HttpStatus.ACCEPTED);
+        if (ingestionSettings.getMode() == IngestionSettings.Mode.JOURNAL)
+          return new ResponseEntity<>(eventJournalService.append(userContext.getTenantId(), userContext.getOrgId(), events), null, HttpStatus.ACCEPTED);
+
+        BatchSaveResult result = this.eventService.saveAll(userContext.getTenantId(), userContext.getOrgId(), events);
+        for (Map.Entry<Integer, String> failure : result.getFailures().entrySet()) {
+          logger.error("Unable to save event {}: {}", events.get(failure.getKey()), failure.getValue());
         }
+        ids = new ArrayList<>(result.getIds());
       }
       
       return new ResponseEntity<>(ids, null, HttpStatus.OK);
@@ -0,0 +1,20 @@
+package org.apereo.openlrw.events.caliper.exception;
+
+/**
+ * Thrown when events cannot be accepted because the ingestion queue is full
+ */
+public class IngestionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int retryAfterSeconds;
+
+    public IngestionRejectedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
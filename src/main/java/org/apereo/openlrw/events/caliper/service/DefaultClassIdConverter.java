@@ -1,15 +1,13 @@
 package org.apereo.openlrw.events.caliper.service;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apereo.openlrw.Vocabulary;
 import org.apereo.openlrw.tenant.Tenant;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.apereo.openlrw.caliper.Event;
 import org.apereo.openlrw.caliper.Group;
 import org.apereo.openlrw.caliper.SubOrganizationOf;
 
-import java.util.Map;
-
 /**
  * @author ggilbert
  * @author xchopin <xavier.chopin@univ-lorraine.fr>
@@ -18,6 +16,12 @@ import java.util.Map;
 @Component
 public class DefaultClassIdConverter implements ClassIdConverter {
 
+  private IdNormalizationCache idNormalizationCache;
+  @Autowired
+  public DefaultClassIdConverter(IdNormalizationCache idNormalizationCache) {
+    this.idNormalizationCache = idNormalizationCache;
+  }
+
   @Override
   public String convert(Tenant tenant, Event event) {
     Group group = event.getGroup();
@@ -25,12 +29,12 @@ public class DefaultClassIdConverter implements ClassIdConverter {
       return null;
     }
     
-    // temporary fix for NCSU issue, will be resolved soon
-    if (group.getCourseNumber() != null && group.getId() != null && group.getId().contains("ncsu.edu")) {
+    IdNormalizationRules rules = idNormalizationCache.getRules(tenant);
+    if (rules.usesCourseNumber(group.getId(), group.getCourseNumber())) {
       return group.getCourseNumber();
     }
     
-    String convertedClassId = null, groupId = null;
+    String groupId = null;
     String groupType = group.getType();
 
     if (isCourseSection(groupType)) {
@@ -43,28 +47,9 @@ public class DefaultClassIdConverter implements ClassIdConverter {
       return null;
     }
     
-    if (StringUtils.startsWith(groupId, "http")) {
-      Map<String, String> tenantMetadata = tenant.getMetadata();
-      if (tenantMetadata != null && !tenantMetadata.isEmpty()) {
-        String tenantClassPrefix = tenantMetadata.get(Vocabulary.TENANT_CLASS_PREFIX);
-        if (StringUtils.isNotBlank(tenantClassPrefix)) {
-          String classIdAfterPrefix = StringUtils.substringAfter(groupId, tenantClassPrefix);
-          if (StringUtils.startsWith(classIdAfterPrefix, "/")) {
-            convertedClassId = StringUtils.substringAfter(classIdAfterPrefix, "/");
-          } else {
-            convertedClassId = classIdAfterPrefix;
-          }
-        }
-      } else {
-        convertedClassId = StringUtils.substringAfterLast(groupId, "/");
-      }
-    } else {
-      convertedClassId = groupId;
-    }
-    
-    return convertedClassId;
+    final String courseSectionId = groupId;
+    return idNormalizationCache.getClassId(tenant, courseSectionId, () -> rules.classId(courseSectionId));
   }
-
   private boolean isCourseSection(String groupType) {
     return StringUtils.isNotBlank(groupType)
             && ("http://purl.imsglobal.org/caliper/v1/lis/CourseSection".equals(groupType)
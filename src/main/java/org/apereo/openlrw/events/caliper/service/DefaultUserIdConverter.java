@@ -1,8 +1,6 @@
 package org.apereo.openlrw.events.caliper.service;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apereo.model.entity.UserMapping;
-import org.apereo.openlrw.Vocabulary;
 import org.apereo.openlrw.entity.MongoUserMappingRepository;
 import org.apereo.openlrw.tenant.Tenant;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,8 +8,6 @@ import org.springframework.stereotype.Component;
 import org.apereo.openlrw.caliper.Agent;
 import org.apereo.openlrw.caliper.Event;
 
-import java.util.Map;
-
 
 /**
  * @author ggilbert
@@ -21,53 +17,33 @@ import java.util.Map;
 public class DefaultUserIdConverter implements UserIdConverter {
 
   private MongoUserMappingRepository mongoUserMappingRepository;
+  private IdNormalizationCache idNormalizationCache;
   @Autowired
   public DefaultUserIdConverter(
-          MongoUserMappingRepository mongoUserMappingRepository) {
+          MongoUserMappingRepository mongoUserMappingRepository,
+          IdNormalizationCache idNormalizationCache) {
     this.mongoUserMappingRepository = mongoUserMappingRepository;
+    this.idNormalizationCache = idNormalizationCache;
   }
 
   @Override
   public String convert(Tenant tenant, Event event) {
-
-    String convertedUserId = null;
-
     Agent agent = event.getAgent();
     String agentId = agent.getId();
 
-    if (StringUtils.isNotBlank(agentId)
-            && StringUtils.startsWith(agentId, "http")) {
-      Map<String, String> tenantMetadata = tenant.getMetadata();
-      if (tenantMetadata != null && !tenantMetadata.isEmpty()) {
-        String tenantUserPrefix = tenantMetadata.get(Vocabulary.TENANT_USER_PREFIX);
-        if (StringUtils.isNotBlank(tenantUserPrefix)) {
-          String agentIdAfterPrefix = StringUtils.substringAfter(agentId, tenantUserPrefix);
-          if (StringUtils.startsWith(agentIdAfterPrefix, "/")) {
-            convertedUserId = StringUtils.substringAfter(agentIdAfterPrefix, "/");
-          }
-          else {
-            convertedUserId = agentIdAfterPrefix;
-          }
-        }
-      }
-      else {
-        convertedUserId = StringUtils.substringAfterLast(agentId, "/");
+    IdNormalizationRules rules = idNormalizationCache.getRules(tenant);
+    return idNormalizationCache.getUserId(tenant, agentId, () -> convert(rules, agentId));
+  }
 
-        if (agentId.contains("ncsu.edu")) {
-          UserMapping userMapping = mongoUserMappingRepository.findByTenantIdAndUserExternalIdIgnoreCase(tenant.getId(), convertedUserId);
-          if (userMapping != null && userMapping.getUserSourcedId() != null) {
-            return userMapping.getUserSourcedId();
-          }
-          else {
-            return convertedUserId;
-          }
-        }
+  private String convert(IdNormalizationRules rules, String agentId) {
+    String convertedUserId = rules.userId(agentId);
 
+    if (rules.isMappedUser(agentId)) {
+      UserMapping userMapping = mongoUserMappingRepository.findByTenantIdAndUserExternalIdIgnoreCase(rules.getTenantId(), convertedUserId);
+      if (userMapping != null && userMapping.getUserSourcedId() != null) {
+        return userMapping.getUserSourcedId();
       }
     }
-    else {
-      convertedUserId = agentId;
-    }
 
     return convertedUserId;
   }
@@ -0,0 +1,109 @@
+package org.apereo.openlrw.events.caliper.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apereo.openlrw.tenant.Tenant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps, for each tenant, its compiled {@link IdNormalizationRules} and the user and class ids
+ * already converted from Caliper agent and group ids, user mapping lookups included.
+ * The entries of a tenant are dropped when the tenant is saved, its converted user ids
+ * when one of its user mappings is saved.
+ *
+ * @see IdNormalizationCacheSettings
+ */
+@Service
+public class IdNormalizationCache {
+  private final IdNormalizationCacheSettings settings;
+  private final Cache<String, TenantIds> tenants;
+
+  @Autowired
+  public IdNormalizationCache(IdNormalizationCacheSettings settings) {
+    this.settings = settings;
+    this.tenants = CacheBuilder.newBuilder()
+        .maximumSize(settings.getMaximumTenants())
+        .expireAfterWrite(settings.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+        .build();
+  }
+
+  public IdNormalizationRules getRules(Tenant tenant) {
+    return tenantIds(tenant).rules;
+  }
+
+  /**
+   * @param tenant
+   * @param agentId
+   * @param converter called when the agent id was not converted yet
+   * @return the converted user id
+   */
+  public String getUserId(Tenant tenant, String agentId, Supplier<String> converter) {
+    return get(tenantIds(tenant).userIds, agentId, converter);
+  }
+
+  /**
+   * @param tenant
+   * @param courseSectionId
+   * @param converter called when the course section id was not converted yet
+   * @return the converted class id
+   */
+  public String getClassId(Tenant tenant, String courseSectionId, Supplier<String> converter) {
+    return get(tenantIds(tenant).classIds, courseSectionId, converter);
+  }
+
+  public void invalidateTenant(String tenantId) {
+    tenants.invalidate(key(tenantId));
+  }
+
+  public void invalidateUserIds(String tenantId) {
+    TenantIds tenantIds = tenants.getIfPresent(key(tenantId));
+    if (tenantIds != null)
+      tenantIds.userIds.invalidateAll();
+  }
+
+  public void invalidateAll() {
+    tenants.invalidateAll();
+  }
+
+  private TenantIds tenantIds(Tenant tenant) {
+    try {
+      return tenants.get(key(tenant == null ? null : tenant.getId()), () -> new TenantIds(IdNormalizationRules.compile(tenant)));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static String get(Cache<String, Optional<String>> ids, String id, Supplier<String> converter) {
+    if (id == null)
+      return converter.get();
+
+    try {
+      return ids.get(id, () -> Optional.ofNullable(converter.get())).orElse(null);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static String key(String tenantId) {
+    return tenantId == null ? "" : tenantId;
+  }
+
+  private class TenantIds {
+    private final IdNormalizationRules rules;
+    private final Cache<String, Optional<String>> userIds;
+    private final Cache<String, Optional<String>> classIds;
+
+    private TenantIds(IdNormalizationRules rules) {
+      this.rules = rules;
+      this.userIds = CacheBuilder.newBuilder().maximumSize(settings.getMaximumIdsPerTenant()).build();
+      this.classIds = CacheBuilder.newBuilder().maximumSize(settings.getMaximumIdsPerTenant()).build();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package org.apereo.openlrw.events.caliper.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the {@link IdNormalizationCache}
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matthews.cache.ids")
+public class IdNormalizationCacheSettings {
+
+  /**
+   * Maximum number of tenants whose rules and converted ids are kept in memory.
+   */
+  private long maximumTenants = 1000;
+
+  /**
+   * Maximum number of converted user ids, and of converted class ids, kept for a tenant.
+   */
+  private long maximumIdsPerTenant = 100000;
+
+  /**
+   * Time after which the rules and converted ids of a tenant are computed again.
+   */
+  private long expireAfterWriteSeconds = 3600;
+
+  public long getMaximumTenants() {
+    return maximumTenants;
+  }
+
+  public void setMaximumTenants(long maximumTenants) {
+    this.maximumTenants = maximumTenants;
+  }
+
+  public long getMaximumIdsPerTenant() {
+    return maximumIdsPerTenant;
+  }
+
+  public void setMaximumIdsPerTenant(long maximumIdsPerTenant) {
+    this.maximumIdsPerTenant = maximumIdsPerTenant;
+  }
+
+  public long getExpireAfterWriteSeconds() {
+    return expireAfterWriteSeconds;
+  }
+
+  public void setExpireAfterWriteSeconds(long expireAfterWriteSeconds) {
+    this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+  }
+}
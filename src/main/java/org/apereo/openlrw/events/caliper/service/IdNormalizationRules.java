@@ -0,0 +1,129 @@
+package org.apereo.openlrw.events.caliper.service;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.Vocabulary;
+import org.apereo.openlrw.tenant.Tenant;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Rules turning Caliper agent and group ids into OneRoster user and class ids, read once from the tenant metadata.
+ *
+ * When the tenant metadata has a user (or class) prefix, the part of the id after that prefix is kept.
+ * When the tenant has no metadata, the last segment of the id is kept. Agents whose id contains one of
+ * the user mapping domains are then looked up in the user mappings, and groups whose id contains one of
+ * the course number domains use their course number. Both default to ncsu.edu.
+ */
+public class IdNormalizationRules {
+  static final String DEFAULT_DOMAIN = "ncsu.edu";
+
+  private final String tenantId;
+  private final boolean hasMetadata;
+  private final String userPrefix;
+  private final String classPrefix;
+  private final List<String> userMappingDomains;
+  private final List<String> courseNumberDomains;
+
+  private IdNormalizationRules(String tenantId, Map<String, String> metadata) {
+    this.tenantId = tenantId;
+    this.userPrefix = metadata.get(Vocabulary.TENANT_USER_PREFIX);
+    this.classPrefix = metadata.get(Vocabulary.TENANT_CLASS_PREFIX);
+    this.userMappingDomains = domains(metadata.get(Vocabulary.TENANT_USER_MAPPING_DOMAINS));
+    this.courseNumberDomains = domains(metadata.get(Vocabulary.TENANT_CLASS_COURSE_NUMBER_DOMAINS));
+
+    Map<String, String> idMetadata = new HashMap<>(metadata);
+    idMetadata.remove(Vocabulary.TENANT_USER_MAPPING_DOMAINS);
+    idMetadata.remove(Vocabulary.TENANT_CLASS_COURSE_NUMBER_DOMAINS);
+    this.hasMetadata = !idMetadata.isEmpty();
+  }
+
+  public static IdNormalizationRules compile(Tenant tenant) {
+    if (tenant == null || tenant.getMetadata() == null)
+      return new IdNormalizationRules(tenant == null ? null : tenant.getId(), new HashMap<>());
+
+    return new IdNormalizationRules(tenant.getId(), tenant.getMetadata());
+  }
+
+  public String getTenantId() {
+    return tenantId;
+  }
+
+  /**
+   * @param agentId
+   * @return the user id before any user mapping is applied
+   */
+  public String userId(String agentId) {
+    if (!StringUtils.startsWith(agentId, "http"))
+      return agentId;
+
+    if (hasMetadata)
+      return afterPrefix(agentId, userPrefix);
+
+    return StringUtils.substringAfterLast(agentId, "/");
+  }
+
+  /**
+   * @param agentId
+   * @return true when the user id has to be looked up in the user mappings
+   */
+  public boolean isMappedUser(String agentId) {
+    return !hasMetadata && StringUtils.startsWith(agentId, "http") && containsAny(agentId, userMappingDomains);
+  }
+
+  /**
+   * @param groupId
+   * @param courseNumber
+   * @return true when the course number is used as class id
+   */
+  public boolean usesCourseNumber(String groupId, String courseNumber) {
+    return courseNumber != null && groupId != null && containsAny(groupId, courseNumberDomains);
+  }
+
+  /**
+   * @param courseSectionId
+   * @return the class id of a course section
+   */
+  public String classId(String courseSectionId) {
+    if (!StringUtils.startsWith(courseSectionId, "http"))
+      return courseSectionId;
+
+    if (hasMetadata)
+      return afterPrefix(courseSectionId, classPrefix);
+
+    return StringUtils.substringAfterLast(courseSectionId, "/");
+  }
+
+  private static String afterPrefix(String id, String prefix) {
+    if (StringUtils.isBlank(prefix))
+      return null;
+
+    String idAfterPrefix = StringUtils.substringAfter(id, prefix);
+    if (StringUtils.startsWith(idAfterPrefix, "/"))
+      return StringUtils.substringAfter(idAfterPrefix, "/");
+
+    return idAfterPrefix;
+  }
+
+  private static boolean containsAny(String id, List<String> domains) {
+    for (String domain : domains) {
+      if (id.contains(domain))
+        return true;
+    }
+    return false;
+  }
+
+  private static List<String> domains(String value) {
+    if (value == null)
+      return ImmutableList.of(DEFAULT_DOMAIN);
+
+    return ImmutableList.copyOf(Arrays.stream(StringUtils.split(value, ','))
+        .map(String::trim)
+        .filter(StringUtils::isNotEmpty)
+        .collect(Collectors.toList()));
+  }
+}
@@ -0,0 +1,48 @@
+package org.apereo.openlrw.events.endpoint;
+
+import org.apereo.openlrw.common.exception.BadRequestException;
+import org.apereo.openlrw.events.service.ClassActivityRebuilds;
+import org.apereo.openlrw.tenant.service.TenantCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Class activity counters behind the class statistics, restricted to the super admins
+ */
+@RestController
+@RequestMapping("/api/admin/class-activity")
+public class ClassActivityController {
+
+  private final ClassActivityRebuilds classActivityRebuilds;
+  private final TenantCache tenantCache;
+
+  @Autowired
+  public ClassActivityController(ClassActivityRebuilds classActivityRebuilds, TenantCache tenantCache) {
+    this.classActivityRebuilds = classActivityRebuilds;
+    this.tenantCache = tenantCache;
+  }
+
+  /**
+   * Recounts the activity of every class of an org from its events, in the background
+   *
+   * @param tenantId
+   * @param orgId
+   * @return 202 once started, 409 when the org is being rebuilt already
+   */
+  @RequestMapping(value = "/{tenantId}/{orgId}/rebuild", method = RequestMethod.POST)
+  public ResponseEntity<Map<String, Boolean>> rebuild(@PathVariable final String tenantId, @PathVariable final String orgId) {
+    if (!tenantCache.findById(tenantId).isPresent())
+      throw new BadRequestException("Unknown tenant " + tenantId);
+
+    boolean started = classActivityRebuilds.start(tenantId, orgId);
+    return new ResponseEntity<>(Collections.singletonMap("started", started), null, started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT);
+  }
+}
@@ -1,17 +1,30 @@
 package org.apereo.openlrw.events.endpoint;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.common.exception.BadRequestException;
+import org.apereo.openlrw.events.service.EventExportService;
+import org.apereo.openlrw.events.service.EventPage;
 import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.events.service.RawEvent;
 import org.apereo.openlrw.oneroster.service.OrgService;
 import org.apereo.openlrw.security.auth.JwtAuthenticationToken;
 import org.apereo.openlrw.security.model.UserContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author xchopin <xavier.chopin@univ-lorraine.fr>
@@ -21,11 +34,16 @@ import java.util.Collection;
 public class EventController {
   private static Logger logger = LoggerFactory.getLogger(EventController.class);
 
+  /** response header giving the cursor of the next page, absent on the last page */
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
   private EventService eventService;
+  private EventExportService eventExportService;
 
   @Autowired
-  public EventController(EventService eventService, OrgService orgService) {
+  public EventController(EventService eventService, OrgService orgService, EventExportService eventExportService) {
     this.eventService = eventService;
+    this.eventExportService = eventExportService;
   }
 
   /**
@@ -34,16 +52,18 @@ public class EventController {
    * @param token
    * @param page
    * @param limit
+   * @param cursor (optional) value of the {@value #NEXT_CURSOR_HEADER} header of the previous page, replaces page
    * @return
    */
    @RequestMapping(method = RequestMethod.GET)
-   public Collection<Event> getEvents(
+   public ResponseEntity<Collection<RawEvent>> getEvents(
            JwtAuthenticationToken token,
            @RequestParam(value = "page", required = false, defaultValue = "0") String page,
-           @RequestParam(value = "limit", required = false, defaultValue = "1000") String limit
+           @RequestParam(value = "limit", required = false, defaultValue = "1000") String limit,
+           @RequestParam(value = "cursor", required = false) String cursor
    ) throws Exception {
      UserContext userContext = (UserContext) token.getPrincipal();
-         return eventService.findAll(userContext.getTenantId(), userContext.getOrgId(), page, limit);
+         return toResponse(eventService.findAll(userContext.getTenantId(), userContext.getOrgId(), page, limit, cursor));
    }
 
     /**
@@ -52,17 +72,88 @@ public class EventController {
      * @param token
      * @param page
      * @param limit
+     * @param cursor (optional) value of the {@value #NEXT_CURSOR_HEADER} header of the previous page, replaces page
      * @return
      */
     @RequestMapping(value = "/sources/{edAppId:.+}", method = RequestMethod.GET)
-    public Collection<Event> getEvents(
+    public ResponseEntity<Collection<RawEvent>> getEvents(
             JwtAuthenticationToken token,
             @PathVariable final String edAppId,
             @RequestParam(value = "page", required = false, defaultValue = "0") String page,
-            @RequestParam(value = "limit", required = false, defaultValue = "1000") String limit
+            @RequestParam(value = "limit", required = false, defaultValue = "1000") String limit,
+            @RequestParam(value = "cursor", required = false) String cursor
     ) throws Exception {
         UserContext userContext = (UserContext) token.getPrincipal();
-        return eventService.findByEdApp(userContext.getTenantId(), userContext.getOrgId(), page, limit, edAppId);
+        return toResponse(eventService.findByEdApp(userContext.getTenantId(), userContext.getOrgId(), page, limit, edAppId, cursor));
+    }
+
+    /**
+     * Export the events as newline-delimited JSON, gzip compressed when the client accepts it
+     *
+     * @param token
+     * @param from (optional) ISO-8601 instant, events at or after it
+     * @param to (optional) ISO-8601 instant, events before it
+     * @param edAppId (optional)
+     * @param classId (optional)
+     * @param acceptEncoding
+     * @return
+     */
+    @RequestMapping(value = "/export", method = RequestMethod.GET, produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export(
+            JwtAuthenticationToken token,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "edApp", required = false) String edAppId,
+            @RequestParam(value = "classId", required = false) String classId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        UserContext userContext = (UserContext) token.getPrincipal();
+        Instant fromTime = parseInstant(from);
+        Instant toTime = parseInstant(to);
+        boolean gzip = StringUtils.containsIgnoreCase(acceptEncoding, "gzip");
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setContentType(MediaType.parseMediaType("application/x-ndjson;charset=utf-8"));
+        if (gzip)
+            httpHeaders.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                // sync flush so the events written so far reach the client when the export flushes
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192, true)) {
+                    export(userContext, fromTime, toTime, edAppId, classId, gzipOut);
+                }
+            } else {
+                export(userContext, fromTime, toTime, edAppId, classId, out);
+            }
+        };
+        return new ResponseEntity<>(body, httpHeaders, HttpStatus.OK);
+    }
+
+    private void export(UserContext userContext, Instant from, Instant to, String edAppId, String classId, OutputStream out) throws IOException {
+        long exported = eventExportService.export(userContext.getTenantId(), userContext.getOrgId(), from, to, edAppId, classId, out);
+        logger.info("Exported {} events for org {}", exported, userContext.getOrgId());
+    }
+
+    private static Instant parseInstant(String value) {
+        if (StringUtils.isBlank(value))
+            return null;
+
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Not able to parse the date, it has to be an ISO-8601 instant such as `2019-11-01T00:00:00Z`");
+        }
+    }
+
+    private static ResponseEntity<Collection<RawEvent>> toResponse(EventPage<RawEvent> events) {
+        if (events == null)
+            return ResponseEntity.ok().build();
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        if (events.getNext() != null)
+            httpHeaders.set(NEXT_CURSOR_HEADER, events.getNext().encode());
+        return new ResponseEntity<>(events.getEvents(), httpHeaders, HttpStatus.OK);
     }
 
 }
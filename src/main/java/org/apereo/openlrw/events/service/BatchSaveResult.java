@@ -0,0 +1,56 @@
+package org.apereo.openlrw.events.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of {@link EventService#saveAll(String, String, List)}.
+ * Ids are kept in the order of the submitted events, failures are keyed by
+ * the position of the event in the submitted list.
+ */
+public class BatchSaveResult {
+  private final List<String> ids = new ArrayList<>();
+  private final Map<Integer, String> failures = new TreeMap<>();
+  private Exception batchError;
+
+  void addId(String id) {
+    ids.add(id);
+  }
+
+  void addFailure(int index, String reason) {
+    failures.put(index, reason);
+  }
+
+  void setBatchError(Exception batchError) {
+    this.batchError = batchError;
+  }
+
+  /**
+   * @return the ids of the events that were saved
+   */
+  public List<String> getIds() {
+    return Collections.unmodifiableList(ids);
+  }
+
+  /**
+   * @return the reason of each failure, keyed by the index of the event in the batch
+   */
+  public Map<Integer, String> getFailures() {
+    return Collections.unmodifiableMap(failures);
+  }
+
+  public boolean hasFailures() {
+    return !failures.isEmpty();
+  }
+
+  /**
+   * @return the error that made the whole bulk insert fail, such as MongoDB being unreachable,
+   * or null when the insert went through
+   */
+  public Exception getBatchError() {
+    return batchError;
+  }
+}
@@ -0,0 +1,210 @@
+package org.apereo.openlrw.events.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.caliper.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports newline-delimited Caliper events, one event per line.
+ * Lines are read and parsed one at a time and saved in bulk inserts of
+ * {@link IngestionSettings#getBatchSize()} events, so the memory used does not
+ * depend on the size of the upload. A line longer than {@link IngestionSettings#getMaxBulkLineLength()}
+ * is skipped and rejected.
+ *
+ * The response is written while the import goes on, one record per line: a record for each rejected
+ * line, then the totals. When the import stops on an error, the last record holds it along with the
+ * totals of the lines read until then, the events of the previous batches being saved:
+ * <pre>
+ * {"line":3,"reason":"..."}
+ * {"accepted":998,"lines":1000}
+ * </pre>
+ * <pre>
+ * {"error":"...","accepted":500,"lines":502}
+ * </pre>
+ */
+@Service
+public class BulkIngestionService {
+  private static Logger logger = LoggerFactory.getLogger(BulkIngestionService.class);
+
+  private final EventService eventService;
+  private final IngestionSettings settings;
+  private final ObjectReader eventReader;
+
+  @Autowired
+  public BulkIngestionService(EventService eventService, IngestionSettings settings, ObjectMapper objectMapper) {
+    this.eventService = eventService;
+    this.settings = settings;
+    this.eventReader = objectMapper.readerFor(Event.class);
+  }
+
+  /**
+   * @param tenantId
+   * @param orgId
+   * @param reader the events, one per line
+   * @param summary where the records are written
+   * @return the number of saved events
+   */
+  public long importEvents(final String tenantId, final String orgId, Reader reader, JsonGenerator summary) throws IOException {
+    LineReader lines = new LineReader(reader, settings.getMaxBulkLineLength());
+
+    List<Event> batch = new ArrayList<>(settings.getBatchSize());
+    List<Long> batchLines = new ArrayList<>(settings.getBatchSize());
+    long lineNumber = 0;
+    long accepted = 0;
+    summary.setRootValueSeparator(null);
+
+    try {
+      String line;
+      while ((line = lines.readLine()) != null) {
+        lineNumber++;
+        if (lines.isTruncated()) {
+          reject(summary, lineNumber, "Line longer than " + settings.getMaxBulkLineLength() + " characters");
+          continue;
+        }
+        if (StringUtils.isBlank(line))
+          continue;
+
+        try {
+          batch.add(eventReader.readValue(line));
+          batchLines.add(lineNumber);
+        } catch (JsonProcessingException e) {
+          reject(summary, lineNumber, e.getOriginalMessage());
+        } catch (RuntimeException e) {
+          reject(summary, lineNumber, String.valueOf(e.getMessage()));
+        }
+
+        if (batch.size() >= settings.getBatchSize()) {
+          accepted += save(tenantId, orgId, batch, batchLines, summary);
+        }
+      }
+
+      if (!batch.isEmpty()) {
+        accepted += save(tenantId, orgId, batch, batchLines, summary);
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.error("Bulk import stopped at line {} after saving {} events", lineNumber, accepted, e);
+      summary.writeStartObject();
+      summary.writeStringField("error", String.valueOf(e.getMessage()));
+      writeTotals(summary, accepted, lineNumber);
+      return accepted;
+    }
+
+    summary.writeStartObject();
+    writeTotals(summary, accepted, lineNumber);
+    return accepted;
+  }
+
+  private long save(String tenantId, String orgId, List<Event> batch, List<Long> batchLines, JsonGenerator summary) throws IOException {
+    BatchSaveResult result = eventService.saveAll(tenantId, orgId, batch);
+    for (Map.Entry<Integer, String> failure : result.getFailures().entrySet()) {
+      reject(summary, batchLines.get(failure.getKey()), failure.getValue());
+    }
+    summary.flush();
+
+    batch.clear();
+    batchLines.clear();
+    return result.getIds().size();
+  }
+
+  /**
+   * Reads lines ended by \n or \r\n, keeping at most the maximum length of each of them
+   */
+  private static final class LineReader {
+    private final Reader reader;
+    private final int maxLength;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean truncated;
+
+    LineReader(Reader reader, int maxLength) {
+      this.reader = reader;
+      this.maxLength = maxLength;
+    }
+
+    /**
+     * @return the next line, null at the end of the input
+     */
+    String readLine() throws IOException {
+      line.setLength(0);
+      truncated = false;
+      boolean read = false;
+
+      while (true) {
+        if (position == limit) {
+          limit = reader.read(buffer);
+          position = 0;
+          if (limit <= 0) {
+            limit = 0;
+            return read ? line() : null;
+          }
+        }
+        read = true;
+
+        int start = position;
+        while (position < limit && buffer[position] != '\n')
+          position++;
+        append(start, position);
+
+        if (position < limit) {
+          position++;
+          return line();
+        }
+      }
+    }
+
+    /**
+     * @return true when the last line read was longer than the maximum length and was cut
+     */
+    boolean isTruncated() {
+      return truncated;
+    }
+
+    private void append(int start, int end) {
+      int length = Math.min(end - start, maxLength + 1 - line.length());
+      if (length > 0)
+        line.append(buffer, start, length);
+      if (length < end - start)
+        truncated = true;
+    }
+
+    private String line() {
+      int length = line.length();
+      if (length > 0 && line.charAt(length - 1) == '\r')
+        line.setLength(length - 1);
+      if (line.length() > maxLength)
+        truncated = true;
+      return truncated ? "" : line.toString();
+    }
+  }
+
+  private static void reject(JsonGenerator summary, long lineNumber, String reason) throws IOException {
+    summary.writeStartObject();
+    summary.writeNumberField("line", lineNumber);
+    summary.writeStringField("reason", reason);
+    summary.writeEndObject();
+    summary.writeRaw('\n');
+  }
+
+  private static void writeTotals(JsonGenerator summary, long accepted, long lines) throws IOException {
+    summary.writeNumberField("accepted", accepted);
+    summary.writeNumberField("lines", lines);
+    summary.writeEndObject();
+    summary.writeRaw('\n');
+    summary.flush();
+  }
+}
@@ -0,0 +1,120 @@
+package org.apereo.openlrw.events.service;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import org.apereo.openlrw.common.StartupJobs;
+import org.apereo.openlrw.common.migration.MigrationMarkers;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Rebuilds the {@link ClassActivityRollups} of the orgs in the background, one rebuild at a time per org
+ * whatever the number of instances, the instance rebuilding an org holding the lease of its marker.
+ * Each start of the application rebuilds, after the other {@link StartupJobs}, the orgs having events whose counters are not complete yet,
+ * e.g. the orgs that had events before the counters existed.
+ */
+@Service
+public class ClassActivityRebuilds {
+  private static Logger logger = LoggerFactory.getLogger(ClassActivityRebuilds.class);
+
+  /** longer than the rebuild of the largest org, an instance stopped while rebuilding holding it until then */
+  private static final Duration LEASE = Duration.ofHours(2);
+
+  private final MongoOperations mongoOps;
+  private final ClassActivityRollups classActivityRollups;
+  private final ClassStatisticsCache classStatisticsCache;
+  private final MigrationMarkers migrationMarkers;
+  private final ExecutorService executorService;
+  private final ExecutorService startupExecutorService;
+
+  @Autowired
+  public ClassActivityRebuilds(MongoOperations mongoOperations, ClassActivityRollups classActivityRollups,
+                               ClassStatisticsCache classStatisticsCache, MigrationMarkers migrationMarkers, ExecutorService executorService,
+                               @Qualifier("startupExecutorService") ExecutorService startupExecutorService) {
+    this.mongoOps = mongoOperations;
+    this.classActivityRollups = classActivityRollups;
+    this.classStatisticsCache = classStatisticsCache;
+    this.migrationMarkers = migrationMarkers;
+    this.executorService = executorService;
+    this.startupExecutorService = startupExecutorService;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(StartupJobs.REBUILDS)
+  public void onApplicationReady() {
+    startupExecutorService.execute(() -> {
+      try {
+        rebuildIncomplete();
+      } catch (RuntimeException e) {
+        logger.error("Unable to rebuild the class activity", e);
+      }
+    });
+  }
+
+  /**
+   * Rebuilds, one after the other, the orgs having events whose counters are not complete
+   */
+  void rebuildIncomplete() {
+    MongoCollection<Document> events = mongoOps.getCollection(mongoOps.getCollectionName(MongoEvent.class));
+    for (String tenantId : events.distinct("tenantId", String.class).into(new ArrayList<>())) {
+      for (String orgId : events.distinct("organizationId", Filters.eq("tenantId", tenantId), String.class).into(new ArrayList<>())) {
+        if (tenantId != null && orgId != null && !classActivityRollups.isComplete(tenantId, orgId)
+            && migrationMarkers.lease(ClassActivityRollups.marker(tenantId, orgId), LEASE))
+          rebuild(tenantId, orgId);
+      }
+    }
+  }
+
+  /**
+   * Starts the rebuild of the counters of an org, after events were imported some other way
+   * or the user or class id conversion changed
+   *
+   * @param tenantId
+   * @param orgId
+   * @return false when the org is being rebuilt already, by this instance or another one
+   */
+  public boolean start(final String tenantId, final String orgId) {
+    if (!migrationMarkers.lease(ClassActivityRollups.marker(tenantId, orgId), LEASE))
+      return false;
+
+    try {
+      executorService.execute(() -> {
+        try {
+          rebuild(tenantId, orgId);
+        } catch (RuntimeException e) {
+          logger.error("Unable to rebuild the class activity of tenant {} and org {}", tenantId, orgId, e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      migrationMarkers.release(ClassActivityRollups.marker(tenantId, orgId));
+      throw e;
+    }
+    return true;
+  }
+
+  /**
+   * Rebuilds an org whose lease was taken, then releases it
+   */
+  private void rebuild(String tenantId, String orgId) {
+    try {
+      classActivityRollups.rebuild(tenantId, orgId);
+    } finally {
+      migrationMarkers.release(ClassActivityRollups.marker(tenantId, orgId));
+      classStatisticsCache.invalidateAll();
+    }
+  }
+}
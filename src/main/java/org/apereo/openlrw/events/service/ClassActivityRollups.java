@@ -0,0 +1,347 @@
+package org.apereo.openlrw.events.service;
+
+import org.apereo.openlrw.common.migration.EventFieldsMigration;
+import org.apereo.openlrw.common.migration.MigrationMarkers;
+import org.apereo.openlrw.events.service.repository.MongoClassActivity;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keeps the number of events of each class by day, user and action in {@link MongoClassActivity}
+ * documents, so the class statistics are read from a few documents per student and day instead of
+ * every event of the class.
+ *
+ * The counters are incremented when events are saved. They have to be rebuilt with
+ * {@link #rebuild(String, String)} after events were imported without going through
+ * {@link EventService}, or after a change of the user or class id conversion.
+ * The counters of an org are only complete once it was rebuilt, the events saved before the
+ * counters existed being missed until then, or once its first events were recorded, see
+ * {@link #isComplete(String, String)}.
+ */
+@Service
+public class ClassActivityRollups {
+  private static Logger logger = LoggerFactory.getLogger(ClassActivityRollups.class);
+
+  private static final DateTimeFormatter DAY = DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneOffset.UTC);
+  private static final int REBUILD_BATCH_SIZE = 1000;
+
+  private final MongoOperations mongoOps;
+  private final EventFieldsMigration eventFieldsMigration;
+  private final MigrationMarkers migrationMarkers;
+
+  @Autowired
+  public ClassActivityRollups(MongoOperations mongoOperations, EventFieldsMigration eventFieldsMigration, MigrationMarkers migrationMarkers) {
+    this.mongoOps = mongoOperations;
+    this.eventFieldsMigration = eventFieldsMigration;
+    this.migrationMarkers = migrationMarkers;
+  }
+
+  /**
+   * @param tenantId
+   * @param orgId
+   * @return true once the counters of the org count every event saved before
+   */
+  public boolean isComplete(final String tenantId, final String orgId) {
+    return migrationMarkers.isDone(marker(tenantId, orgId));
+  }
+
+  /**
+   * @return the name of the marker of the org, leased while it is rebuilt
+   */
+  static String marker(String tenantId, String orgId) {
+    return "class_activity:" + tenantId + ":" + orgId;
+  }
+
+  /**
+   * Adds saved events to the counters of their class. Events without a class are not counted.
+   * A failure is logged and does not fail the save, the counters are then fixed by a rebuild.
+   * The counters of an org whose only events are the recorded ones are complete.
+   *
+   * @param mongoEvents
+   */
+  public void record(Collection<MongoEvent> mongoEvents) {
+    if (count(mongoEvents))
+      markNewOrgsComplete(mongoEvents);
+  }
+
+  /**
+   * @return false when the counters could not be updated
+   */
+  private boolean count(Collection<MongoEvent> mongoEvents) {
+    Map<Key, Long> counts = new HashMap<>();
+    for (MongoEvent mongoEvent : mongoEvents) {
+      if (mongoEvent.getClassId() == null)
+        continue;
+
+      Key key = new Key(mongoEvent.getTenantId(), mongoEvent.getOrganizationId(), mongoEvent.getClassId(),
+          mongoEvent.isStudent(), day(mongoEvent.getEventTime()), mongoEvent.getUserId(), mongoEvent.getAction());
+      counts.merge(key, 1L, Long::sum);
+    }
+
+    if (counts.isEmpty())
+      return true;
+
+    try {
+      Date now = new Date();
+      BulkOperations bulkOperations = mongoOps.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoClassActivity.class);
+      for (Map.Entry<Key, Long> count : counts.entrySet()) {
+        bulkOperations.upsert(count.getKey().query(), new Update().inc("count", count.getValue()).set("updatedAt", now));
+      }
+      bulkOperations.execute();
+      return true;
+    } catch (Exception e) {
+      logger.warn("Unable to update the activity of {} classes, the class activity has to be rebuilt: {}", counts.size(), e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Marks the counters of the orgs not complete yet whose events are all in the recorded ones,
+   * e.g. an org whose first events were just saved. An org whose events are saved concurrently by
+   * several batches is left to a rebuild.
+   */
+  private void markNewOrgsComplete(Collection<MongoEvent> mongoEvents) {
+    Map<List<String>, Long> recorded = new HashMap<>();
+    for (MongoEvent mongoEvent : mongoEvents) {
+      recorded.merge(Arrays.asList(mongoEvent.getTenantId(), mongoEvent.getOrganizationId()), 1L, Long::sum);
+    }
+
+    for (Map.Entry<List<String>, Long> org : recorded.entrySet()) {
+      String tenantId = org.getKey().get(0);
+      String orgId = org.getKey().get(1);
+      if (tenantId == null || orgId == null || isComplete(tenantId, orgId))
+        continue;
+
+      try {
+        Query events = new Query(where("tenantId").is(tenantId).and("organizationId").is(orgId)).limit((int) (org.getValue() + 1));
+        if (mongoOps.count(events, MongoEvent.class) <= org.getValue())
+          migrationMarkers.markDone(marker(tenantId, orgId));
+      } catch (Exception e) {
+        logger.warn("Unable to tell whether the class activity of tenant {} and org {} is complete: {}", tenantId, orgId, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * @param tenantId
+   * @param orgId
+   * @param classId
+   * @param studentsOnly
+   * @return the counters of a class, empty when none were recorded
+   * @see #isComplete(String, String)
+   */
+  public List<MongoClassActivity> findForClass(final String tenantId, final String orgId, final String classId, boolean studentsOnly) {
+    Criteria criteria = where("tenantId").is(tenantId).and("organizationId").is(orgId).and("classId").is(classId);
+    if (studentsOnly)
+      criteria = criteria.and("student").is(true);
+
+    return mongoOps.find(new Query(criteria), MongoClassActivity.class);
+  }
+
+  /**
+   * Counts the events of a class from the raw events, for the orgs whose counters are not complete
+   *
+   * @param tenantId
+   * @param orgId
+   * @param classId
+   * @param studentsOnly
+   * @return the counters of a class, not saved
+   */
+  public List<MongoClassActivity> countForClass(final String tenantId, final String orgId, final String classId, boolean studentsOnly) {
+    EventFieldPaths paths = EventFieldPaths.of(eventFieldsMigration);
+    Criteria criteria = where("tenantId").is(tenantId).and("organizationId").is(orgId).and("classId").is(classId);
+    if (studentsOnly)
+      criteria = new Criteria().andOperator(criteria, paths.student(true));
+
+    List<MongoClassActivity> activities = new ArrayList<>();
+    for (Document group : mongoOps.aggregate(groupByActivity(criteria, paths), Document.class)) {
+      activities.add(toActivity(tenantId, orgId, studentsOnly, group));
+    }
+    return activities;
+  }
+
+  /**
+   * Replaces the counters of an org by counts made from its raw events, then marks them as complete.
+   * The classes are replaced one at a time, the counters of a class being overwritten before the ones
+   * the rebuild did not write are removed, so the statistics read meanwhile are never empty.
+   * The events of a class saved between its count and the write of its counters are lost by it.
+   *
+   * @param tenantId
+   * @param orgId
+   * @return the number of counters written
+   */
+  public long rebuild(final String tenantId, final String orgId) {
+    Date started = new Date();
+    EventFieldPaths paths = EventFieldPaths.of(eventFieldsMigration);
+    Criteria org = where("tenantId").is(tenantId).and("organizationId").is(orgId);
+
+    Criteria withClass = new Criteria().andOperator(org, where("classId").ne(null));
+    long written = rebuild(tenantId, orgId, true, new Criteria().andOperator(withClass, paths.student(true)), paths, started);
+    written += rebuild(tenantId, orgId, false, new Criteria().andOperator(withClass, paths.student(false)), paths, started);
+
+    // the classes left without events
+    mongoOps.remove(notWrittenSince(org, started), MongoClassActivity.class);
+
+    migrationMarkers.markDone(marker(tenantId, orgId));
+    logger.info("Rebuilt {} class activity counters for tenant {} and org {}", written, tenantId, orgId);
+    return written;
+  }
+
+  private long rebuild(String tenantId, String orgId, boolean student, Criteria criteria, EventFieldPaths paths, Date started) {
+    long written = 0;
+    BulkOperations bulkOperations = null;
+    int pending = 0;
+    String classId = null;
+
+    try (CloseableIterator<Document> groups = mongoOps.aggregateStream(groupByActivity(criteria, paths), Document.class)) {
+      while (groups.hasNext()) {
+        MongoClassActivity activity = toActivity(tenantId, orgId, student, groups.next());
+
+        if (classId != null && !classId.equals(activity.getClassId())) {
+          written += execute(bulkOperations, pending);
+          bulkOperations = null;
+          pending = 0;
+          removeNotWritten(tenantId, orgId, classId, student, started);
+        }
+        classId = activity.getClassId();
+
+        Key key = new Key(tenantId, orgId, classId, student, activity.getDay(), activity.getUserId(), activity.getAction());
+        if (bulkOperations == null)
+          bulkOperations = mongoOps.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoClassActivity.class);
+        bulkOperations.upsert(key.query(), new Update().set("count", activity.getCount()).set("updatedAt", started));
+
+        if (++pending == REBUILD_BATCH_SIZE) {
+          written += execute(bulkOperations, pending);
+          bulkOperations = null;
+          pending = 0;
+        }
+      }
+    }
+
+    written += execute(bulkOperations, pending);
+    if (classId != null)
+      removeNotWritten(tenantId, orgId, classId, student, started);
+    return written;
+  }
+
+  private static long execute(BulkOperations bulkOperations, int pending) {
+    if (bulkOperations == null)
+      return 0;
+    bulkOperations.execute();
+    return pending;
+  }
+
+  private void removeNotWritten(String tenantId, String orgId, String classId, boolean student, Date started) {
+    mongoOps.remove(notWrittenSince(where("tenantId").is(tenantId).and("organizationId").is(orgId)
+        .and("classId").is(classId).and("student").is(student), started), MongoClassActivity.class);
+  }
+
+  /**
+   * @return the counters neither rebuilt nor incremented since the start of a rebuild
+   */
+  private static Query notWrittenSince(Criteria criteria, Date started) {
+    return new Query(new Criteria().andOperator(criteria,
+        new Criteria().orOperator(where("updatedAt").lt(started), where("updatedAt").exists(false))));
+  }
+
+  private static TypedAggregation<MongoEvent> groupByActivity(Criteria criteria, EventFieldPaths paths) {
+    return newAggregation(MongoEvent.class,
+        match(criteria),
+        project("classId", "userId")
+            .and(paths.action()).as("action")
+            .and(DateOperators.DateToString.dateOf(paths.eventTime()).toString("%Y-%m-%d")).as("day"),
+        group("classId", "day", "userId", "action").count().as("count"),
+        sort(Sort.Direction.ASC, "classId"))
+        .withOptions(newAggregationOptions().allowDiskUse(true).build());
+  }
+
+  private static MongoClassActivity toActivity(String tenantId, String orgId, boolean student, Document group) {
+    Document key = group.get("_id", Document.class);
+    return new MongoClassActivity.Builder()
+        .withTenantId(tenantId)
+        .withOrganizationId(orgId)
+        .withClassId(key.getString("classId"))
+        .withStudent(student)
+        .withDay(key.getString("day"))
+        .withUserId(key.getString("userId"))
+        .withAction(key.getString("action"))
+        .withCount(((Number) group.get("count")).longValue())
+        .build();
+  }
+
+  static String day(Instant eventTime) {
+    return eventTime == null ? null : DAY.format(eventTime);
+  }
+
+  private static final class Key {
+    private final String tenantId;
+    private final String organizationId;
+    private final String classId;
+    private final boolean student;
+    private final String day;
+    private final String userId;
+    private final String action;
+
+    Key(String tenantId, String organizationId, String classId, boolean student, String day, String userId, String action) {
+      this.tenantId = tenantId;
+      this.organizationId = organizationId;
+      this.classId = classId;
+      this.student = student;
+      this.day = day;
+      this.userId = userId;
+      this.action = action;
+    }
+
+    Query query() {
+      return new Query(where("tenantId").is(tenantId)
+          .and("organizationId").is(organizationId)
+          .and("classId").is(classId)
+          .and("student").is(student)
+          .and("day").is(day)
+          .and("userId").is(userId)
+          .and("action").is(action));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Key))
+        return false;
+      Key other = (Key) obj;
+      return student == other.student
+          && Objects.equals(tenantId, other.tenantId)
+          && Objects.equals(organizationId, other.organizationId)
+          && Objects.equals(classId, other.classId)
+          && Objects.equals(day, other.day)
+          && Objects.equals(userId, other.userId)
+          && Objects.equals(action, other.action);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tenantId, organizationId, classId, student, day, userId, action);
+    }
+  }
+}
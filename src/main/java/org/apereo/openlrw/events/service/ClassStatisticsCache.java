@@ -0,0 +1,123 @@
+package org.apereo.openlrw.events.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apereo.openlrw.caliper.ClassEventStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the statistics of the classes whose dashboards are being looked at.
+ * Concurrent lookups of a statistics that is not cached wait for a single computation.
+ *
+ * The entries of a class are dropped when events are saved for it. A computation that started
+ * before events were saved for its class is not used once done, so the statistics never go back
+ * in time. Saves made by other instances of the application are only seen once the entry expires.
+ *
+ * @see ClassStatisticsCacheSettings
+ */
+@Service
+public class ClassStatisticsCache {
+  private final Cache<List<Object>, Stamped> statistics;
+
+  /** when the events of a class last changed, as a value of {@link #clock} */
+  private final Cache<List<Object>, Long> changes;
+  /** upper bound of the changes that were evicted from {@link #changes} */
+  private final AtomicLong evictedChanges = new AtomicLong();
+  private final AtomicLong clock = new AtomicLong();
+
+  @Autowired
+  public ClassStatisticsCache(ClassStatisticsCacheSettings settings) {
+    this.statistics = CacheBuilder.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .expireAfterWrite(settings.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+        .build();
+    // a change older than the statistics expiry can only concern statistics that expired already
+    this.changes = CacheBuilder.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .expireAfterWrite(settings.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+        .<List<Object>, Long>removalListener(removal -> {
+          if (removal.getCause() == RemovalCause.SIZE)
+            evictedChanges.accumulateAndGet(removal.getValue(), Math::max);
+        })
+        .build();
+  }
+
+  /**
+   * @param tenantId
+   * @param orgId
+   * @param classId
+   * @param studentsOnly
+   * @param loader computes the statistics when they are not cached
+   * @return the statistics of the class
+   */
+  public ClassEventStatistics get(final String tenantId, final String orgId, final String classId, boolean studentsOnly,
+                                  Supplier<ClassEventStatistics> loader) {
+    List<Object> key = Arrays.asList(tenantId, orgId, classId, studentsOnly);
+    List<Object> classKey = Arrays.asList(tenantId, orgId, classId);
+
+    Stamped stamped = load(key, loader);
+    if (stamped.stamp < lastChange(classKey)) {
+      statistics.invalidate(key);
+      stamped = load(key, loader);
+    }
+    return stamped.statistics;
+  }
+
+  /**
+   * Drops the statistics of a class whose events changed
+   *
+   * @param tenantId
+   * @param orgId
+   * @param classId
+   */
+  public void invalidate(final String tenantId, final String orgId, final String classId) {
+    changes.put(Arrays.asList(tenantId, orgId, classId), clock.incrementAndGet());
+    statistics.invalidate(Arrays.asList(tenantId, orgId, classId, true));
+    statistics.invalidate(Arrays.asList(tenantId, orgId, classId, false));
+  }
+
+  public void invalidateAll() {
+    evictedChanges.accumulateAndGet(clock.incrementAndGet(), Math::max);
+    statistics.invalidateAll();
+  }
+
+  private Stamped load(List<Object> key, Supplier<ClassEventStatistics> loader) {
+    try {
+      return statistics.get(key, () -> {
+        long stamp = clock.get();
+        return new Stamped(loader.get(), stamp);
+      });
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw e;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private long lastChange(List<Object> classKey) {
+    Long change = changes.getIfPresent(classKey);
+    return Math.max(change == null ? 0 : change, evictedChanges.get());
+  }
+
+  private static final class Stamped {
+    private final ClassEventStatistics statistics;
+    private final long stamp;
+
+    Stamped(ClassEventStatistics statistics, long stamp) {
+      this.statistics = statistics;
+      this.stamp = stamp;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package org.apereo.openlrw.events.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the {@link ClassStatisticsCache}
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matthews.cache.classStatistics")
+public class ClassStatisticsCacheSettings {
+
+  /**
+   * Maximum number of class statistics kept in memory, a class having one entry
+   * for its students and one for all its members.
+   */
+  private long maximumSize = 10000;
+
+  /**
+   * Time after which cached statistics are computed again, bounds how long the
+   * events saved by another instance of the application go unseen.
+   */
+  private long expireAfterWriteSeconds = 300;
+
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(long maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  public long getExpireAfterWriteSeconds() {
+    return expireAfterWriteSeconds;
+  }
+
+  public void setExpireAfterWriteSeconds(long expireAfterWriteSeconds) {
+    this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+  }
+}
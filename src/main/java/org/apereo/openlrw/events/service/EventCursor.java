@@ -0,0 +1,139 @@
+package org.apereo.openlrw.events.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.common.exception.BadRequestException;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Position in a list of events sorted from the most recent to the oldest, made of the event time
+ * and the id of the last event of a page. The next page is read from the index, right after that
+ * event, so it costs the same whatever its depth. The events without a time are sorted after the
+ * others, a page ending with one of them giving a cursor made of its id only.
+ *
+ * Given to the clients as an opaque token.
+ */
+public final class EventCursor {
+  /** order of the events paginated with a cursor */
+  public static final Sort ORDER = Sort.by(Sort.Direction.DESC, "eventTime", "id");
+  /** order of the events paginated with a cursor, from the oldest to the most recent */
+  public static final Sort ASCENDING_ORDER = Sort.by(Sort.Direction.ASC, "eventTime", "id");
+
+  private final Instant eventTime;
+  private final String id;
+
+  private EventCursor(Instant eventTime, String id) {
+    this.eventTime = eventTime;
+    this.id = id;
+  }
+
+  /**
+   * @param mongoEvent the last event of a page
+   * @return the cursor of the next page, null when the event was not saved
+   */
+  public static EventCursor after(MongoEvent mongoEvent) {
+    Instant eventTime = mongoEvent.getEventTime();
+    if (eventTime == null && mongoEvent.getEvent() != null)
+      eventTime = mongoEvent.getEvent().getEventTime();
+    if (mongoEvent.getId() == null)
+      return null;
+
+    return new EventCursor(eventTime, mongoEvent.getId());
+  }
+
+  /**
+   * @param event the last event of a page
+   * @return the cursor of the next page, null when the event was not saved
+   */
+  public static EventCursor after(RawEvent event) {
+    if (event.getId() == null)
+      return null;
+
+    return new EventCursor(event.getEventTime(), event.getId());
+  }
+
+  /**
+   * @param token
+   * @return the cursor
+   * @throws BadRequestException when the token was not made by {@link #encode()}
+   */
+  public static EventCursor decode(String token) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String millis = StringUtils.substringBefore(decoded, ":");
+      String id = StringUtils.substringAfter(decoded, ":");
+      if (StringUtils.isEmpty(id))
+        throw new IllegalArgumentException();
+
+      return new EventCursor(millis.isEmpty() ? null : Instant.ofEpochMilli(Long.parseLong(millis)), id);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("Invalid cursor");
+    }
+  }
+
+  public String encode() {
+    String decoded = (eventTime == null ? "" : String.valueOf(eventTime.toEpochMilli())) + ":" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return the events coming after this cursor in {@link #ORDER}
+   */
+  public Criteria criteria() {
+    return criteria(Sort.Direction.DESC);
+  }
+
+  /**
+   * @param direction DESC for {@link #ORDER}, ASC for {@link #ASCENDING_ORDER}
+   * @return the events coming after this cursor in that order
+   */
+  public Criteria criteria(Sort.Direction direction) {
+    return criteria(EventFieldPaths.TOP_LEVEL, direction);
+  }
+
+  /**
+   * @param paths of the event time the events are sorted on
+   * @param direction DESC for {@link EventFieldPaths#order(Sort.Direction)} descending, ASC for ascending
+   * @return the events coming after this cursor in that order
+   */
+  public Criteria criteria(EventFieldPaths paths, Sort.Direction direction) {
+    // null comes before any time in ascending order
+    if (eventTime == null) {
+      if (direction.isAscending())
+        return new Criteria().orOperator(
+            where(paths.eventTime()).ne(null),
+            where(paths.eventTime()).is(null).and("id").gt(id));
+
+      return where(paths.eventTime()).is(null).and("id").lt(id);
+    }
+
+    Date time = Date.from(eventTime);
+    if (direction.isAscending())
+      return new Criteria().orOperator(
+          where(paths.eventTime()).gt(time),
+          where(paths.eventTime()).is(time).and("id").gt(id));
+
+    return new Criteria().orOperator(
+        where(paths.eventTime()).lt(time),
+        where(paths.eventTime()).is(time).and("id").lt(id));
+  }
+
+  /**
+   * @return the time of the last event of the page, null when it has none
+   */
+  public Instant getEventTime() {
+    return eventTime;
+  }
+
+  public String getId() {
+    return id;
+  }
+}
@@ -0,0 +1,92 @@
+package org.apereo.openlrw.events.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.common.migration.EventFieldsMigration;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Writes the events of an org as newline-delimited JSON, one Caliper event per line, while they
+ * are read from a MongoDB cursor. Only one batch of the cursor is held in memory, whatever the
+ * number of events, and the output is flushed regularly so the client receives the first events
+ * right away. The events are written in no particular order.
+ */
+@Service
+public class EventExportService {
+  private static final int CURSOR_BATCH_SIZE = 1000;
+
+  private final MongoOperations mongoOps;
+  private final ObjectWriter eventWriter;
+  private final EventFieldsMigration eventFieldsMigration;
+
+  @Autowired
+  public EventExportService(MongoOperations mongoOperations, ObjectMapper objectMapper, EventFieldsMigration eventFieldsMigration) {
+    this.mongoOps = mongoOperations;
+    this.eventFieldsMigration = eventFieldsMigration;
+    this.eventWriter = objectMapper.writerFor(Event.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  /**
+   * @param tenantId
+   * @param orgId
+   * @param from (optional) events at or after this time
+   * @param to (optional) events before this time
+   * @param edAppId (optional)
+   * @param classId (optional)
+   * @param out where the events are written, not closed
+   * @return the number of exported events
+   */
+  public long export(final String tenantId, final String orgId, Instant from, Instant to, String edAppId, String classId, OutputStream out) throws IOException {
+    EventFieldPaths paths = EventFieldPaths.of(eventFieldsMigration);
+    Criteria criteria = where("tenantId").is(tenantId).and("organizationId").is(orgId);
+    if (from != null || to != null) {
+      Criteria eventTime = criteria.and(paths.eventTime());
+      if (from != null)
+        eventTime.gte(Date.from(from));
+      if (to != null)
+        eventTime.lt(Date.from(to));
+    }
+    if (StringUtils.isNotBlank(edAppId))
+      criteria.and(paths.edAppId()).is(edAppId);
+    if (StringUtils.isNotBlank(classId))
+      criteria.and("classId").is(classId);
+
+    Query query = new Query(criteria).cursorBatchSize(CURSOR_BATCH_SIZE).noCursorTimeout();
+    query.fields().include("event");
+
+    long exported = 0;
+    try (CloseableIterator<MongoEvent> mongoEvents = mongoOps.stream(query, MongoEvent.class);
+         JsonGenerator generator = eventWriter.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+
+      while (mongoEvents.hasNext()) {
+        eventWriter.writeValue(generator, mongoEvents.next().getEvent());
+        generator.writeRaw('\n');
+
+        if (++exported % CURSOR_BATCH_SIZE == 1)
+          generator.flush();
+      }
+      generator.flush();
+    }
+
+    return exported;
+  }
+}
@@ -0,0 +1,112 @@
+package org.apereo.openlrw.events.service;
+
+import org.apereo.openlrw.common.migration.EventFieldsMigration;
+import org.apereo.openlrw.events.service.repository.EventSummary;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Paths of the fields the events are filtered and sorted on. They are the fields copied to the top
+ * of {@link MongoEvent} once {@link EventFieldsMigration} is complete, the fields of the Caliper
+ * event until then, so the events saved before the copies existed are not missed.
+ */
+public final class EventFieldPaths {
+  public static final EventFieldPaths TOP_LEVEL = new EventFieldPaths("eventTime", "action", "eventType", "edAppId", "student", false);
+  public static final EventFieldPaths NESTED = new EventFieldPaths("event.eventTime", "event.action", "event.type", "event.edApp.id", "event.membership.roles", true);
+
+  private final String eventTime;
+  private final String action;
+  private final String eventType;
+  private final String edAppId;
+  private final String student;
+  private final boolean studentByRoles;
+
+  private EventFieldPaths(String eventTime, String action, String eventType, String edAppId, String student, boolean studentByRoles) {
+    this.eventTime = eventTime;
+    this.action = action;
+    this.eventType = eventType;
+    this.edAppId = edAppId;
+    this.student = student;
+    this.studentByRoles = studentByRoles;
+  }
+
+  /**
+   * @param eventFieldsMigration
+   * @return the paths to use as long as the migration is not complete
+   */
+  public static EventFieldPaths of(EventFieldsMigration eventFieldsMigration) {
+    return eventFieldsMigration.isComplete() ? TOP_LEVEL : NESTED;
+  }
+
+  public String eventTime() {
+    return eventTime;
+  }
+
+  public String action() {
+    return action;
+  }
+
+  public String edAppId() {
+    return edAppId;
+  }
+
+  /**
+   * @param isStudent
+   * @return the events sent with one of the {@link EventService#STUDENT_ROLES_LIST}, or the others
+   */
+  public Criteria student(boolean isStudent) {
+    if (studentByRoles)
+      return isStudent ? where(student).in(EventService.STUDENT_ROLES_LIST) : where(student).nin(EventService.STUDENT_ROLES_LIST);
+    return isStudent ? where(student).is(true) : where(student).ne(true);
+  }
+
+  /**
+   * @param direction
+   * @return the order of the events paginated with an {@link EventCursor}
+   */
+  public Sort order(Sort.Direction direction) {
+    return Sort.by(direction, eventTime, "id");
+  }
+
+  /**
+   * @param query
+   * @return the query, only fetching the fields of an {@link EventSummary}
+   */
+  public Query summaryFields(Query query) {
+    query.fields().include("userId").include("classId")
+        .include(eventTime).include(action).include(eventType).include(edAppId).include(student);
+    return query;
+  }
+
+  /**
+   * @param document an event read with {@link #summaryFields(Query)}
+   * @return its summary
+   */
+  public EventSummary summary(Document document) {
+    Date time = document.getEmbedded(path(eventTime), Date.class);
+    return new EventSummary(String.valueOf(document.get("_id")), document.getString("userId"), document.getString("classId"),
+        document.getEmbedded(path(action), String.class), document.getEmbedded(path(eventType), String.class),
+        time == null ? null : time.toInstant(), document.getEmbedded(path(edAppId), String.class), isStudent(document));
+  }
+
+  private boolean isStudent(Document document) {
+    if (!studentByRoles)
+      return Boolean.TRUE.equals(document.getEmbedded(path(student), Boolean.class));
+
+    List<?> roles = document.getEmbedded(path(student), List.class);
+    return roles != null && roles.stream().anyMatch(EventService.STUDENT_ROLES_LIST::contains);
+  }
+
+  private static List<String> path(String field) {
+    return Arrays.asList(field.split("\\."));
+  }
+}
@@ -0,0 +1,10 @@
+package org.apereo.openlrw.events.service;
+
+/**
+ * Gives an id to the events received without one
+ *
+ * @see IngestionSettings#getIdFormat()
+ */
+public interface EventIdGenerator {
+  String nextId();
+}
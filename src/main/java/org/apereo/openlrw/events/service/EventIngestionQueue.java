@@ -0,0 +1,203 @@
+package org.apereo.openlrw.events.service;
+
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.events.caliper.exception.IngestionRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Bounded in-memory queue between the Caliper endpoints and MongoDB.
+ * Events are given their id when they are accepted, then a pool of writer workers
+ * drains the queue into bulk inserts, a batch being written once it is full or once
+ * its first event waited long enough. A batch that cannot be written, such as when MongoDB is
+ * unreachable, is tried again with an increasing delay until it is, only the events not saved by
+ * the failed attempts being inserted. The queue capacity covers the events waiting and the
+ * ones being written, so the endpoints reject the envelopes while MongoDB is unavailable.
+ * The workers run on their own pool, which they keep until shutdown.
+ *
+ * @see IngestionSettings
+ */
+@Service
+public class EventIngestionQueue {
+  private static Logger logger = LoggerFactory.getLogger(EventIngestionQueue.class);
+
+  private final EventService eventService;
+  private final IngestionSettings settings;
+  private final ExecutorService executorService;
+
+  private final BlockingQueue<QueuedEvent> queue = new LinkedBlockingQueue<>();
+  private final Semaphore capacity;
+  private CountDownLatch stoppedWorkers;
+  private volatile boolean running;
+
+  @Autowired
+  public EventIngestionQueue(EventService eventService, IngestionSettings settings, @Qualifier("ingestionExecutorService") ExecutorService executorService) {
+    this.eventService = eventService;
+    this.settings = settings;
+    this.executorService = executorService;
+    this.capacity = new Semaphore(settings.getQueueCapacity());
+  }
+
+  @PostConstruct
+  public void start() {
+    if (settings.getMode() != IngestionSettings.Mode.QUEUE)
+      return;
+
+    running = true;
+    stoppedWorkers = new CountDownLatch(settings.getWorkers());
+    for (int i = 0; i < settings.getWorkers(); i++) {
+      executorService.execute(this::drain);
+    }
+    logger.info("Started {} event writer workers, queue capacity {}", settings.getWorkers(), settings.getQueueCapacity());
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (!running)
+      return;
+
+    running = false;
+    if (!stoppedWorkers.await(30, TimeUnit.SECONDS))
+      logger.warn("{} events were still queued at shutdown", queue.size());
+  }
+
+  /**
+   * Accepts all the events of an envelope or none of them.
+   *
+   * @param tenantId
+   * @param orgId
+   * @param events
+   * @return the ids given to the events
+   * @throws IngestionRejectedException when the queue cannot hold the events
+   */
+  public List<String> enqueue(final String tenantId, final String orgId, final List<Event> events) {
+    if (!running || !capacity.tryAcquire(events.size()))
+      throw new IngestionRejectedException("Event queue is full", settings.getRetryAfterSeconds());
+
+    List<QueuedEvent> queuedEvents = new ArrayList<>(events.size());
+    try {
+      for (Event event : events) {
+        queuedEvents.add(new QueuedEvent(tenantId, orgId, eventService.prepare(event)));
+      }
+    } catch (RuntimeException e) {
+      capacity.release(events.size());
+      throw e;
+    }
+
+    List<String> ids = new ArrayList<>(events.size());
+    for (QueuedEvent queuedEvent : queuedEvents) {
+      queue.add(queuedEvent);
+      ids.add(queuedEvent.event.getId());
+    }
+
+    return ids;
+  }
+
+  public int size() {
+    return queue.size();
+  }
+
+  private void drain() {
+    try {
+      while (running || !queue.isEmpty()) {
+        List<QueuedEvent> batch = nextBatch();
+        if (!batch.isEmpty()) {
+          try {
+            write(batch);
+          } finally {
+            // the events being written still count, so the endpoints push back while MongoDB is slow
+            capacity.release(batch.size());
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      stoppedWorkers.countDown();
+    }
+  }
+
+  private List<QueuedEvent> nextBatch() throws InterruptedException {
+    List<QueuedEvent> batch = new ArrayList<>(settings.getBatchSize());
+    QueuedEvent first = queue.poll(settings.getBatchWaitMillis(), TimeUnit.MILLISECONDS);
+    if (first == null)
+      return batch;
+
+    batch.add(first);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getBatchWaitMillis());
+    while (batch.size() < settings.getBatchSize()) {
+      long remaining = deadline - System.nanoTime();
+      QueuedEvent next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+      if (next == null)
+        break;
+      batch.add(next);
+    }
+
+    return batch;
+  }
+
+  private void write(List<QueuedEvent> batch) throws InterruptedException {
+    Map<List<String>, List<Event>> eventsByOrg = new LinkedHashMap<>();
+    for (QueuedEvent queuedEvent : batch) {
+      eventsByOrg.computeIfAbsent(Arrays.asList(queuedEvent.tenantId, queuedEvent.orgId), key -> new ArrayList<>())
+          .add(queuedEvent.event);
+    }
+
+    for (Map.Entry<List<String>, List<Event>> entry : eventsByOrg.entrySet()) {
+      List<Event> events = entry.getValue();
+      try {
+        save(entry.getKey().get(0), entry.getKey().get(1), events);
+      } catch (InterruptedException e) {
+        logger.error("{} accepted events were not written before the shutdown", events.size());
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Saves the events of an org, trying again as long as the whole batch fails
+   */
+  private void save(String tenantId, String orgId, List<Event> events) throws InterruptedException {
+    long delay = Math.max(settings.getBatchWaitMillis(), 1);
+    for (boolean retry = false; ; retry = true) {
+      Exception batchError;
+      try {
+        // part of the batch may have been inserted by a failed attempt
+        BatchSaveResult result = retry ? eventService.saveAllIfAbsent(tenantId, orgId, events) : eventService.saveAll(tenantId, orgId, events);
+        batchError = result.getBatchError();
+        if (batchError == null) {
+          for (Map.Entry<Integer, String> failure : result.getFailures().entrySet()) {
+            logger.error("Unable to save event {}: {}", events.get(failure.getKey()), failure.getValue());
+          }
+          return;
+        }
+      } catch (Exception e) {
+        batchError = e;
+      }
+
+      logger.warn("Unable to save a batch of {} events, trying again in {} ms: {}", events.size(), delay, batchError.getMessage());
+      Thread.sleep(delay);
+      delay = Math.min(delay * 2, settings.getReplayRetryMillis());
+    }
+  }
+
+  private static class QueuedEvent {
+    private final String tenantId;
+    private final String orgId;
+    private final Event event;
+
+    private QueuedEvent(String tenantId, String orgId, Event event) {
+      this.tenantId = tenantId;
+      this.orgId = orgId;
+      this.event = event;
+    }
+  }
+}
@@ -0,0 +1,364 @@
+package org.apereo.openlrw.events.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.bson.*;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes stored documents to a Jackson generator as if their entity had been read by the
+ * {@link MongoConverter} and serialized by Jackson, without reading the entity.
+ *
+ * The properties are written in the order, with the names, inclusion rules and serializers of
+ * the Jackson bean serializer of their type, their values being read from the document keys the
+ * converter maps them to. Simple values and collections of simple values are converted like the
+ * converter does and written with their Jackson serializer.
+ *
+ * A type whose bean serializer does more than that (type ids, object ids, any getters, filters,
+ * custom serializers, properties that are not stored, inclusion rules other than non null,
+ * non absent or non empty...) and a document holding a subtype are read by the converter and
+ * serialized by Jackson, only for that part of the document.
+ *
+ * The plans of the types are kept for the serialization configs last used, a type whose plan
+ * failed to be made being planned again the next time.
+ */
+@Component
+public class EventJsonTranscoder {
+  private static Logger logger = LoggerFactory.getLogger(EventJsonTranscoder.class);
+
+  private static final int MAXIMUM_CONFIGS = 16;
+
+  private final MongoConverter converter;
+  private final DocumentCodec documentCodec = new DocumentCodec();
+  /** the configs are compared by identity, a copy made for a single write being dropped once collected */
+  private final Cache<SerializationConfig, Map<Class<?>, BeanPlan>> plans = CacheBuilder.newBuilder()
+      .weakKeys()
+      .maximumSize(MAXIMUM_CONFIGS)
+      .build();
+
+  @Autowired
+  public EventJsonTranscoder(MongoConverter mongoConverter) {
+    this.converter = mongoConverter;
+  }
+
+  /**
+   * @param document a stored document of the type
+   * @param type the entity type
+   * @param generator
+   * @param provider
+   */
+  public void write(BsonDocument document, Class<?> type, JsonGenerator generator, SerializerProvider provider) throws IOException {
+    BeanPlan plan = plan(type, provider);
+    if (plan.properties == null || provider.getActiveView() != null || document.containsKey("_class")) {
+      writeRead(document, type, generator, provider);
+      return;
+    }
+
+    Object[] values = new Object[plan.properties.length];
+    try {
+      for (int i = 0; i < values.length; i++) {
+        values[i] = plan.properties[i].value(document);
+      }
+    } catch (RuntimeException e) {
+      logger.debug("Reading a {} to write it: {}", type.getName(), e.getMessage());
+      writeRead(document, type, generator, provider);
+      return;
+    }
+
+    generator.writeStartObject();
+    for (int i = 0; i < values.length; i++) {
+      plan.properties[i].write(values[i], generator, provider);
+    }
+    generator.writeEndObject();
+  }
+
+  /**
+   * Writes the entity read from the document the way Jackson does
+   */
+  private void writeRead(BsonDocument document, Class<?> type, JsonGenerator generator, SerializerProvider provider) throws IOException {
+    Object value = converter.read(type, documentCodec.decode(document.asBsonReader(), DecoderContext.builder().build()));
+    JsonSerializer<Object> serializer = provider.findValueSerializer(value.getClass());
+    TypeSerializer typeSerializer = provider.findTypeSerializer(provider.constructType(type));
+    if (typeSerializer == null)
+      serializer.serialize(value, generator, provider);
+    else
+      serializer.serializeWithType(value, generator, provider, typeSerializer);
+  }
+
+  private BeanPlan plan(Class<?> type, SerializerProvider provider) {
+    Map<Class<?>, BeanPlan> configPlans = plans.asMap().computeIfAbsent(provider.getConfig(), c -> new ConcurrentHashMap<>());
+    BeanPlan plan = configPlans.get(type);
+    if (plan != null)
+      return plan;
+
+    // not computeIfAbsent, the plans of nested types are made while writing
+    PropertyPlan[] properties;
+    try {
+      properties = properties(type, provider);
+    } catch (Exception e) {
+      // may not happen again, e.g. a serializer failing to resolve
+      logger.debug("{} is written by reading it this time: {}", type.getName(), e.getMessage());
+      return new BeanPlan(null);
+    }
+
+    if (properties == null)
+      logger.info("{} is written by reading it", type.getName());
+    plan = new BeanPlan(properties);
+    configPlans.putIfAbsent(type, plan);
+    return plan;
+  }
+
+  /**
+   * @return the plans of the properties, null when the type cannot be written from its documents
+   */
+  private PropertyPlan[] properties(Class<?> type, SerializerProvider provider) throws Exception {
+    JavaType javaType = provider.constructType(type);
+    JsonSerializer<Object> serializer = provider.findValueSerializer(javaType);
+    if (serializer.getClass() != BeanSerializer.class || serializer.usesObjectId()
+        || provider.findTypeSerializer(javaType) != null)
+      return null;
+
+    BeanDescription description = provider.getConfig().introspect(javaType);
+    if (description.findAnyGetter() != null
+        || provider.getConfig().getAnnotationIntrospector().findFilterId(description.getClassInfo()) != null)
+      return null;
+
+    MongoPersistentEntity<?> entity = converter.getMappingContext().getPersistentEntity(type);
+    if (entity == null)
+      return null;
+
+    JsonInclude.Value beanInclusion = JsonInclude.Value.merge(description.findPropertyInclusion(JsonInclude.Value.empty()),
+        provider.getConfig().getDefaultPropertyInclusion(type, JsonInclude.Value.empty()));
+
+    PersistentPropertyAccessor<?> absent = absentValues(type, entity);
+
+    List<PropertyPlan> properties = new ArrayList<>();
+    for (Iterator<PropertyWriter> writers = serializer.properties(); writers.hasNext(); ) {
+      PropertyWriter writer = writers.next();
+      if (writer.getClass() != BeanPropertyWriter.class)
+        return null;
+
+      BeanPropertyWriter beanWriter = (BeanPropertyWriter) writer;
+      MongoPersistentProperty property = persistentProperty(entity, beanWriter);
+      if (property == null)
+        return null;
+
+      // documents without type are read as maps into Object
+      boolean bean = property.isEntity() && property.getActualType() != Object.class;
+      if (bean && (property.isCollectionLike() || property.isMap()))
+        return null;
+
+      Boolean suppressEmpty = suppressEmpty(beanWriter, beanInclusion, provider);
+      if (suppressEmpty == null)
+        return null;
+
+      if (bean && (beanWriter.getTypeSerializer() != null
+          || beanWriter.hasSerializer() && beanWriter.getSerializer().getClass() != BeanSerializer.class))
+        return null;
+
+      Object absentValue = absent == null ? defaultValue(property.getType()) : absent.getProperty(property);
+      properties.add(new PropertyPlan(beanWriter, property, suppressEmpty, bean, absentValue));
+    }
+    return properties.toArray(new PropertyPlan[0]);
+  }
+
+  /**
+   * Resolves the inclusion of a property the way the Jackson bean serializer factory does: the inclusion
+   * of its bean, then the config overrides of its type, then its annotations.
+   *
+   * @return whether the empty values are left out, null when the inclusion is not supported or
+   * does not match how the writer handles nulls
+   */
+  private static Boolean suppressEmpty(BeanPropertyWriter writer, JsonInclude.Value beanInclusion, SerializerProvider provider) {
+    Class<?> propertyType = writer.getType().getRawClass();
+    JsonInclude.Value inclusion = provider.getConfig().getDefaultInclusion(propertyType, propertyType, beanInclusion);
+    AnnotationIntrospector introspector = provider.getConfig().getAnnotationIntrospector();
+    if (introspector != null && writer.getMember() != null)
+      inclusion = inclusion.withOverrides(introspector.findPropertyInclusion(writer.getMember()));
+
+    switch (inclusion.getValueInclusion()) {
+      case ALWAYS:
+      case USE_DEFAULTS:
+        return writer.willSuppressNulls() ? null : Boolean.FALSE;
+      case NON_NULL:
+        return writer.willSuppressNulls() ? Boolean.FALSE : null;
+      case NON_ABSENT:
+        // absent references are left out like empty values
+        if (writer.getType().isReferenceType())
+          return null;
+        return writer.willSuppressNulls() ? Boolean.FALSE : null;
+      case NON_EMPTY:
+        return writer.willSuppressNulls() ? Boolean.TRUE : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return the values the converter gives to the properties missing from a document
+   */
+  private PersistentPropertyAccessor<?> absentValues(Class<?> type, MongoPersistentEntity<?> entity) {
+    try {
+      return entity.getPropertyAccessor(converter.read(type, new Document()));
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+  }
+
+  private static MongoPersistentProperty persistentProperty(MongoPersistentEntity<?> entity, BeanPropertyWriter writer) {
+    Object member = writer.getMember().getMember();
+    for (MongoPersistentProperty property : entity) {
+      if (member.equals(property.getField()) || member.equals(property.getGetter()))
+        return property.isWritable() ? property : null;
+    }
+    return null;
+  }
+
+  private static final class BeanPlan {
+    private final PropertyPlan[] properties;
+
+    BeanPlan(PropertyPlan[] properties) {
+      this.properties = properties;
+    }
+  }
+
+  private final class PropertyPlan {
+    private final BeanPropertyWriter writer;
+    private final String key;
+    private final Class<?> type;
+    private final TypeDescriptor typeDescriptor;
+    private final boolean suppressEmpty;
+    private final boolean bean;
+    private final Object absent;
+
+    PropertyPlan(BeanPropertyWriter writer, MongoPersistentProperty property, boolean suppressEmpty, boolean bean, Object absent) {
+      this.writer = writer;
+      this.key = property.getFieldName();
+      this.type = property.getType();
+      this.typeDescriptor = typeDescriptor(property);
+      this.suppressEmpty = suppressEmpty;
+      this.bean = bean;
+      this.absent = absent;
+    }
+
+    /**
+     * @return the value of the property, its document for an entity
+     * @throws RuntimeException when the value cannot be converted the way the converter does
+     */
+    Object value(BsonDocument document) {
+      BsonValue value = document.get(key);
+      if (value == null)
+        return absent;
+      if (value.isNull())
+        return defaultValue(type);
+
+      if (bean) {
+        if (!value.isDocument())
+          throw new IllegalArgumentException(key + " is not a document");
+        return value.asDocument();
+      }
+
+      Object simple = simpleValue(value);
+      return converter.getConversionService().convert(simple, TypeDescriptor.forObject(simple), typeDescriptor);
+    }
+
+    void write(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+      if (value == null) {
+        if (writer.hasNullSerializer()) {
+          generator.writeFieldName(writer.getSerializedName());
+          provider.findNullValueSerializer(writer).serialize(null, generator, provider);
+        }
+        return;
+      }
+
+      if (value instanceof BsonDocument) {
+        generator.writeFieldName(writer.getSerializedName());
+        EventJsonTranscoder.this.write((BsonDocument) value, type, generator, provider);
+        return;
+      }
+
+      JsonSerializer<Object> serializer = writer.hasSerializer() ? writer.getSerializer() : provider.findValueSerializer(value.getClass(), writer);
+      if (suppressEmpty && serializer.isEmpty(provider, value))
+        return;
+
+      generator.writeFieldName(writer.getSerializedName());
+      if (writer.getTypeSerializer() == null)
+        serializer.serialize(value, generator, provider);
+      else
+        serializer.serializeWithType(value, generator, provider, writer.getTypeSerializer());
+    }
+
+    private Object simpleValue(BsonValue value) {
+      switch (value.getBsonType()) {
+        case NULL:
+        case UNDEFINED:
+          return null;
+        case STRING:
+          return value.asString().getValue();
+        case INT32:
+          return value.asInt32().getValue();
+        case INT64:
+          return value.asInt64().getValue();
+        case DOUBLE:
+          return value.asDouble().getValue();
+        case BOOLEAN:
+          return value.asBoolean().getValue();
+        case DATE_TIME:
+          return new Date(value.asDateTime().getValue());
+        case DECIMAL128:
+          return value.asDecimal128().getValue();
+        case OBJECT_ID:
+          return value.asObjectId().getValue();
+        case ARRAY:
+          List<Object> values = new ArrayList<>();
+          for (BsonValue element : value.asArray()) {
+            values.add(simpleValue(element));
+          }
+          return values;
+        case DOCUMENT:
+          if (value.asDocument().containsKey("_class"))
+            throw new IllegalArgumentException(key + " holds a typed document");
+          return documentCodec.decode(value.asDocument().asBsonReader(), DecoderContext.builder().build());
+        default:
+          throw new IllegalArgumentException(key + " holds a " + value.getBsonType());
+      }
+    }
+  }
+
+  private static TypeDescriptor typeDescriptor(MongoPersistentProperty property) {
+    if (property.getField() != null)
+      return new TypeDescriptor(property.getField());
+    return TypeDescriptor.valueOf(property.getType());
+  }
+}
@@ -0,0 +1,33 @@
+package org.apereo.openlrw.events.service;
+
+import java.util.List;
+
+/**
+ * A page of events and the cursor of the page after it
+ *
+ * @param <T> the type the events are read as
+ */
+public class EventPage<T> {
+  private final List<T> events;
+  private final EventCursor next;
+
+  public EventPage(List<T> events, EventCursor next) {
+    this.events = events;
+    this.next = next;
+  }
+
+  public List<T> getEvents() {
+    return events;
+  }
+
+  /**
+   * @return the cursor of the next page, null on the last page
+   */
+  public EventCursor getNext() {
+    return next;
+  }
+
+  public boolean isEmpty() {
+    return events.isEmpty();
+  }
+}
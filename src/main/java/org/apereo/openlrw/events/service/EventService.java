@@ -1,25 +1,37 @@
 package org.apereo.openlrw.events.service;
 
 import com.google.common.collect.ImmutableList;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
 import org.apache.commons.lang3.StringUtils;
 import org.apereo.openlrw.caliper.Agent;
+import org.apereo.openlrw.common.CaseInsensitiveKey;
+import org.apereo.openlrw.common.migration.EventFieldsMigration;
 import org.apereo.openlrw.events.caliper.exception.EventNotFoundException;
 import org.apereo.openlrw.events.caliper.service.ClassIdConverter;
 import org.apereo.openlrw.events.caliper.service.UserIdConverter;
+import org.apereo.openlrw.events.service.repository.EventSummary;
+import org.apereo.openlrw.events.service.repository.MongoClassActivity;
 import org.apereo.openlrw.events.service.repository.MongoEvent;
 import org.apereo.openlrw.events.service.repository.MongoEventRepository;
 import org.apereo.openlrw.common.exception.BadRequestException;
 import org.apereo.openlrw.oneroster.service.repository.MongoEnrollmentRepository;
 import org.apereo.openlrw.tenant.Tenant;
-import org.apereo.openlrw.tenant.service.repository.TenantRepository;
+import org.apereo.openlrw.tenant.service.TenantCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.apereo.model.oneroster.Role;
+import org.bson.Document;
 import org.apereo.model.oneroster.Status;
 import org.apereo.openlrw.caliper.ClassEventStatistics;
 import org.apereo.openlrw.caliper.Event;
@@ -38,27 +50,42 @@ import static org.springframework.data.mongodb.core.query.Criteria.where;
  */
 @Service
 public class EventService {
-  private final TenantRepository tenantRepository;
+  private final TenantCache tenantCache;
   private final MongoEventRepository mongoEventRepository;
   private final UserIdConverter userIdConverter;
   private final ClassIdConverter classIdConverter;
   private final MongoOperations mongoOps;
   private final MongoEnrollmentRepository mongoEnrollmentRepository;
+  private final EventIdGenerator eventIdGenerator;
+  private final ClassActivityRollups classActivityRollups;
+  private final ClassStatisticsCache classStatisticsCache;
+  private final RawEventReader rawEventReader;
+  private final EventFieldsMigration eventFieldsMigration;
 
   @Autowired
   public EventService(
-          TenantRepository tenantRepository,
+          TenantCache tenantCache,
           MongoEventRepository mongoEventRepository,
           UserIdConverter userIdConverter,
           ClassIdConverter classIdConverter,
           MongoOperations mongoOperations,
-          MongoEnrollmentRepository mongoEnrollmentRepository) {
-    this.tenantRepository = tenantRepository;
+          MongoEnrollmentRepository mongoEnrollmentRepository,
+          EventIdGenerator eventIdGenerator,
+          ClassActivityRollups classActivityRollups,
+          ClassStatisticsCache classStatisticsCache,
+          RawEventReader rawEventReader,
+          EventFieldsMigration eventFieldsMigration) {
+    this.tenantCache = tenantCache;
     this.mongoEventRepository = mongoEventRepository;
     this.userIdConverter = userIdConverter;
     this.classIdConverter = classIdConverter;
     this.mongoOps = mongoOperations;
     this.mongoEnrollmentRepository = mongoEnrollmentRepository;
+    this.eventIdGenerator = eventIdGenerator;
+    this.classActivityRollups = classActivityRollups;
+    this.classStatisticsCache = classStatisticsCache;
+    this.rawEventReader = rawEventReader;
+    this.eventFieldsMigration = eventFieldsMigration;
   }
   
   public static final ImmutableList<String> STUDENT_ROLES_LIST =
@@ -74,7 +101,184 @@ public class EventService {
    * @return
    */
   public String save(String tenantId, String orgId, Event toBeSaved) {
+    toBeSaved = prepare(toBeSaved);
 
+    Tenant tenant = tenantCache.findById(tenantId).orElse(null);
+
+    MongoEvent saved = mongoEventRepository.save(toMongoEvent(tenant, tenantId, orgId, toBeSaved));
+    saved(Collections.singletonList(saved));
+    return saved.getEvent().getId();
+  }
+
+  /**
+   * Save a batch of events with a single unordered bulk insert.
+   * The tenant is resolved once for the whole batch, an event that cannot be converted
+   * or inserted is reported as a failure without preventing the others from being saved.
+   *
+   * @param tenantId
+   * @param orgId
+   * @param events
+   * @return the ids of the saved events and the failures, indexed by position in the batch
+   */
+  public BatchSaveResult saveAll(String tenantId, String orgId, List<Event> events) {
+    BatchSaveResult result = new BatchSaveResult();
+
+    if (events == null || events.isEmpty())
+      return result;
+
+    Tenant tenant = tenantCache.findById(tenantId).orElse(null);
+
+    String[] ids = new String[events.size()];
+    List<MongoEvent> mongoEvents = new ArrayList<>(events.size());
+    List<Integer> positions = new ArrayList<>(events.size());
+
+    for (int i = 0; i < events.size(); i++) {
+      try {
+        Event event = prepare(events.get(i));
+        mongoEvents.add(toMongoEvent(tenant, tenantId, orgId, event));
+        positions.add(i);
+        ids[i] = event.getId();
+      } catch (Exception e) {
+        result.addFailure(i, String.valueOf(e.getMessage()));
+      }
+    }
+
+    if (!mongoEvents.isEmpty()) {
+      try {
+        BulkOperations bulkOperations = mongoOps.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoEvent.class);
+        bulkOperations.insert(mongoEvents);
+        bulkOperations.execute();
+        saved(mongoEvents);
+      } catch (BulkOperationException e) {
+        Set<Integer> failed = new HashSet<>();
+        for (BulkWriteError error : e.getErrors()) {
+          int index = positions.get(error.getIndex());
+          ids[index] = null;
+          result.addFailure(index, error.getMessage());
+          failed.add(error.getIndex());
+        }
+
+        List<MongoEvent> inserted = new ArrayList<>(mongoEvents.size() - failed.size());
+        for (int i = 0; i < mongoEvents.size(); i++) {
+          if (!failed.contains(i))
+            inserted.add(mongoEvents.get(i));
+        }
+        saved(inserted);
+      } catch (Exception e) {
+        result.setBatchError(e);
+        for (Integer index : positions) {
+          ids[index] = null;
+          result.addFailure(index, String.valueOf(e.getMessage()));
+        }
+      }
+    }
+
+    for (String id : ids) {
+      if (id != null)
+        result.addId(id);
+    }
+
+    return result;
+  }
+
+  /**
+   * Save a batch of events that may have been saved already, such as the replayed journal events.
+   * Each event is inserted with a single unordered bulk upsert on its id, an event already saved
+   * being left as it is and counted in its class activity only once.
+   *
+   * @param tenantId
+   * @param orgId
+   * @param events events that have their id, see {@link #prepare(Event)}
+   * @return the ids of the saved events, inserted now or before, and the failures, indexed by position in the batch
+   */
+  public BatchSaveResult saveAllIfAbsent(String tenantId, String orgId, List<Event> events) {
+    BatchSaveResult result = new BatchSaveResult();
+
+    if (events == null || events.isEmpty())
+      return result;
+
+    Tenant tenant = tenantCache.findById(tenantId).orElse(null);
+
+    String[] ids = new String[events.size()];
+    List<MongoEvent> mongoEvents = new ArrayList<>(events.size());
+    List<Integer> positions = new ArrayList<>(events.size());
+    BulkOperations bulkOperations = mongoOps.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoEvent.class);
+
+    for (int i = 0; i < events.size(); i++) {
+      try {
+        Event event = prepare(events.get(i));
+        MongoEvent mongoEvent = toMongoEvent(tenant, tenantId, orgId, event);
+        bulkOperations.upsert(new Query(where("tenantId").is(tenantId).and("organizationId").is(orgId).and("event.id").is(event.getId())),
+            insertOnly(mongoEvent));
+        mongoEvents.add(mongoEvent);
+        positions.add(i);
+        ids[i] = event.getId();
+      } catch (Exception e) {
+        result.addFailure(i, String.valueOf(e.getMessage()));
+      }
+    }
+
+    if (!mongoEvents.isEmpty()) {
+      BulkWriteResult writeResult;
+      Set<Integer> failed = new HashSet<>();
+      try {
+        writeResult = bulkOperations.execute();
+      } catch (BulkOperationException e) {
+        writeResult = e.getResult();
+        for (BulkWriteError error : e.getErrors()) {
+          int index = positions.get(error.getIndex());
+          ids[index] = null;
+          result.addFailure(index, error.getMessage());
+          failed.add(error.getIndex());
+        }
+      } catch (Exception e) {
+        writeResult = null;
+        result.setBatchError(e);
+        for (Integer index : positions) {
+          ids[index] = null;
+          result.addFailure(index, String.valueOf(e.getMessage()));
+        }
+      }
+
+      if (writeResult != null) {
+        List<MongoEvent> inserted = new ArrayList<>(writeResult.getUpserts().size());
+        for (BulkWriteUpsert upsert : writeResult.getUpserts()) {
+          if (!failed.contains(upsert.getIndex()))
+            inserted.add(mongoEvents.get(upsert.getIndex()));
+        }
+        saved(inserted);
+      }
+    }
+
+    for (String id : ids) {
+      if (id != null)
+        result.addId(id);
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the update setting all the fields of the event when it is inserted, and none otherwise
+   */
+  private Update insertOnly(MongoEvent mongoEvent) {
+    Document document = new Document();
+    mongoOps.getConverter().write(mongoEvent, document);
+    Update update = new Update();
+    for (Map.Entry<String, Object> field : document.entrySet()) {
+      if (!"_id".equals(field.getKey()))
+        update.setOnInsert(field.getKey(), field.getValue());
+    }
+    return update;
+  }
+
+  /**
+   * Gives an id and an event time to an event that does not have one
+   *
+   * @param toBeSaved
+   * @return the event as it will be saved
+   */
+  public Event prepare(Event toBeSaved) {
     if (StringUtils.isBlank(toBeSaved.getId())) {
       Long offset = TimeUnit.MILLISECONDS.toSeconds(TimeZone.getDefault().getRawOffset());
 
@@ -87,7 +291,7 @@ public class EventService {
               .withFederatedSession(toBeSaved.getFederatedSession())
               .withGenerated(toBeSaved.getGenerated())
               .withGroup(toBeSaved.getGroup())
-              .withId(UUID.randomUUID().toString().replace("-", ""))
+              .withId(eventIdGenerator.nextId())
               .withMembership(toBeSaved.getMembership())
               .withObject(toBeSaved.getObject())
               .withTarget(toBeSaved.getTarget())
@@ -96,18 +300,30 @@ public class EventService {
               .build();
     }
 
-    Tenant tenant = tenantRepository.findById(tenantId).orElse(null);
+    return toBeSaved;
+  }
+
+  /**
+   * Counts saved events in the activity of their class and drops the cached statistics of the class
+   */
+  private void saved(List<MongoEvent> mongoEvents) {
+    classActivityRollups.record(mongoEvents);
+
+    Set<String> classIds = new HashSet<>();
+    for (MongoEvent mongoEvent : mongoEvents) {
+      if (mongoEvent.getClassId() != null && classIds.add(mongoEvent.getClassId()))
+        classStatisticsCache.invalidate(mongoEvent.getTenantId(), mongoEvent.getOrganizationId(), mongoEvent.getClassId());
+    }
+  }
 
-    MongoEvent mongoEvent
-            = new MongoEvent.Builder()
-            .withClassId(classIdConverter.convert(tenant, toBeSaved))
-            .withEvent(toBeSaved)
+  private MongoEvent toMongoEvent(Tenant tenant, String tenantId, String orgId, Event event) {
+    return new MongoEvent.Builder()
+            .withClassId(classIdConverter.convert(tenant, event))
+            .withEvent(event)
             .withOrganizationId(orgId)
             .withTenantId(tenantId)
-            .withUserId(userIdConverter.convert(tenant, toBeSaved))
+            .withUserId(userIdConverter.convert(tenant, event))
             .build();
-    MongoEvent saved = mongoEventRepository.save(mongoEvent);
-    return saved.getEvent().getId();
   }
 
   public Event getEventForId(final String tenantId, final String orgId, final String eventId) {
@@ -121,20 +337,42 @@ public class EventService {
   }
 
   /**
-   * Get all the events
+   * Looks a batch of event ids up with a single query
    *
    * @param tenantId
    * @param orgId
-   * @return Collection<Event>
+   * @param eventIds
+   * @return the ids of the batch that are already saved
    */
-  public Collection<Event> findAll(final String tenantId, final String orgId, String page, String limit) throws Exception {
-    Pageable pageRequest = PageRequest.of(Integer.parseInt(page), Integer.parseInt(limit), Sort.by("event.eventTime").descending());
+  public Set<String> findExistingEventIds(final String tenantId, final String orgId, final Collection<String> eventIds) {
+    if (eventIds == null || eventIds.isEmpty())
+      return Collections.emptySet();
+
+    return mongoEventRepository.findByTenantIdAndOrganizationIdAndEventIdIn(tenantId, orgId, eventIds).stream()
+        .map(mongoEvent -> mongoEvent.getEvent().getId())
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * Get all the events, from the most recent to the oldest
+   *
+   * @param tenantId
+   * @param orgId
+   * @param page ignored when a cursor is given
+   * @param limit
+   * @param cursor (optional) {@link EventCursor} of the page to get
+   * @return the events and the cursor of the next page, null when there are no events
+   */
+  public EventPage<RawEvent> findAll(final String tenantId, final String orgId, String page, String limit, String cursor) throws Exception {
+    EventFieldPaths paths = EventFieldPaths.of(eventFieldsMigration);
+    Pageable pageRequest = pageRequest(page, limit, cursor, paths);
+    EventCursor after = StringUtils.isBlank(cursor) ? null : EventCursor.decode(cursor);
 
     try {
-        Collection<MongoEvent> mongoEvents = mongoEventRepository.findTopByTenantIdAndOrganizationIdOrderByEventEventTimeDesc(tenantId, orgId, pageRequest);
+        EventPage<RawEvent> events = findPage(where("tenantId").is(tenantId).and("organizationId").is(orgId), pageRequest, after, paths);
 
-        if (mongoEvents != null && !mongoEvents.isEmpty()) {
-            return mongoEvents.stream().map(MongoEvent::getEvent).collect(Collectors.toList());
+        if (!events.isEmpty()) {
+            return events;
         }
 
         return null;
@@ -146,28 +384,97 @@ public class EventService {
 
 
   /**
-   * Get Events by EdApp (source)
+   * Get Events by EdApp (source), from the most recent to the oldest
    *
    * @param tenantId
    * @param orgId
-   * @param edAppId
-   * @param page
+   * @param page ignored when a cursor is given
    * @param limit
-   * @return Collection<Event>
+   * @param edAppId
+   * @param cursor (optional) {@link EventCursor} of the page to get
+   * @return the events and the cursor of the next page
    *
    * @throws EventNotFoundException
    */
-  public Collection<Event> findByEdApp(final String tenantId, final String orgId, final String page, final String limit,  final String edAppId) throws EventNotFoundException {
-    Pageable pageRequest = PageRequest.of(Integer.parseInt(page), Integer.parseInt(limit), Sort.by("event.eventTime").descending());
-
-    Collection<MongoEvent> mongoEvents = mongoEventRepository.findTopByTenantIdAndOrganizationIdAndEventEdAppIdOrderByEventEventTimeDesc(tenantId, orgId, edAppId, pageRequest);
-      if (mongoEvents != null && !mongoEvents.isEmpty()) {
-        return mongoEvents.stream().map(MongoEvent::getEvent).collect(Collectors.toList());
+  public EventPage<RawEvent> findByEdApp(final String tenantId, final String orgId, final String page, final String limit, final String edAppId, final String cursor) throws EventNotFoundException {
+    EventFieldPaths paths = EventFieldPaths.of(eventFieldsMigration);
+    Pageable pageRequest = pageRequest(page, limit, cursor, paths);
+    EventCursor after = StringUtils.isBlank(cursor) ? null : EventCursor.decode(cursor);
+
+    EventPage<RawEvent> events = findPage(where("tenantId").is(tenantId).and("organizationId").is(orgId).and(paths.edAppId()).is(edAppId), pageRequest, after, paths);
+      if (!events.isEmpty()) {
+        return events;
       }
 
       throw new EventNotFoundException("Events not found.");
   }
 
+  /**
+   * Get the events matching the filters of an xAPI statements query, one page at a time.
+   * As in xAPI, the events are filtered and sorted on the time they were stored, to the second,
+   * see {@link StoredTime}.
+   *
+   * @param tenantId
+   * @param orgId
+   * @param agentId (optional) id of the agent of the events
+   * @param action (optional)
+   * @param objectId (optional) id of the object of the events
+   * @param since (optional) events stored after it
+   * @param until (optional) events stored at or before it
+   * @param limit
+   * @param ascending from the first stored to the last
+   * @param cursor (optional) {@link EventCursor} of the page to get
+   * @return the events and the cursor of the next page
+   */
+  public EventPage<Event> findEvents(final String tenantId, final String orgId, final String agentId, final String action, final String objectId,
+                                     final Instant since, final Instant until, int limit, boolean ascending, final String cursor) {
+    EventFieldPaths paths = EventFieldPaths.of(eventFieldsMigration);
+    Criteria criteria = where("tenantId").is(tenantId).and("organizationId").is(orgId);
+    if (StringUtils.isNotBlank(agentId))
+      criteria.and("event.agent.id").is(agentId);
+    if (StringUtils.isNotBlank(action))
+      criteria.and(paths.action()).is(action);
+    if (StringUtils.isNotBlank(objectId))
+      criteria.and("event.object.id").is(objectId);
+
+    // both on the id
+    List<Criteria> stored = new ArrayList<>(2);
+    Criteria between = StoredTime.between(since, until);
+    if (between != null)
+      stored.add(between);
+    if (StringUtils.isNotBlank(cursor))
+      stored.add(StoredTime.after(EventCursor.decode(cursor), ascending ? Sort.Direction.ASC : Sort.Direction.DESC));
+    if (!stored.isEmpty())
+      criteria.andOperator(stored.toArray(new Criteria[0]));
+
+    Query query = new Query(criteria).with(PageRequest.of(0, limit, ascending ? StoredTime.ASCENDING_ORDER : StoredTime.ORDER));
+    List<MongoEvent> mongoEvents = mongoOps.find(query, MongoEvent.class);
+    EventCursor next = mongoEvents.size() == limit ? EventCursor.after(mongoEvents.get(mongoEvents.size() - 1)) : null;
+
+    return new EventPage<>(mongoEvents.stream().map(MongoEvent::getEvent).collect(Collectors.toList()), next);
+  }
+
+  private static Pageable pageRequest(String page, String limit, String cursor, EventFieldPaths paths) {
+    return PageRequest.of(StringUtils.isBlank(cursor) ? Integer.parseInt(page) : 0, Integer.parseInt(limit), paths.order(Sort.Direction.DESC));
+  }
+
+  /**
+   * Reads a page of events, by offset or right after a cursor when one is given
+   */
+  private EventPage<RawEvent> findPage(Criteria criteria, Pageable pageRequest, EventCursor after, EventFieldPaths paths) {
+    List<RawEvent> events = rawEventReader.find(pageQuery(criteria, pageRequest, after, paths));
+    EventCursor next = events.size() == pageRequest.getPageSize() ? EventCursor.after(events.get(events.size() - 1)) : null;
+
+    return new EventPage<>(events, next);
+  }
+
+  private static Query pageQuery(Criteria criteria, Pageable pageRequest, EventCursor after, EventFieldPaths paths) {
+    Query query = new Query(criteria).with(pageRequest);
+    if (after != null)
+      query.addCriteria(after.criteria(paths, pageRequest.getSort().getOrderFor(paths.eventTime()).getDirection()));
+    return query;
+  }
+
 
 
 
@@ -194,53 +501,103 @@ public class EventService {
     }
     return null;
   }
-  
-  public ClassEventStatistics getEventStatisticsForClass(final String tenantId, final String orgId, final String classId, boolean studentsOnly) {	  
-    Collection<MongoEvent> mongoEvents;
-
-    if (studentsOnly)
-      mongoEvents = mongoEventRepository.findByTenantIdAndOrganizationIdAndClassIdAndEventMembershipRolesIn(tenantId, orgId, classId, STUDENT_ROLES_LIST);
-    else
-      mongoEvents = mongoEventRepository.findByTenantIdAndOrganizationIdAndClassId(tenantId, orgId, classId);
-
 
-    if (mongoEvents == null || mongoEvents.isEmpty()) {
-      throw new RuntimeException();
+  /**
+   * Same as {@link #getEventsForClassAndUser(String, String, String, String)}, the events being written from their BSON
+   */
+  public Collection<RawEvent> getRawEventsForClassAndUser(final String tenantId, final String orgId, final String classId, final String userId) {
+    Query query = new Query(where("tenantId").is(tenantId).and("organizationId").is(orgId)
+        .and("classId").is(classId)
+        .andOperator(CaseInsensitiveKey.matching("userId", "userIdKey", userId)));
+    List<RawEvent> events = rawEventReader.find(query);
+    if (!events.isEmpty()) {
+      return events;
     }
+    return null;
+  }
 
-    Map<String, Long> studentsWithEventsCounted = mongoEvents.stream()
-            .collect(Collectors.groupingBy(MongoEvent::getUserId, Collectors.counting()));
+  /**
+   * Summaries of the events of a class, without their Caliper event
+   *
+   * @param tenantId
+   * @param orgId
+   * @param classId
+   * @param studentsOnly only the events sent with a student role
+   * @return the summaries, in no particular order
+   */
+  public List<EventSummary> getEventSummariesForClass(final String tenantId, final String orgId, final String classId, boolean studentsOnly) {
+    EventFieldPaths paths = EventFieldPaths.of(eventFieldsMigration);
+    Criteria criteria = where("tenantId").is(tenantId).and("organizationId").is(orgId).and("classId").is(classId);
+    if (studentsOnly)
+      criteria = new Criteria().andOperator(criteria, paths.student(true));
+    return findSummaries(new Query(criteria), paths);
+  }
 
-    Map<String, List<MongoEvent>> eventsByStudent = mongoEvents.stream()
-            .collect(Collectors.groupingBy(MongoEvent::getUserId));
+  /**
+   * Summaries of the events of a user in a class, without their Caliper event
+   *
+   * @param tenantId
+   * @param orgId
+   * @param classId
+   * @param userId whatever its case
+   * @return the summaries, the most recent first
+   */
+  public List<EventSummary> getEventSummariesForClassAndUser(final String tenantId, final String orgId, final String classId, final String userId) {
+    EventFieldPaths paths = EventFieldPaths.of(eventFieldsMigration);
+    Query query = new Query(where("tenantId").is(tenantId).and("organizationId").is(orgId)
+        .and("classId").is(classId)
+        .andOperator(CaseInsensitiveKey.matching("userId", "userIdKey", userId)))
+        .with(Sort.by(Sort.Direction.DESC, paths.eventTime()));
+    return findSummaries(query, paths);
+  }
 
-    Map<String,Map<String, Long>> eventCountGroupedByDateAndStudent = null;
+  private List<EventSummary> findSummaries(Query query, EventFieldPaths paths) {
+    return mongoOps.find(paths.summaryFields(query), Document.class, mongoOps.getCollectionName(MongoEvent.class)).stream()
+        .map(paths::summary)
+        .collect(Collectors.toList());
+  }
+  
+  /**
+   * Statistics of a class, counted from its {@link ClassActivityRollups} or from its events until
+   * the counters of its org were rebuilt once, and kept in the {@link ClassStatisticsCache}
+   */
+  public ClassEventStatistics getEventStatisticsForClass(final String tenantId, final String orgId, final String classId, boolean studentsOnly) {
+    return classStatisticsCache.get(tenantId, orgId, classId, studentsOnly,
+        () -> countEventStatisticsForClass(tenantId, orgId, classId, studentsOnly));
+  }
 
-    if (eventsByStudent != null) {
-      eventCountGroupedByDateAndStudent = new HashMap<>();
-      for (String key : eventsByStudent.keySet()) {
-        Map<String, Long> eventCountByDate = eventsByStudent.get(key).stream().collect(Collectors.groupingBy(event -> StringUtils.substringBefore(event.getEvent().getEventTime().toString(), "T"), Collectors.counting()));
-        eventCountGroupedByDateAndStudent.put(key, eventCountByDate);
-      }
+  private ClassEventStatistics countEventStatisticsForClass(final String tenantId, final String orgId, final String classId, boolean studentsOnly) {
+    List<MongoClassActivity> activities = classActivityRollups.isComplete(tenantId, orgId)
+        ? classActivityRollups.findForClass(tenantId, orgId, classId, studentsOnly)
+        : classActivityRollups.countForClass(tenantId, orgId, classId, studentsOnly);
+
+    Map<String, Map<String, Long>> eventCountGroupedByDateAndStudent = new HashMap<>();
+    Map<String, Long> eventCountByDate = new HashMap<>();
+    Map<String, Long> eventTypeTotals = new HashMap<>();
+    long totalEvents = 0;
+
+    for (MongoClassActivity activity : activities) {
+      long count = activity.getCount();
+      totalEvents += count;
+      if (activity.getDay() != null)
+        eventCountByDate.merge(activity.getDay(), count, Long::sum);
+      if (activity.getUserId() != null)
+        eventCountGroupedByDateAndStudent.computeIfAbsent(activity.getUserId(), u -> new HashMap<>()).merge(activity.getDay(), count, Long::sum);
+      if (activity.getAction() != null)
+        eventTypeTotals.merge(activity.getAction(), count, Long::sum);
     }
 
-    Map<String, Long> eventCountByDate = mongoEvents.stream().collect(Collectors.groupingBy(event -> StringUtils.substringBefore(event.getEvent().getEventTime().toString(), "T"), Collectors.counting()));        
-
-    List<Long> eventCountPerStudent = new ArrayList<>();
-    if (eventsByStudent != null) {        
-	    for (String key : eventsByStudent.keySet()) {
-	    	eventCountPerStudent.add(eventsByStudent.get(key).stream().count());
-	    }
+    if (totalEvents == 0) {
+      throw new RuntimeException();
     }
-    
-    Collections.sort(eventCountPerStudent);    
+
+    eventTypeTotals = cleanVerbs(eventTypeTotals);
     Integer studentEnrollmentCount = mongoEnrollmentRepository.countByTenantIdAndOrgIdAndClassSourcedIdAndEnrollmentStatusAndEnrollmentRole(tenantId, orgId, classId, Status.active, Role.student);
-    Map<String, Long> eventTypeTotals = calculateEventTypeTotals(mongoEvents);
     Map<String,Double> eventTypeAverages = calculateEventTypeAverages(eventTypeTotals,studentEnrollmentCount);
     return new ClassEventStatistics.Builder()
       .withClassSourcedId(classId)
-      .withTotalEvents(mongoEvents.size())
-      .withStudentsWithEvents(studentsWithEventsCounted.keySet().size())
+      .withTotalEvents((int) totalEvents)
+      .withStudentsWithEvents(eventCountGroupedByDateAndStudent.size())
       .withTotalStudentEnrollments(studentEnrollmentCount)
       .withEventTypeTotals(eventTypeTotals)
       .withEventTypeAverages(eventTypeAverages)
@@ -250,21 +607,6 @@ public class EventService {
 
   }
 
-  /**
-   * Calculates the total number of events by action type
-   * Also cleans the URL off the verb completely
-   */
-  private Map<String, Long> calculateEventTypeTotals(Collection<MongoEvent> mongoEvents) {
-    
-    List<Event> events = mongoEvents.stream().map(MongoEvent::getEvent).collect(Collectors.toCollection(ArrayList::new));;
-    
-    Map<String, Long> eventTypeTotals = events.stream()
-    .collect(Collectors.groupingBy(Event::getAction, Collectors.counting()));
-
-    eventTypeTotals = cleanVerbs(eventTypeTotals);    
-    return eventTypeTotals;
-  }
-  
   /**
    * Cleans the URL off the verbs
    */
@@ -298,41 +640,42 @@ public class EventService {
    * @param userId its id
    * @param from (optional) date (yyyy-MM-dd hh:mm) greater
    * @param to (optional) date (yyyy-MM-dd hh:mm) less
-   * @return Events or null
+   * @return Events, written from their BSON
    */
-  public Collection<Event> getEventsForUser(final String tenantId, final String orgId, final String userId, final String from, final String to) throws EventNotFoundException, IllegalArgumentException, BadRequestException {
+  public Collection<RawEvent> getEventsForUser(final String tenantId, final String orgId, final String userId, final String from, final String to) throws EventNotFoundException, IllegalArgumentException, BadRequestException {
     if (StringUtils.isBlank(tenantId) || StringUtils.isBlank(orgId) || StringUtils.isBlank(userId))
       throw new IllegalArgumentException();
 
     SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd hh:mm");
-    Collection<MongoEvent> mongoEvents;
+    String eventTime = EventFieldPaths.of(eventFieldsMigration).eventTime();
+    Collection<RawEvent> events;
     Query query = new Query();
     query.addCriteria(where("userId").is(userId).and("organizationId").is(orgId).and("tenantId").is(tenantId));
 
     if (from.isEmpty() && !to.isEmpty()) {
       try {
-        query.addCriteria(where("event.eventTime").lt(dateFormat.parse(to)));
+        query.addCriteria(where(eventTime).lt(dateFormat.parse(to)));
       } catch (Exception e) {
         throw new BadRequestException("Not able to parse the date, it has to be in the following format: `yyyy-MM-dd hh:mm` ");
       }
     } else if (!from.isEmpty() && to.isEmpty()) {
       try {
-        query.addCriteria(where("event.eventTime").gt(dateFormat.parse(from)));
+        query.addCriteria(where(eventTime).gt(dateFormat.parse(from)));
       } catch (Exception e) {
         throw new BadRequestException("Not able to parse the date, it has to be in the following format: `yyyy-MM-dd hh:mm` ");
       }
     } else if (!from.isEmpty() && !to.isEmpty()) {
       try {
-        query.addCriteria(where("event.eventTime").lt(dateFormat.parse(to)).gt(dateFormat.parse(from)));
+        query.addCriteria(where(eventTime).lt(dateFormat.parse(to)).gt(dateFormat.parse(from)));
       } catch (Exception e) {
         throw new BadRequestException("Not able to parse the date, it has to be in the following format: `yyyy-MM-dd hh:mm` ");
       }
     }
 
-    mongoEvents = mongoOps.find(query, MongoEvent.class);
+    events = rawEventReader.find(query);
 
-    if (!mongoEvents.isEmpty())
-      return mongoEvents.stream().map(MongoEvent::getEvent).collect(Collectors.toList());
+    if (!events.isEmpty())
+      return events;
 
     throw new EventNotFoundException("Events not found.");
   }
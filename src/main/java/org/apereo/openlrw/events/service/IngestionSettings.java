@@ -0,0 +1,195 @@
+package org.apereo.openlrw.events.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the Caliper ingestion path
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matthews.ingestion")
+public class IngestionSettings {
+
+  public enum Mode {
+    /** events are written to MongoDB before the response is sent */
+    SYNC,
+    /** events are put on a bounded queue and written in batches by the writer workers */
+    QUEUE,
+    /** events are appended to a local journal and replayed into MongoDB in the background */
+    JOURNAL
+  }
+
+  public enum IdFormat {
+    /** random UUIDs without dashes */
+    UUID,
+    /** ULID-like ids that sort by the time they were generated */
+    TIME_ORDERED
+  }
+
+  private Mode mode = Mode.SYNC;
+
+  /**
+   * Format of the ids given to the events received without one.
+   */
+  private IdFormat idFormat = IdFormat.UUID;
+
+  /**
+   * Maximum number of events waiting to be written.
+   */
+  private int queueCapacity = 10000;
+
+  /**
+   * Maximum number of events written by a single bulk insert.
+   */
+  private int batchSize = 500;
+
+  /**
+   * Maximum time a worker waits to fill a batch before writing it.
+   */
+  private long batchWaitMillis = 200;
+
+  /**
+   * Number of writer workers draining the queue.
+   */
+  private int workers = 3;
+
+  /**
+   * Value of the Retry-After header sent when the queue is full.
+   */
+  private int retryAfterSeconds = 5;
+
+  /**
+   * Maximum size of a gzip or deflate encoded request body once decompressed.
+   */
+  private long maxDecompressedBytes = 10 * 1024 * 1024;
+
+  /**
+   * Maximum size of a gzip or deflate encoded bulk import once decompressed.
+   */
+  private long maxDecompressedBulkBytes = 10L * 1024 * 1024 * 1024;
+
+  /**
+   * Maximum number of characters of a line of a bulk import, a longer line is rejected without being kept in memory.
+   */
+  private int maxBulkLineLength = 1024 * 1024;
+
+  /**
+   * Directory holding the journal segments and the replay checkpoint.
+   */
+  private String journalDirectory = "journal";
+
+  /**
+   * Size of a journal segment file, a new segment is started when the current one is full.
+   */
+  private int journalSegmentSize = 64 * 1024 * 1024;
+
+  /**
+   * Time the replayer waits before trying again when MongoDB cannot be written to, and longest time
+   * the queue workers wait before writing a batch again.
+   */
+  private long replayRetryMillis = 5000;
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public void setMode(Mode mode) {
+    this.mode = mode;
+  }
+
+  public IdFormat getIdFormat() {
+    return idFormat;
+  }
+
+  public void setIdFormat(IdFormat idFormat) {
+    this.idFormat = idFormat;
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public long getBatchWaitMillis() {
+    return batchWaitMillis;
+  }
+
+  public void setBatchWaitMillis(long batchWaitMillis) {
+    this.batchWaitMillis = batchWaitMillis;
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  public void setWorkers(int workers) {
+    this.workers = workers;
+  }
+
+  public int getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+  public void setRetryAfterSeconds(int retryAfterSeconds) {
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public long getMaxDecompressedBytes() {
+    return maxDecompressedBytes;
+  }
+
+  public void setMaxDecompressedBytes(long maxDecompressedBytes) {
+    this.maxDecompressedBytes = maxDecompressedBytes;
+  }
+
+  public long getMaxDecompressedBulkBytes() {
+    return maxDecompressedBulkBytes;
+  }
+
+  public void setMaxDecompressedBulkBytes(long maxDecompressedBulkBytes) {
+    this.maxDecompressedBulkBytes = maxDecompressedBulkBytes;
+  }
+
+  public int getMaxBulkLineLength() {
+    return maxBulkLineLength;
+  }
+
+  public void setMaxBulkLineLength(int maxBulkLineLength) {
+    this.maxBulkLineLength = maxBulkLineLength;
+  }
+
+  public String getJournalDirectory() {
+    return journalDirectory;
+  }
+
+  public void setJournalDirectory(String journalDirectory) {
+    this.journalDirectory = journalDirectory;
+  }
+
+  public int getJournalSegmentSize() {
+    return journalSegmentSize;
+  }
+
+  public void setJournalSegmentSize(int journalSegmentSize) {
+    this.journalSegmentSize = journalSegmentSize;
+  }
+
+  public long getReplayRetryMillis() {
+    return replayRetryMillis;
+  }
+
+  public void setReplayRetryMillis(long replayRetryMillis) {
+    this.replayRetryMillis = replayRetryMillis;
+  }
+}
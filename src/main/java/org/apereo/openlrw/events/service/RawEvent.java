@@ -0,0 +1,63 @@
+package org.apereo.openlrw.events.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * A stored {@link MongoEvent} that is serialized as its {@link Event} straight from its BSON,
+ * giving the same JSON, Smile or CBOR as the event read and serialized by Jackson.
+ */
+public class RawEvent implements JsonSerializable {
+  private final RawBsonDocument document;
+  private final EventJsonTranscoder transcoder;
+
+  RawEvent(RawBsonDocument document, EventJsonTranscoder transcoder) {
+    this.document = document;
+    this.transcoder = transcoder;
+  }
+
+  /**
+   * @return the id of the stored event
+   */
+  public String getId() {
+    BsonValue id = document.get("_id");
+    if (id == null)
+      return null;
+    return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+  }
+
+  /**
+   * @return the time of the event, read from the Caliper event when it was not copied to the top yet
+   */
+  public Instant getEventTime() {
+    BsonValue eventTime = document.get("eventTime");
+    if (eventTime == null) {
+      BsonValue event = document.get("event");
+      eventTime = event == null || !event.isDocument() ? null : event.asDocument().get("eventTime");
+    }
+    return eventTime == null || !eventTime.isDateTime() ? null : Instant.ofEpochMilli(eventTime.asDateTime().getValue());
+  }
+
+  @Override
+  public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+    BsonValue event = document.get("event");
+    if (event == null || !event.isDocument())
+      provider.defaultSerializeNull(generator);
+    else
+      transcoder.write(event.asDocument(), Event.class, generator, provider);
+  }
+
+  @Override
+  public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer) throws IOException {
+    serialize(generator, provider);
+  }
+}
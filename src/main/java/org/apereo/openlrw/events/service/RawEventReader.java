@@ -0,0 +1,56 @@
+package org.apereo.openlrw.events.service;
+
+import com.mongodb.client.FindIterable;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds events as {@link RawEvent}, their documents being kept as read from the server
+ */
+@Component
+public class RawEventReader {
+
+  private final MongoOperations mongoOps;
+  private final EventJsonTranscoder transcoder;
+
+  @Autowired
+  public RawEventReader(MongoOperations mongoOperations, EventJsonTranscoder eventJsonTranscoder) {
+    this.mongoOps = mongoOperations;
+    this.transcoder = eventJsonTranscoder;
+  }
+
+  /**
+   * @param query a query of {@link MongoEvent}, with its sort, skip and limit
+   * @return the events
+   */
+  public List<RawEvent> find(Query query) {
+    MongoPersistentEntity<?> entity = mongoOps.getConverter().getMappingContext().getPersistentEntity(MongoEvent.class);
+    QueryMapper queryMapper = new QueryMapper(mongoOps.getConverter());
+
+    FindIterable<RawBsonDocument> documents = mongoOps.getCollection(mongoOps.getCollectionName(MongoEvent.class))
+        .withDocumentClass(RawBsonDocument.class)
+        .find(queryMapper.getMappedObject(query.getQueryObject(), entity))
+        .projection(new Document("event", 1).append("eventTime", 1))
+        .sort(queryMapper.getMappedSort(query.getSortObject(), entity));
+    if (query.getSkip() > 0)
+      documents.skip((int) query.getSkip());
+    if (query.getLimit() > 0)
+      documents.limit(query.getLimit());
+
+    List<RawEvent> events = new ArrayList<>();
+    for (RawBsonDocument document : documents) {
+      events.add(new RawEvent(document, transcoder));
+    }
+    return events;
+  }
+}
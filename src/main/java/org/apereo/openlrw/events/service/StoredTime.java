@@ -0,0 +1,70 @@
+package org.apereo.openlrw.events.service;
+
+import org.apereo.openlrw.common.exception.BadRequestException;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Instant;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Filters and order on the time the events were stored, read from their ids. The ids are
+ * ObjectIds made when the events are inserted, starting with the second they were inserted at.
+ * A time is matched to the second: the events stored in the second of a bound are included.
+ */
+public final class StoredTime {
+  /** order of the events, from the last stored to the first */
+  public static final Sort ORDER = Sort.by(Sort.Direction.DESC, "id");
+  /** order of the events, from the first stored to the last */
+  public static final Sort ASCENDING_ORDER = Sort.by(Sort.Direction.ASC, "id");
+
+  private StoredTime() {}
+
+  /**
+   * @param since (optional) events stored after it
+   * @param until (optional) events stored at or before it
+   * @return the events stored between the two, null when there is neither
+   */
+  public static Criteria between(Instant since, Instant until) {
+    if (since == null && until == null)
+      return null;
+
+    Criteria criteria = where("id");
+    if (since != null)
+      criteria.gte(firstId(since.getEpochSecond()));
+    if (until != null)
+      criteria.lt(firstId(until.getEpochSecond() + 1));
+    return criteria;
+  }
+
+  /**
+   * @param time
+   * @return the events stored in the seconds before the one of the time
+   */
+  public static Criteria before(Instant time) {
+    return where("id").lt(firstId(time.getEpochSecond()));
+  }
+
+  /**
+   * @param cursor the last event of a page
+   * @param direction ASC for {@link #ASCENDING_ORDER}, DESC for {@link #ORDER}
+   * @return the events coming after the cursor in that order
+   * @throws BadRequestException when the cursor is not the one of a stored event
+   */
+  public static Criteria after(EventCursor cursor, Sort.Direction direction) {
+    if (!ObjectId.isValid(cursor.getId()))
+      throw new BadRequestException("Invalid cursor");
+
+    ObjectId id = new ObjectId(cursor.getId());
+    return direction.isAscending() ? where("id").gt(id) : where("id").lt(id);
+  }
+
+  /**
+   * @return the lowest id of the events stored in that second
+   */
+  private static ObjectId firstId(long epochSecond) {
+    return new ObjectId(String.format("%08x", epochSecond) + "0000000000000000");
+  }
+}
@@ -0,0 +1,46 @@
+package org.apereo.openlrw.events.service;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ULID-like ids: 26 Crockford base32 characters that sort in the order the ids were generated.
+ *
+ * The 128 bits of an id are the current time in milliseconds on 48 bits, a sequence on 16 bits
+ * and a random value drawn once per generator on 64 bits. The time and sequence are held in a single
+ * {@link AtomicLong} so that concurrent callers get increasing values without locking; when more than
+ * 65536 ids are asked for within a millisecond the next millisecond is used.
+ */
+public class TimeOrderedEventIdGenerator implements EventIdGenerator {
+  private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+  private static final int SEQUENCE_BITS = 16;
+
+  private final AtomicLong lastTimeAndSequence = new AtomicLong();
+  private final long node;
+
+  public TimeOrderedEventIdGenerator() {
+    this(new SecureRandom().nextLong());
+  }
+
+  TimeOrderedEventIdGenerator(long node) {
+    this.node = node;
+  }
+
+  @Override
+  public String nextId() {
+    long now = System.currentTimeMillis() << SEQUENCE_BITS;
+    long timeAndSequence = lastTimeAndSequence.updateAndGet(last -> Math.max(now, last + 1));
+    return encode(timeAndSequence, node);
+  }
+
+  static String encode(long high, long low) {
+    char[] id = new char[26];
+    // 26 characters hold 130 bits for a 128-bit value, so the first one only carries its three top bits
+    for (int i = 25; i >= 0; i--) {
+      id[i] = ALPHABET[(int) (low & 0x1F)];
+      low = (low >>> 5) | (high << 59);
+      high >>>= 5;
+    }
+    return new String(id);
+  }
+}
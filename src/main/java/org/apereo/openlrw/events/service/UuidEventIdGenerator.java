@@ -0,0 +1,26 @@
+package org.apereo.openlrw.events.service;
+
+import java.util.UUID;
+
+/**
+ * Random UUIDs written as 32 hexadecimal digits, without the dashes
+ */
+public class UuidEventIdGenerator implements EventIdGenerator {
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  @Override
+  public String nextId() {
+    UUID uuid = UUID.randomUUID();
+    char[] id = new char[32];
+    write(uuid.getMostSignificantBits(), id, 0);
+    write(uuid.getLeastSignificantBits(), id, 16);
+    return new String(id);
+  }
+
+  private static void write(long bits, char[] id, int offset) {
+    for (int i = 15; i >= 0; i--) {
+      id[offset + i] = HEX[(int) (bits & 0xF)];
+      bits >>>= 4;
+    }
+  }
+}
@@ -0,0 +1,369 @@
+package org.apereo.openlrw.events.service.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal made of memory-mapped segment files of a fixed size.
+ *
+ * A record is written as its payload length, the CRC32 of its payload and the payload itself.
+ * A length of zero marks the end of the written data of a segment, a length of -1 tells that
+ * the writer moved to the next segment. A position in the journal is the segment number in the
+ * high 32 bits and the offset in that segment in the low 32 bits, so positions can be compared.
+ *
+ * The records of an envelope are appended as a whole, see {@link #append(List)}.
+ * Appends are made durable by {@link #sync(long)}: concurrent callers share a single
+ * {@link MappedByteBuffer#force()}, the first one flushing the records of all the others.
+ * The position up to which the journal was replayed is kept in a checkpoint file, and the
+ * segments entirely behind the checkpoint are deleted.
+ */
+public class EventJournal implements Closeable {
+  private static Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+  private static final int HEADER_SIZE = 8;
+  private static final int END_OF_SEGMENT = -1;
+  private static final String SEGMENT_SUFFIX = ".journal";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+
+  private final Path directory;
+  private final int segmentSize;
+
+  private final Object writeLock = new Object();
+  private final Object flushLock = new Object();
+
+  private long writeSegment;
+  private MappedByteBuffer writeBuffer;
+  private int writeOffset;
+
+  /** position up to which the records are fully written, readers never go past it */
+  private volatile long writtenPosition;
+  /** position up to which the records were forced to disk */
+  private volatile long durablePosition;
+  private volatile long checkpoint;
+
+  private long readSegment = -1;
+  private MappedByteBuffer readBuffer;
+
+  public EventJournal(Path directory, int segmentSize) throws IOException {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    Files.createDirectories(directory);
+    recover();
+  }
+
+  public static long position(long segment, int offset) {
+    return (segment << 32) | (offset & 0xFFFFFFFFL);
+  }
+
+  public static long segmentOf(long position) {
+    return position >>> 32;
+  }
+
+  public static int offsetOf(long position) {
+    return (int) position;
+  }
+
+  /**
+   * Appends a record, it is not durable until {@link #sync(long)} is called with the returned position.
+   *
+   * @param payload
+   * @return the position right after the record
+   */
+  public long append(byte[] payload) throws IOException {
+    return append(Collections.singletonList(payload));
+  }
+
+  /**
+   * Appends records as a whole: they go to a same segment and the length of the first one is
+   * written last, so neither the readers nor the recovery after a crash see a part of them.
+   * They are not durable until {@link #sync(long)} is called with the returned position.
+   *
+   * @param payloads
+   * @return the position right after the last record
+   * @throws IOException when the records do not fit in a segment, none of them being written
+   */
+  public long append(List<byte[]> payloads) throws IOException {
+    if (payloads.isEmpty())
+      return writtenPosition;
+
+    long size = 0;
+    int[] crcs = new int[payloads.size()];
+    for (int i = 0; i < payloads.size(); i++) {
+      byte[] payload = payloads.get(i);
+      CRC32 crc = new CRC32();
+      crc.update(payload, 0, payload.length);
+      crcs[i] = (int) crc.getValue();
+      size += HEADER_SIZE + payload.length;
+    }
+    if (size > segmentSize - Integer.BYTES)
+      throw new IOException(String.format("Records of %d bytes do not fit in a journal segment", size));
+
+    synchronized (writeLock) {
+      if (writeOffset + size > segmentSize - Integer.BYTES)
+        rotate();
+
+      int start = writeOffset;
+      int offset = start;
+      for (int i = 0; i < payloads.size(); i++) {
+        byte[] payload = payloads.get(i);
+        ByteBuffer buffer = writeBuffer.duplicate();
+        buffer.position(offset + HEADER_SIZE);
+        buffer.put(payload);
+        writeBuffer.putInt(offset + Integer.BYTES, crcs[i]);
+        if (i > 0)
+          writeBuffer.putInt(offset, payload.length);
+        offset += HEADER_SIZE + payload.length;
+      }
+      writeBuffer.putInt(start, payloads.get(0).length);
+
+      writeOffset = offset;
+      writtenPosition = position(writeSegment, writeOffset);
+      return writtenPosition;
+    }
+  }
+
+  /**
+   * Makes every record up to the given position durable
+   *
+   * @param position
+   */
+  public void sync(long position) {
+    if (durablePosition >= position)
+      return;
+
+    synchronized (flushLock) {
+      if (durablePosition >= position)
+        return;
+
+      long target;
+      MappedByteBuffer buffer;
+      synchronized (writeLock) {
+        target = writtenPosition;
+        buffer = writeBuffer;
+      }
+      buffer.force();
+      durablePosition = target;
+    }
+  }
+
+  /**
+   * Reads the records written after a position
+   *
+   * @param from position to start from, usually the checkpoint
+   * @param maxRecords
+   * @return the records, in the order they were appended
+   */
+  public synchronized List<JournalEntry> read(long from, int maxRecords) throws IOException {
+    List<JournalEntry> entries = new ArrayList<>();
+    long position = from;
+
+    while (entries.size() < maxRecords && position < writtenPosition) {
+      long segment = segmentOf(position);
+      int offset = offsetOf(position);
+      MappedByteBuffer buffer = readBuffer(segment);
+
+      int length = offset + HEADER_SIZE <= segmentSize ? buffer.getInt(offset) : 0;
+      if (length <= 0) {
+        // end of this segment, the records go on in the next one
+        position = position(segment + 1, 0);
+        continue;
+      }
+
+      byte[] payload = new byte[length];
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(offset + HEADER_SIZE);
+      duplicate.get(payload);
+
+      position = position(segment, offset + HEADER_SIZE + length);
+      entries.add(new JournalEntry(position, payload));
+    }
+
+    return entries;
+  }
+
+  public long getCheckpoint() {
+    return checkpoint;
+  }
+
+  public long getWrittenPosition() {
+    return writtenPosition;
+  }
+
+  /**
+   * Records that everything up to a position was replayed and deletes the segments that are no longer needed
+   *
+   * @param position
+   */
+  public void checkpoint(long position) throws IOException {
+    Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+      buffer.putLong(position).flip();
+      channel.write(buffer);
+      channel.force(true);
+    }
+    Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    checkpoint = position;
+
+    for (Long segment : segments()) {
+      if (segment < segmentOf(position))
+        Files.deleteIfExists(segmentPath(segment));
+    }
+  }
+
+  /**
+   * @return the number of bytes written to the journal and not replayed yet
+   */
+  public long lagBytes() {
+    long written = writtenPosition;
+    long replayed = checkpoint;
+    return (segmentOf(written) - segmentOf(replayed)) * segmentSize + offsetOf(written) - offsetOf(replayed);
+  }
+
+  @Override
+  public void close() {
+    synchronized (writeLock) {
+      if (writeBuffer != null)
+        writeBuffer.force();
+    }
+  }
+
+  private void recover() throws IOException {
+    Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+    if (Files.exists(checkpointFile)) {
+      checkpoint = ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong();
+    }
+
+    List<Long> segments = segments();
+    if (segments.isEmpty()) {
+      openWriteSegment(Math.max(1, segmentOf(checkpoint)));
+      writeOffset = 0;
+    } else {
+      openWriteSegment(segments.get(segments.size() - 1));
+      writeOffset = recoverEnd(writeBuffer);
+    }
+
+    writtenPosition = position(writeSegment, writeOffset);
+    durablePosition = writtenPosition;
+    if (checkpoint == 0 || checkpoint > writtenPosition)
+      checkpoint = position(segments.isEmpty() ? writeSegment : segments.get(0), 0);
+
+    logger.info("Event journal opened in {}, {} bytes waiting to be replayed", directory, lagBytes());
+  }
+
+  /**
+   * Finds the end of the valid records of a segment and wipes whatever was partially written after it
+   */
+  private int recoverEnd(MappedByteBuffer buffer) {
+    int offset = 0;
+    while (offset + HEADER_SIZE <= segmentSize - Integer.BYTES) {
+      int length = buffer.getInt(offset);
+      if (length <= 0 || offset + HEADER_SIZE + length > segmentSize)
+        break;
+
+      byte[] payload = new byte[length];
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(offset + HEADER_SIZE);
+      duplicate.get(payload);
+
+      CRC32 crc = new CRC32();
+      crc.update(payload, 0, length);
+      if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+        logger.warn("Dropping a partially written record at offset {} of journal segment {}", offset, writeSegment);
+        break;
+      }
+
+      offset += HEADER_SIZE + length;
+    }
+
+    // the records of an envelope whose first length was not written are left after the end
+    for (int i = offset; i < segmentSize; i++) {
+      if (buffer.get(i) != 0) {
+        for (int j = i; j < segmentSize; j++)
+          buffer.put(j, (byte) 0);
+        buffer.force();
+        break;
+      }
+    }
+
+    return offset;
+  }
+
+  private void rotate() throws IOException {
+    writeBuffer.putInt(writeOffset, END_OF_SEGMENT);
+    writeBuffer.force();
+    durablePosition = writtenPosition;
+
+    openWriteSegment(writeSegment + 1);
+    writeOffset = 0;
+    writtenPosition = position(writeSegment, 0);
+  }
+
+  private void openWriteSegment(long segment) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(segmentPath(segment).toFile(), "rw")) {
+      file.setLength(segmentSize);
+      writeBuffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+    writeSegment = segment;
+  }
+
+  private MappedByteBuffer readBuffer(long segment) throws IOException {
+    if (segment != readSegment) {
+      try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+        readBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+      }
+      readSegment = segment;
+    }
+    return readBuffer;
+  }
+
+  private List<Long> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .map(path -> path.getFileName().toString())
+          .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+          .map(name -> Long.valueOf(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private Path segmentPath(long segment) {
+    return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+  }
+
+  public static class JournalEntry {
+    private final long position;
+    private final byte[] payload;
+
+    JournalEntry(long position, byte[] payload) {
+      this.position = position;
+      this.payload = payload;
+    }
+
+    /**
+     * @return the position right after this record
+     */
+    public long getPosition() {
+      return position;
+    }
+
+    public byte[] getPayload() {
+      return payload;
+    }
+  }
+}
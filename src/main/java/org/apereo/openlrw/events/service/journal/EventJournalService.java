@@ -0,0 +1,203 @@
+package org.apereo.openlrw.events.service.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.events.caliper.exception.IngestionRejectedException;
+import org.apereo.openlrw.events.service.BatchSaveResult;
+import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.events.service.IngestionSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the accepted events to the local {@link EventJournal} and replays them into MongoDB.
+ * An envelope is acknowledged once its events are forced to disk, so they survive a restart
+ * of the application or MongoDB being unavailable. Its events are appended as a whole: when the
+ * journal cannot be written to, none of them is replayed and the client can send the envelope again. The replayer moves the checkpoint only after
+ * the events were inserted, so the events written when the application stopped are replayed again.
+ * They keep the id given when they were journaled and are inserted only when that id is not saved yet.
+ *
+ * @see IngestionSettings
+ */
+@Service
+public class EventJournalService {
+  private static Logger logger = LoggerFactory.getLogger(EventJournalService.class);
+
+  private final EventService eventService;
+  private final IngestionSettings settings;
+  private final ExecutorService executorService;
+  private final ObjectMapper objectMapper;
+  private final ObjectProvider<MeterRegistry> meterRegistry;
+
+  private EventJournal journal;
+  private CountDownLatch stoppedReplayer;
+  private volatile boolean running;
+
+  @Autowired
+  public EventJournalService(EventService eventService, IngestionSettings settings, @Qualifier("ingestionExecutorService") ExecutorService executorService,
+                             ObjectMapper objectMapper, ObjectProvider<MeterRegistry> meterRegistry) {
+    this.eventService = eventService;
+    this.settings = settings;
+    this.executorService = executorService;
+    this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    if (settings.getMode() != IngestionSettings.Mode.JOURNAL)
+      return;
+
+    journal = new EventJournal(Paths.get(settings.getJournalDirectory()), settings.getJournalSegmentSize());
+
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    if (registry != null) {
+      Gauge.builder("openlrw.journal.replay.lag", journal, EventJournal::lagBytes)
+          .description("Bytes of events written to the journal and not yet replayed into MongoDB")
+          .baseUnit("bytes")
+          .register(registry);
+    }
+
+    running = true;
+    stoppedReplayer = new CountDownLatch(1);
+    executorService.execute(this::replay);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (!running)
+      return;
+
+    running = false;
+    stoppedReplayer.await(30, TimeUnit.SECONDS);
+    journal.close();
+  }
+
+  /**
+   * Writes the events of an envelope to the journal and waits until they are on disk.
+   *
+   * @param tenantId
+   * @param orgId
+   * @param events
+   * @return the ids given to the events
+   * @throws IngestionRejectedException when the journal cannot be written to
+   */
+  public List<String> append(final String tenantId, final String orgId, final List<Event> events) {
+    if (!running)
+      throw new IngestionRejectedException("Event journal is not open", settings.getRetryAfterSeconds());
+
+    List<String> ids = new ArrayList<>(events.size());
+    try {
+      List<byte[]> records = new ArrayList<>(events.size());
+      for (Event event : events) {
+        Event prepared = eventService.prepare(event);
+        records.add(objectMapper.writeValueAsBytes(new JournalRecord(tenantId, orgId, prepared)));
+        ids.add(prepared.getId());
+      }
+
+      journal.sync(journal.append(records));
+    } catch (IOException e) {
+      logger.error("Unable to write to the event journal", e);
+      throw new IngestionRejectedException("Unable to write to the event journal", settings.getRetryAfterSeconds());
+    }
+
+    return ids;
+  }
+
+  public long getReplayLag() {
+    return journal == null ? 0 : journal.lagBytes();
+  }
+
+  private void replay() {
+    try {
+      while (running) {
+        try {
+          List<EventJournal.JournalEntry> entries = journal.read(journal.getCheckpoint(), settings.getBatchSize());
+          if (entries.isEmpty()) {
+            Thread.sleep(settings.getBatchWaitMillis());
+          } else if (!write(entries)) {
+            Thread.sleep(settings.getReplayRetryMillis());
+          }
+        } catch (IOException e) {
+          logger.error("Unable to read the event journal", e);
+          Thread.sleep(settings.getReplayRetryMillis());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      stoppedReplayer.countDown();
+    }
+  }
+
+  /**
+   * Inserts the journal entries, the consecutive events of a same org going in a single bulk insert.
+   * The checkpoint is moved after each insert.
+   *
+   * @return false when MongoDB could not be written to and the remaining entries have to be replayed later
+   */
+  private boolean write(List<EventJournal.JournalEntry> entries) throws IOException {
+    int start = 0;
+    while (start < entries.size()) {
+      List<Event> events = new ArrayList<>();
+      JournalRecord first = null;
+      int end = start;
+
+      for (; end < entries.size(); end++) {
+        JournalRecord record;
+        try {
+          record = objectMapper.readValue(entries.get(end).getPayload(), JournalRecord.class);
+        } catch (IOException e) {
+          logger.error("Skipping an unreadable journal record", e);
+          continue;
+        }
+
+        if (first == null) {
+          first = record;
+        } else if (!Objects.equals(first.getTenantId(), record.getTenantId()) || !Objects.equals(first.getOrgId(), record.getOrgId())) {
+          break;
+        }
+        events.add(record.getEvent());
+      }
+
+      if (first != null) {
+        try {
+          BatchSaveResult result = eventService.saveAllIfAbsent(first.getTenantId(), first.getOrgId(), events);
+          if (result.getBatchError() != null) {
+            logger.warn("Unable to replay {} journaled events, will try again: {}", events.size(), result.getBatchError().getMessage());
+            return false;
+          }
+          for (Map.Entry<Integer, String> failure : result.getFailures().entrySet()) {
+            logger.error("Unable to save event {}: {}", events.get(failure.getKey()), failure.getValue());
+          }
+        } catch (Exception e) {
+          logger.warn("Unable to replay {} journaled events, will try again: {}", events.size(), e.getMessage());
+          return false;
+        }
+      }
+
+      journal.checkpoint(entries.get(end - 1).getPosition());
+      start = end;
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,33 @@
+package org.apereo.openlrw.events.service.journal;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apereo.openlrw.caliper.Event;
+
+/**
+ * An event as it is written to the journal, along with the tenant and org it belongs to
+ */
+public class JournalRecord {
+  private final String tenantId;
+  private final String orgId;
+  private final Event event;
+
+  @JsonCreator
+  public JournalRecord(@JsonProperty("tenantId") String tenantId, @JsonProperty("orgId") String orgId, @JsonProperty("event") Event event) {
+    this.tenantId = tenantId;
+    this.orgId = orgId;
+    this.event = event;
+  }
+
+  public String getTenantId() {
+    return tenantId;
+  }
+
+  public String getOrgId() {
+    return orgId;
+  }
+
+  public Event getEvent() {
+    return event;
+  }
+}
@@ -0,0 +1,61 @@
+package org.apereo.openlrw.events.service.repository;
+
+import java.time.Instant;
+
+/**
+ * The fields of a {@link MongoEvent} that the analytics read, without its Caliper event.
+ * The queries returning it only fetch these fields, see {@link org.apereo.openlrw.events.service.EventFieldPaths#summary(org.bson.Document)}.
+ */
+public class EventSummary {
+  private final String id;
+  private final String userId;
+  private final String classId;
+  private final String action;
+  private final String eventType;
+  private final Instant eventTime;
+  private final String edAppId;
+  private final boolean student;
+
+  public EventSummary(String id, String userId, String classId, String action, String eventType, Instant eventTime, String edAppId, boolean student) {
+    this.id = id;
+    this.userId = userId;
+    this.classId = classId;
+    this.action = action;
+    this.eventType = eventType;
+    this.eventTime = eventTime;
+    this.edAppId = edAppId;
+    this.student = student;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public String getClassId() {
+    return classId;
+  }
+
+  public String getAction() {
+    return action;
+  }
+
+  public String getEventType() {
+    return eventType;
+  }
+
+  public Instant getEventTime() {
+    return eventTime;
+  }
+
+  public String getEdAppId() {
+    return edAppId;
+  }
+
+  public boolean isStudent() {
+    return student;
+  }
+}
@@ -0,0 +1,141 @@
+package org.apereo.openlrw.events.service.repository;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Number of events of a class for a day, a user and an action.
+ * The counters are incremented when events are saved, {@code student} tells
+ * whether the events were sent with a student membership role.
+ */
+@Document
+@CompoundIndex(name = "class_activity_key", unique = true,
+    def = "{'tenantId': 1, 'organizationId': 1, 'classId': 1, 'student': 1, 'day': 1, 'userId': 1, 'action': 1}")
+public class MongoClassActivity implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  @Id
+  private String id;
+  private String tenantId;
+  private String organizationId;
+  private String classId;
+  private boolean student;
+  private String day;
+  private String userId;
+  private String action;
+  private long count;
+  private Instant updatedAt;
+
+  private MongoClassActivity() {}
+
+  public String getId() {
+    return id;
+  }
+
+  public String getTenantId() {
+    return tenantId;
+  }
+
+  public String getOrganizationId() {
+    return organizationId;
+  }
+
+  public String getClassId() {
+    return classId;
+  }
+
+  public boolean isStudent() {
+    return student;
+  }
+
+  /**
+   * @return the UTC day of the events, as yyyy-MM-dd
+   */
+  public String getDay() {
+    return day;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public String getAction() {
+    return action;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return when the counter was last incremented or rebuilt
+   */
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringBuilder.reflectionToString(this, ToStringStyle.MULTI_LINE_STYLE);
+  }
+
+  public static class Builder {
+    private MongoClassActivity _mongoClassActivity = new MongoClassActivity();
+
+    public Builder withId(String id) {
+      _mongoClassActivity.id = id;
+      return this;
+    }
+
+    public Builder withTenantId(String tenantId) {
+      _mongoClassActivity.tenantId = tenantId;
+      return this;
+    }
+
+    public Builder withOrganizationId(String organizationId) {
+      _mongoClassActivity.organizationId = organizationId;
+      return this;
+    }
+
+    public Builder withClassId(String classId) {
+      _mongoClassActivity.classId = classId;
+      return this;
+    }
+
+    public Builder withStudent(boolean student) {
+      _mongoClassActivity.student = student;
+      return this;
+    }
+
+    public Builder withDay(String day) {
+      _mongoClassActivity.day = day;
+      return this;
+    }
+
+    public Builder withUserId(String userId) {
+      _mongoClassActivity.userId = userId;
+      return this;
+    }
+
+    public Builder withAction(String action) {
+      _mongoClassActivity.action = action;
+      return this;
+    }
+
+    public Builder withCount(long count) {
+      _mongoClassActivity.count = count;
+      return this;
+    }
+
+    public MongoClassActivity build() {
+      return _mongoClassActivity;
+    }
+  }
+}
@@ -1,16 +1,20 @@
 package org.apereo.openlrw.events.service.repository;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apereo.openlrw.common.CaseInsensitiveKey;
+import org.apereo.openlrw.events.service.EventService;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.apereo.openlrw.caliper.Event;
 
 import java.io.Serializable;
+import java.time.Instant;
 
 
 /**
@@ -28,10 +32,18 @@ public class MongoEvent implements Serializable {
   @Id
   private String id;
   private String userId;
+  private String userIdKey;
   private String classId;
   private String organizationId;
   private String tenantId;
   private Event event;
+
+  // copied from the event to be filtered, sorted and counted without reading it
+  private Instant eventTime;
+  private String action;
+  private String eventType;
+  private String edAppId;
+  private boolean student;
   
   private MongoEvent() {}
 
@@ -43,6 +55,14 @@ public class MongoEvent implements Serializable {
     return userId;
   }
 
+  /**
+   * @return the user id as looked up whatever its case, see {@link CaseInsensitiveKey}
+   */
+  @JsonIgnore
+  public String getUserIdKey() {
+    return userIdKey;
+  }
+
   public String getClassId() {
     return classId;
   }
@@ -58,6 +78,45 @@ public class MongoEvent implements Serializable {
   public Event getEvent() {
     return event;
   }
+
+  @JsonIgnore
+  public Instant getEventTime() {
+    return eventTime;
+  }
+
+  @JsonIgnore
+  public String getAction() {
+    return action;
+  }
+
+  @JsonIgnore
+  public String getEventType() {
+    return eventType;
+  }
+
+  @JsonIgnore
+  public String getEdAppId() {
+    return edAppId;
+  }
+
+  /**
+   * @return true when the event was sent with one of the {@link EventService#STUDENT_ROLES_LIST}
+   */
+  @JsonIgnore
+  public boolean isStudent() {
+    return student;
+  }
+
+  private static boolean isStudent(Event event) {
+    if (event.getMembership() == null || event.getMembership().getRoles() == null)
+      return false;
+
+    for (String role : event.getMembership().getRoles()) {
+      if (EventService.STUDENT_ROLES_LIST.contains(role))
+        return true;
+    }
+    return false;
+  }
   
   @Override
   public String toString() {
@@ -158,7 +217,13 @@ public class MongoEvent implements Serializable {
           || StringUtils.isBlank(_mongoEvent.tenantId)) {
         throw new IllegalStateException(_mongoEvent.toString());
       }
-      
+
+      _mongoEvent.userIdKey = CaseInsensitiveKey.of(_mongoEvent.userId);
+      _mongoEvent.eventTime = _mongoEvent.event.getEventTime();
+      _mongoEvent.action = _mongoEvent.event.getAction();
+      _mongoEvent.eventType = _mongoEvent.event.getType();
+      _mongoEvent.edAppId = _mongoEvent.event.getEdApp() == null ? null : _mongoEvent.event.getEdApp().getId();
+      _mongoEvent.student = isStudent(_mongoEvent.event);
       return _mongoEvent;
     }
   }
@@ -1,14 +1,17 @@
 package org.apereo.openlrw.events.service.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.apereo.openlrw.common.CaseInsensitiveKey;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.util.Collection;
-import java.util.Date;
 import java.util.List;
 
 /**
+ * The user id lookups ignoring the case match {@link MongoEvent#getUserIdKey()} exactly,
+ * or the user id with a case insensitive regular expression in the events without a key,
+ * see {@link CaseInsensitiveKey#matching(String, String, String)}.
+ *
  * @author ggilbert
  * @author xchopin <xavier.chopin@univ-lorraine.fr>
  */
@@ -16,18 +19,22 @@ public interface MongoEventRepository extends MongoRepository<MongoEvent, String
   Collection<MongoEvent> findByTenantIdAndOrganizationIdAndClassId(final String tenantId, final String orgId, final String classId);
   Collection<MongoEvent> findByTenantIdAndOrganizationIdAndClassIdAndEventMembershipRoles(final String tenantId, final String orgId, final String classId, final List<String> roles);
   Collection<MongoEvent> findByTenantIdAndOrganizationIdAndClassIdAndEventMembershipRolesIn(final String tenantId, final String orgId, final String classId, final List<String> roles);
-  Collection<MongoEvent> findByTenantIdAndOrganizationIdAndClassIdAndUserIdIgnoreCase(final String tenantId, final String orgId, final String classId, final String userId);
   MongoEvent findByTenantIdAndOrganizationIdAndEventId(final String tenantId, final String orgId, final String eventId);
+  Collection<MongoEvent> findByTenantIdAndOrganizationIdAndEventIdIn(final String tenantId, final String orgId, final Collection<String> eventIds);
   Collection<MongoEvent> findByTenantIdAndOrganizationId(final String tenantId, final String orgId);
-  Collection<MongoEvent> findByTenantIdAndOrganizationIdAndUserIdIgnoreCase(final String tenantId, final String orgId, final String userId);
-  Collection<MongoEvent> findByTenantIdAndOrganizationIdAndUserIdIgnoreCaseAndEventEventTimeBetween(final String tenantId, final String orgId, final String userId, Date from, Date to);
-  Collection<MongoEvent> findByTenantIdAndOrganizationIdAndUserIdIgnoreCaseAndEventEventTimeAfter(final String tenantId, final String orgId, final String userId, Date from);
-  Collection<MongoEvent> findByTenantIdAndOrganizationIdAndUserIdIgnoreCaseAndEventEventTimeBefore(final String tenantId, final String orgId, final String userId, Date to);
 
-  // Pageable methods
-  Page<MongoEvent> findByTenantIdAndOrganizationIdAndUserIdIgnoreCase(final String tenantId, final String orgId, final String userId, Pageable pageRequest);
-  List<MongoEvent> findTopByTenantIdAndOrganizationIdOrderByEventEventTimeDesc(final String tenantId, final String orgId, Pageable pageRequest);
-  List<MongoEvent> findTopByTenantIdAndOrganizationIdAndEventEdAppIdOrderByEventEventTimeDesc(final String tenantId, final String orgId, final String edAppId, Pageable pageRequest);
+  // Matching the key, or the pattern of the user id in the events without a key
+  @Query("{ 'tenantId': ?0, 'organizationId': ?1, 'classId': ?2, $or: [ { 'userIdKey': ?3 }, { 'userIdKey': { $exists: false }, 'userId': { $regex: ?4, $options: 'i' } } ] }")
+  Collection<MongoEvent> findByTenantIdAndOrganizationIdAndClassIdAndUserIdKeyOrPattern(final String tenantId, final String orgId, final String classId, final String userIdKey, final String userIdPattern);
+  @Query("{ 'tenantId': ?0, 'organizationId': ?1, $or: [ { 'userIdKey': ?2 }, { 'userIdKey': { $exists: false }, 'userId': { $regex: ?3, $options: 'i' } } ] }")
+  Collection<MongoEvent> findByTenantIdAndOrganizationIdAndUserIdKeyOrPattern(final String tenantId, final String orgId, final String userIdKey, final String userIdPattern);
 
+  default Collection<MongoEvent> findByTenantIdAndOrganizationIdAndClassIdAndUserIdIgnoreCase(final String tenantId, final String orgId, final String classId, final String userId) {
+    return findByTenantIdAndOrganizationIdAndClassIdAndUserIdKeyOrPattern(tenantId, orgId, classId, CaseInsensitiveKey.of(userId), CaseInsensitiveKey.pattern(userId));
+  }
+
+  default Collection<MongoEvent> findByTenantIdAndOrganizationIdAndUserIdIgnoreCase(final String tenantId, final String orgId, final String userId) {
+    return findByTenantIdAndOrganizationIdAndUserIdKeyOrPattern(tenantId, orgId, CaseInsensitiveKey.of(userId), CaseInsensitiveKey.pattern(userId));
+  }
 
 }
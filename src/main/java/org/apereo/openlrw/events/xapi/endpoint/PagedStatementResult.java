@@ -0,0 +1,29 @@
+package org.apereo.openlrw.events.xapi.endpoint;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.apereo.openlrw.xapi.Statement;
+
+import java.util.List;
+
+/**
+ * A StatementResult and its more link, the relative IRL of the next page of statements,
+ * empty on the last page.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PagedStatementResult {
+  private final List<Statement> statements;
+  private final String more;
+
+  public PagedStatementResult(List<Statement> statements, String more) {
+    this.statements = statements;
+    this.more = more;
+  }
+
+  public List<Statement> getStatements() {
+    return statements;
+  }
+
+  public String getMore() {
+    return more;
+  }
+}
@@ -3,24 +3,42 @@ package org.apereo.openlrw.events.xapi.endpoint;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.events.service.BatchSaveResult;
+import org.apereo.openlrw.events.service.EventCursor;
+import org.apereo.openlrw.events.service.EventPage;
 import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.oneroster.service.OrgCredentialCache;
 import org.apereo.openlrw.oneroster.service.repository.MongoOrg;
-import org.apereo.openlrw.oneroster.service.repository.MongoOrgRepository;
 import org.apereo.openlrw.security.AuthorizationUtils;
 import org.apereo.openlrw.events.xapi.exception.InvalidXAPIRequestException;
 import org.apereo.openlrw.events.xapi.service.XapiConversionService;
+import org.apereo.openlrw.events.xapi.service.XapiStatementExportService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.apereo.openlrw.caliper.Event;
 import org.apereo.openlrw.xapi.Statement;
 import org.apereo.openlrw.xapi.StatementResult;
+import org.apereo.openlrw.xapi.XApiActor;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * @author ggilbert
@@ -30,12 +48,16 @@ import java.util.*;
 @RequestMapping("/xAPI/statements")
 public class XapiApiController {
   private final Logger logger = LoggerFactory.getLogger(XapiApiController.class);
+
+  /** most statements returned by a GET */
+  private static final int MAX_LIMIT = 1000;
   
   @Autowired private ObjectMapper objectMapper;
   @Autowired private Validator validator;
   @Autowired private XapiConversionService xapiToCaliperConversionService;
-  @Autowired private MongoOrgRepository mongoOrgRepository;
+  @Autowired private OrgCredentialCache orgCredentialCache;
   @Autowired private EventService eventService;
+  @Autowired private XapiStatementExportService xapiStatementExportService;
 
   @RequestMapping(value = { "", "/" }, method = RequestMethod.POST, consumes = "application/json", produces = "application/json;charset=utf-8")
   public List<String> postStatement(@RequestBody String json, @RequestHeader(value="Authorization") String authorizationHeader) throws InvalidXAPIRequestException {
@@ -44,7 +66,7 @@ public class XapiApiController {
     String secret = AuthorizationUtils.getSecretFromHeader(authorizationHeader);
     
     if (StringUtils.isNotBlank(key)) {
-      MongoOrg mongoOrg = mongoOrgRepository.findByApiKeyAndApiSecret(key, secret);
+      MongoOrg mongoOrg = orgCredentialCache.findByApiKeyAndApiSecret(key, secret);
       if (mongoOrg != null) { 
         try {
           if (json != null && StringUtils.isNotBlank(json)) {
@@ -60,24 +82,46 @@ public class XapiApiController {
               throw new InvalidXAPIRequestException(e);
             }
 
-            for (Statement statement : statements) {
-              Set<ConstraintViolation<Statement>> violations = validator.validate(statement);
-              if (!violations.isEmpty()) {
-                StringBuilder msg = new StringBuilder();
-                for (ConstraintViolation<Statement> cv : violations)
-                  msg.append(cv.getMessage()).append(", ");
-                throw new InvalidXAPIRequestException(msg.toString());
+            String tenantId = mongoOrg.getTenantId();
+            List<ConvertedStatement> converted = statements.parallelStream()
+                .map(statement -> convert(tenantId, statement))
+                .collect(Collectors.toList());
+
+            Set<String> eventIds = new HashSet<>();
+            for (ConvertedStatement statement : converted) {
+              if (statement.event != null && StringUtils.isNotBlank(statement.event.getId()))
+                eventIds.add(statement.event.getId());
+            }
+            Set<String> existingIds = eventService.findExistingEventIds(mongoOrg.getTenantId(), mongoOrg.getOrg().getSourcedId(), eventIds);
+
+            // the statements before the first invalid one are saved, as when they were saved one at a time
+            List<Event> events = new ArrayList<>(converted.size());
+            Set<String> batchIds = new HashSet<>();
+            RuntimeException failure = null;
+            for (ConvertedStatement statement : converted) {
+              if (statement.failure != null) {
+                failure = statement.failure;
+                break;
               }
-              logger.debug("Statement POST request received with input statement: {}", statement);
-              Event event = xapiToCaliperConversionService.fromXapi(statement);
-              logger.debug("{}", event);
-              if (StringUtils.isNotBlank(event.getId())) {
-                Event existingEvent = eventService.getEventForId(mongoOrg.getTenantId(), mongoOrg.getId(), event.getId());
-                if (existingEvent != null)
-                  throw new InvalidXAPIRequestException(String.format("Event with ID %s already exists", event.getId()));
+              String eventId = statement.event.getId();
+              if (StringUtils.isNotBlank(eventId) && (existingIds.contains(eventId) || !batchIds.add(eventId))) {
+                failure = new InvalidXAPIRequestException(String.format("Event with ID %s already exists", eventId));
+                break;
               }
-              ids.add(eventService.save(mongoOrg.getTenantId(), mongoOrg.getOrg().getSourcedId(), event));
+              events.add(statement.event);
             }
+
+            if (!events.isEmpty()) {
+              BatchSaveResult result = eventService.saveAll(mongoOrg.getTenantId(), mongoOrg.getOrg().getSourcedId(), events);
+              if (result.getBatchError() != null)
+                throw result.getBatchError();
+              if (result.hasFailures())
+                throw new InvalidXAPIRequestException(result.getFailures().values().iterator().next());
+              ids.addAll(result.getIds());
+            }
+
+            if (failure != null)
+              throw failure;
           }
         } catch (Exception e) {
           logger.error(e.getMessage(), e);
@@ -92,43 +136,181 @@ public class XapiApiController {
 
     return ids;
   }
+
+  /**
+   * Validates and converts a statement, on any thread
+   */
+  private ConvertedStatement convert(String tenantId, Statement statement) {
+    try {
+      Set<ConstraintViolation<Statement>> violations = validator.validate(statement);
+      if (!violations.isEmpty()) {
+        StringBuilder msg = new StringBuilder();
+        for (ConstraintViolation<Statement> cv : violations)
+          msg.append(cv.getMessage()).append(", ");
+        throw new InvalidXAPIRequestException(msg.toString());
+      }
+      logger.debug("Statement POST request received with input statement: {}", statement);
+      Event event = xapiToCaliperConversionService.fromXapi(tenantId, statement);
+      logger.debug("{}", event);
+      return new ConvertedStatement(event, null);
+    } catch (RuntimeException e) {
+      return new ConvertedStatement(null, e);
+    }
+  }
+
+  private static final class ConvertedStatement {
+    private final Event event;
+    private final RuntimeException failure;
+
+    ConvertedStatement(Event event, RuntimeException failure) {
+      this.event = event;
+      this.failure = failure;
+    }
+  }
   
-  @RequestMapping(method = RequestMethod.GET, produces = "application/json;charset=utf-8")
-  public StatementResult getStatements(
+  @RequestMapping(method = RequestMethod.GET, params = "statementId", produces = "application/json;charset=utf-8")
+  public StatementResult getStatement(
       @RequestHeader(value="Authorization") String authorizationHeader,
-      @RequestParam(value = "statementId", required = false) String statementId,
-      @RequestParam(value = "page", required = false, defaultValue = "0") String page,
-      @RequestParam(value = "limit", required = false, defaultValue = "1000") String limit) throws URISyntaxException {
-    StatementResult statementResult = null;
+      @RequestParam(value = "statementId") String statementId) throws URISyntaxException {
+    MongoOrg mongoOrg = findOrg(authorizationHeader);
+
+    Event event = eventService.getEventForId(mongoOrg.getTenantId(), mongoOrg.getOrg().getSourcedId(), statementId);
+    if (event == null)
+      throw new InvalidXAPIRequestException(String.format("No statement with id %s",statementId));
+
+    Statement statement = xapiToCaliperConversionService.toXapi(mongoOrg.getTenantId(), event);
+    return new StatementResult(Collections.singletonList(statement));
+  }
+
+  /**
+   * Get the statements matching the xAPI query parameters, one page at a time.
+   * Only the statements of the page are converted. As in xAPI, since, until and ascending
+   * are on the time the statements were stored, matched to the second.
+   *
+   * @param authorizationHeader
+   * @param agent (optional) JSON of an agent
+   * @param verb (optional) IRI of a verb
+   * @param activity (optional) id of an activity, the object of the statements
+   * @param since (optional) timestamp, statements stored after it
+   * @param until (optional) timestamp, statements stored at or before it
+   * @param limit maximum number of statements, 0 for the server maximum
+   * @param ascending from the first stored to the last
+   * @param cursor (optional) given by the more link of the previous page
+   * @return the statements and the more link of the next page
+   */
+  @RequestMapping(method = RequestMethod.GET, params = "!statementId", produces = "application/json;charset=utf-8")
+  public PagedStatementResult getStatements(
+      @RequestHeader(value="Authorization") String authorizationHeader,
+      @RequestParam(value = "agent", required = false) String agent,
+      @RequestParam(value = "verb", required = false) String verb,
+      @RequestParam(value = "activity", required = false) String activity,
+      @RequestParam(value = "since", required = false) String since,
+      @RequestParam(value = "until", required = false) String until,
+      @RequestParam(value = "limit", required = false, defaultValue = "0") String limit,
+      @RequestParam(value = "ascending", required = false, defaultValue = "false") boolean ascending,
+      @RequestParam(value = "cursor", required = false) String cursor) throws URISyntaxException {
+    MongoOrg mongoOrg = findOrg(authorizationHeader);
+
+    String agentId = null;
+    if (StringUtils.isNotBlank(agent)) {
+      try {
+        agentId = xapiToCaliperConversionService.toCaliperAgentId(objectMapper.readValue(agent, XApiActor.class));
+      } catch (IOException e) {
+        throw new InvalidXAPIRequestException("Invalid agent", e);
+      }
+      if (agentId == null)
+        throw new InvalidXAPIRequestException("Invalid agent");
+    }
+    String action = StringUtils.isBlank(verb) ? null : xapiToCaliperConversionService.toCaliperAction(mongoOrg.getTenantId(), verb);
+
+    EventPage<Event> events = eventService.findEvents(mongoOrg.getTenantId(), mongoOrg.getOrg().getSourcedId(), agentId, action, activity,
+        parseTimestamp(since), parseTimestamp(until), parseLimit(limit), ascending, cursor);
+
+    List<Statement> statements = new ArrayList<>(events.getEvents().size());
+    for (Event e : events.getEvents())
+      statements.add(xapiToCaliperConversionService.toXapi(mongoOrg.getTenantId(), e));
+
+    return new PagedStatementResult(statements, events.getNext() == null ? "" : moreLink(events.getNext()));
+  }
+
+  /**
+   * Export the statements as a single StatementResult, in the order they were stored, converted
+   * while they are written. The more link gives the statements stored after the export.
+   *
+   * @param authorizationHeader
+   * @param since (optional) timestamp, statements stored after it
+   * @param cursor (optional) given by the more link of a previous export, replaces since
+   * @return
+   */
+  @RequestMapping(value = "/export", method = RequestMethod.GET, produces = "application/json;charset=utf-8")
+  public ResponseEntity<StreamingResponseBody> exportStatements(
+      @RequestHeader(value="Authorization") String authorizationHeader,
+      @RequestParam(value = "since", required = false) String since,
+      @RequestParam(value = "cursor", required = false) String cursor) {
+    MongoOrg mongoOrg = findOrg(authorizationHeader);
+    Instant sinceTime = parseTimestamp(since);
+    // the request is gone once the body is written
+    UriComponentsBuilder more = ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("since");
+
+    HttpHeaders httpHeaders = new HttpHeaders();
+    httpHeaders.setContentType(MediaType.parseMediaType("application/json;charset=utf-8"));
+
+    StreamingResponseBody body = out -> {
+      long exported = xapiStatementExportService.export(mongoOrg.getTenantId(), mongoOrg.getOrg().getSourcedId(), sinceTime, cursor,
+          next -> relative(more.cloneBuilder().replaceQueryParam("cursor", next.encode()).build()), out);
+      logger.info("Exported {} statements for org {}", exported, mongoOrg.getOrg().getSourcedId());
+    };
+    return new ResponseEntity<>(body, httpHeaders, HttpStatus.OK);
+  }
+
+  private MongoOrg findOrg(String authorizationHeader) {
     String key = AuthorizationUtils.getKeyFromHeader(authorizationHeader);
     String secret = AuthorizationUtils.getSecretFromHeader(authorizationHeader);
-    
-    if (StringUtils.isNotBlank(key)) {
-      MongoOrg mongoOrg = mongoOrgRepository.findByApiKeyAndApiSecret(key, secret);
 
-      if (mongoOrg != null) { 
-        if (StringUtils.isNotBlank(statementId)) {
-          Event event = eventService.getEventForId(mongoOrg.getTenantId(), mongoOrg.getId(), statementId);
-          if (event == null)
-            throw new InvalidXAPIRequestException(String.format("No statement with id %s",statementId));
-
-          Statement statement = xapiToCaliperConversionService.toXapi(event);
-          statementResult = new StatementResult(Collections.singletonList(statement));
-        } else {
-          Collection<Event> events = eventService.getEvents(mongoOrg.getTenantId(), mongoOrg.getId());
-          if (events != null && !events.isEmpty()) {
-            List<Statement> statements = new ArrayList<>();
-            for (Event e : events)
-              statements.add(xapiToCaliperConversionService.toXapi(e));
-            statementResult = new StatementResult(statements);
-          }
-        }
-      } else {
-        throw new InvalidXAPIRequestException(String.format("Unknown Tenant %s",key));
-      }
-    } else {
+    if (StringUtils.isBlank(key))
       throw new InvalidXAPIRequestException("Missing Authorization Header");
+
+    MongoOrg mongoOrg = orgCredentialCache.findByApiKeyAndApiSecret(key, secret);
+    if (mongoOrg == null)
+      throw new InvalidXAPIRequestException(String.format("Unknown Tenant %s",key));
+    return mongoOrg;
+  }
+
+  /**
+   * @return the path and query of this request, reading the page after the cursor
+   */
+  private static String moreLink(EventCursor next) {
+    return relative(ServletUriComponentsBuilder.fromCurrentRequest()
+        .replaceQueryParam("cursor", next.encode())
+        .build());
+  }
+
+  /**
+   * @return the path and query, a more link excluding the scheme, host and port
+   */
+  private static String relative(UriComponents uri) {
+    return uri.getPath() + "?" + uri.getQuery();
+  }
+
+  private static Instant parseTimestamp(String timestamp) {
+    if (StringUtils.isBlank(timestamp))
+      return null;
+
+    try {
+      return OffsetDateTime.parse(timestamp).toInstant();
+    } catch (DateTimeParseException e) {
+      throw new InvalidXAPIRequestException(String.format("Invalid timestamp %s", timestamp), e);
+    }
+  }
+
+  private static int parseLimit(String limit) {
+    try {
+      int value = Integer.parseInt(limit);
+      if (value < 0)
+        throw new InvalidXAPIRequestException(String.format("Invalid limit %s", limit));
+      return value == 0 || value > MAX_LIMIT ? MAX_LIMIT : value;
+    } catch (NumberFormatException e) {
+      throw new InvalidXAPIRequestException(String.format("Invalid limit %s", limit), e);
     }
-    return statementResult;
   }
 }
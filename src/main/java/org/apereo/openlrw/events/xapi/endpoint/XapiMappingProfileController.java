@@ -0,0 +1,81 @@
+package org.apereo.openlrw.events.xapi.endpoint;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.common.exception.BadRequestException;
+import org.apereo.openlrw.events.xapi.service.XapiMappingRegistry;
+import org.apereo.openlrw.events.xapi.service.repository.XapiMappingProfile;
+import org.apereo.openlrw.tenant.service.TenantCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * xAPI mapping profiles of the tenants, restricted to the super admins.
+ * A saved or deleted profile is used right away by this instance, the other ones picking it up at their next
+ * refresh, see {@link XapiMappingRegistry#refresh()}.
+ */
+@RestController
+@RequestMapping("/api/admin/xapi/profiles")
+public class XapiMappingProfileController {
+
+  private final XapiMappingRegistry xapiMappingRegistry;
+  private final TenantCache tenantCache;
+
+  @Autowired
+  public XapiMappingProfileController(XapiMappingRegistry xapiMappingRegistry, TenantCache tenantCache) {
+    this.xapiMappingRegistry = xapiMappingRegistry;
+    this.tenantCache = tenantCache;
+  }
+
+  @RequestMapping(method = RequestMethod.GET)
+  public List<XapiMappingProfile> get() {
+    return xapiMappingRegistry.findAll();
+  }
+
+  @RequestMapping(value = "/{tenantId}", method = RequestMethod.GET)
+  public ResponseEntity<XapiMappingProfile> getOne(@PathVariable final String tenantId) {
+    return xapiMappingRegistry.findByTenantId(tenantId)
+        .map(ResponseEntity::ok)
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Replaces the profile of its tenant
+   *
+   * @param profile
+   * @return the saved profile
+   */
+  @RequestMapping(method = RequestMethod.PUT)
+  public XapiMappingProfile put(@RequestBody XapiMappingProfile profile) {
+    if (StringUtils.isBlank(profile.getTenantId()))
+      throw new BadRequestException("The profile has no tenantId");
+    if (!tenantCache.findById(profile.getTenantId()).isPresent())
+      throw new BadRequestException("Unknown tenant " + profile.getTenantId());
+
+    try {
+      return xapiMappingRegistry.save(profile);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+  }
+
+  @RequestMapping(value = "/{tenantId}", method = RequestMethod.DELETE)
+  public ResponseEntity<Void> delete(@PathVariable final String tenantId) {
+    xapiMappingRegistry.delete(tenantId);
+    return ResponseEntity.noContent().build();
+  }
+
+  /**
+   * Compiles the stored profiles again, e.g. once another instance saved one
+   *
+   * @return the number of tenants having a profile
+   */
+  @RequestMapping(value = "/reload", method = RequestMethod.POST)
+  public Map<String, Integer> reload() {
+    return Collections.singletonMap("profiles", xapiMappingRegistry.reload());
+  }
+}
@@ -1,24 +1,21 @@
 package org.apereo.openlrw.events.xapi.service;
 
-import org.apache.commons.collections4.BidiMap;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.collections4.bidimap.DualHashBidiMap;
 import org.apache.commons.lang3.StringUtils;
 import org.apereo.openlrw.caliper.*;
 import org.apereo.openlrw.xapi.*;
-import org.imsglobal.caliper.actions.Action;
 import org.imsglobal.caliper.context.Context;
-import org.imsglobal.caliper.entities.DigitalResourceType;
 import org.imsglobal.caliper.entities.EntityType;
-import org.imsglobal.caliper.entities.Type;
 import org.imsglobal.caliper.events.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author ggilbert
@@ -28,111 +25,24 @@ import java.util.*;
 @Component
 public class DefaultXapiToCaliperConversionService implements XapiConversionService {
   
-  private BidiMap<Action, String> verbActionMap;
-  private BidiMap<Type, String> objectEntityMap;
-  private Map<Action, EventType> actionEventMap;
+  private final XapiMappingRegistry xapiMappingRegistry;
+  /** extension keys already parsed, shared by the statements */
+  private final ConcurrentMap<String, URI> extensionKeys = new ConcurrentHashMap<>();
+
+  private static final int MAX_EXTENSION_KEYS = 10000;
   private static final String ACTOR_TYPE_MBOX = "foaf:mbox";
   private static final String ACTOR_TYPE_OPENID = "http://openid.net/";
   private static final String ACTOR_TYPE_ACCOUNT = "https://github.com/adlnet/xAPI-Spec/blob/master/xAPI.md#agentaccount";
   private static final String DEFAULT_XAPI_VERB = "http://adlnet.gov/expapi/verbs/experienced";
   
-  @PostConstruct
-  private void init() {
-    verbActionMap = new DualHashBidiMap<>();
-    verbActionMap.put(Action.ABANDONED, "https://w3id.org/xapi/adl/verbs/abandoned");
-    verbActionMap.put(Action.ATTACHED, "http://activitystrea.ms/schema/1.0/attach");    
-    verbActionMap.put(Action.BOOKMARKED, "http://id.tincanapi.com/verb/bookmarked");
-    verbActionMap.put(Action.COMMENTED, "http://adlnet.gov/expapi/verbs/commented");
-    verbActionMap.put(Action.COMPLETED, "http://adlnet.gov/expapi/verbs/completed");
-    verbActionMap.put(Action.DISLIKED, "http://activitystrea.ms/schema/1.0/dislike");
-    verbActionMap.put(Action.GRADED, "http://adlnet.gov/expapi/verbs/scored");
-    verbActionMap.put(Action.LIKED, "http://activitystrea.ms/schema/1.0/like");
-    verbActionMap.put(Action.LOGGED_IN, "https://brindlewaye.com/xAPITerms/verbs/loggedin/");
-    verbActionMap.put(Action.LOGGED_OUT, "https://brindlewaye.com/xAPITerms/verbs/loggedout/");
-    verbActionMap.put(Action.PAUSED, "http://id.tincanapi.com/verb/paused");
-    verbActionMap.put(Action.QUESTIONED, "http://adlnet.gov/expapi/verbs/asked");
-    verbActionMap.put(Action.REPLIED, "http://adlnet.gov/expapi/verbs/responded");
-    verbActionMap.put(Action.RESUMED, "http://adlnet.gov/expapi/verbs/resumed");
-    verbActionMap.put(Action.REVIEWED, "http://id.tincanapi.com/verb/reviewed");
-    verbActionMap.put(Action.SEARCHED, "http://activitystrea.ms/schema/1.0/search");
-    verbActionMap.put(Action.SHARED, "http://activitystrea.ms/schema/1.0/share");
-    verbActionMap.put(Action.SKIPPED, "http://id.tincanapi.com/verb/skipped");
-    verbActionMap.put(Action.STARTED, "http://activitystrea.ms/schema/1.0/start");
-    verbActionMap.put(Action.SUBMITTED, "http://activitystrea.ms/schema/1.0/submit");
-    verbActionMap.put(Action.TAGGED, "http://activitystrea.ms/schema/1.0/tag");
-    verbActionMap.put(Action.VIEWED, "http://id.tincanapi.com/verb/viewed");
-    
-    objectEntityMap = new DualHashBidiMap<>();
-    // ToDo support other xapi annotation types
-    objectEntityMap.put(EntityType.ANNOTATION, "http://risc-inc.com/annotator/activities/highlight");
-    objectEntityMap.put(EntityType.COURSE_SECTION, "http://adlnet.gov/expapi/activities/course");
-    objectEntityMap.put(EntityType.DIGITAL_RESOURCE, "http://adlnet.gov/expapi/activities/media");
-    objectEntityMap.put(EntityType.GROUP, "http://activitystrea.ms/schema/1.0/group");
-    objectEntityMap.put(EntityType.LEARNING_OBJECTIVE, "http://adlnet.gov/expapi/activities/objective");
-    objectEntityMap.put(EntityType.PERSON, "http://activitystrea.ms/schema/1.0/person");
-    objectEntityMap.put(EntityType.ORGANIZATION, "http://activitystrea.ms/schema/1.0/organization");
-    objectEntityMap.put(EntityType.SOFTWARE_APPLICATION, "http://activitystrea.ms/schema/1.0/application");
-    objectEntityMap.put(DigitalResourceType.MEDIA_OBJECT, "http://adlnet.gov/expapi/activities/media");
-    objectEntityMap.put(DigitalResourceType.WEB_PAGE, "http://activitystrea.ms/schema/1.0/page");
-    
-    actionEventMap = new HashMap<>();
-    actionEventMap.put(Action.ABANDONED, EventType.ASSIGNABLE);
-    actionEventMap.put(Action.ACTIVATED, EventType.ASSIGNABLE);
-    actionEventMap.put(Action.ATTACHED, EventType.ANNOTATION);    
-    actionEventMap.put(Action.BOOKMARKED, EventType.ANNOTATION);
-    actionEventMap.put(Action.CHANGED_RESOLUTION, EventType.MEDIA);
-    actionEventMap.put(Action.CHANGED_SIZE, EventType.MEDIA);
-    actionEventMap.put(Action.CHANGED_VOLUME, EventType.MEDIA);
-    actionEventMap.put(Action.CLASSIFIED, EventType.ANNOTATION);
-    actionEventMap.put(Action.CLOSED_POPOUT, EventType.MEDIA);
-    actionEventMap.put(Action.COMMENTED, EventType.ANNOTATION);
-    actionEventMap.put(Action.COMPLETED, EventType.ASSIGNABLE);
-    actionEventMap.put(Action.DEACTIVATED, EventType.ASSIGNABLE);
-    actionEventMap.put(Action.DESCRIBED, EventType.ANNOTATION);
-    actionEventMap.put(Action.DISLIKED, EventType.ANNOTATION);
-    actionEventMap.put(Action.DISABLED_CLOSED_CAPTIONING, EventType.MEDIA);
-    actionEventMap.put(Action.ENABLED_CLOSED_CAPTIONING, EventType.MEDIA);
-    actionEventMap.put(Action.ENDED, EventType.MEDIA);
-    actionEventMap.put(Action.ENTERED_FULLSCREEN, EventType.MEDIA);
-    actionEventMap.put(Action.EXITED_FULLSCREEN, EventType.MEDIA);
-    actionEventMap.put(Action.FORWARDED_TO, EventType.MEDIA);
-    actionEventMap.put(Action.GRADED, EventType.OUTCOME);
-    actionEventMap.put(Action.HID, EventType.ASSIGNABLE);
-    actionEventMap.put(Action.HIGHLIGHTED, EventType.ANNOTATION);
-    actionEventMap.put(Action.JUMPED_TO, EventType.MEDIA);
-    actionEventMap.put(Action.IDENTIFIED, EventType.ANNOTATION);
-    actionEventMap.put(Action.LIKED, EventType.ANNOTATION);
-    actionEventMap.put(Action.LINKED, EventType.ANNOTATION);
-    actionEventMap.put(Action.LOGGED_IN, EventType.SESSION);
-    actionEventMap.put(Action.LOGGED_OUT, EventType.SESSION);   
-    actionEventMap.put(Action.MUTED, EventType.MEDIA);
-    actionEventMap.put(Action.NAVIGATED_TO, EventType.NAVIGATION);
-    actionEventMap.put(Action.OPENED_POPOUT, EventType.MEDIA);
-    actionEventMap.put(Action.PAUSED, EventType.MEDIA);
-    actionEventMap.put(Action.RANKED, EventType.ANNOTATION);
-    actionEventMap.put(Action.QUESTIONED, EventType.ANNOTATION);
-    actionEventMap.put(Action.RECOMMENDED, EventType.ANNOTATION);
-    actionEventMap.put(Action.REPLIED, EventType.ANNOTATION);
-    actionEventMap.put(Action.RESTARTED, EventType.ASSESSMENT);
-    actionEventMap.put(Action.RESUMED, EventType.MEDIA);
-    actionEventMap.put(Action.REVIEWED, EventType.ASSIGNABLE);
-    actionEventMap.put(Action.REWOUND, EventType.MEDIA);
-    actionEventMap.put(Action.SEARCHED, EventType.READING);
-    actionEventMap.put(Action.SHARED, EventType.ANNOTATION);
-    actionEventMap.put(Action.SHOWED, EventType.ASSIGNABLE);
-    actionEventMap.put(Action.SKIPPED, EventType.ASSESSMENT_ITEM);
-    actionEventMap.put(Action.STARTED, EventType.EVENT);
-    actionEventMap.put(Action.SUBMITTED, EventType.EVENT);
-    actionEventMap.put(Action.SUBSCRIBED, EventType.ANNOTATION);
-    actionEventMap.put(Action.TAGGED, EventType.ANNOTATION);
-    actionEventMap.put(Action.TIMED_OUT, EventType.SESSION);
-    actionEventMap.put(Action.VIEWED, EventType.EVENT);
-    actionEventMap.put(Action.UNMUTED, EventType.MEDIA);
-
+  @Autowired
+  public DefaultXapiToCaliperConversionService(XapiMappingRegistry xapiMappingRegistry) {
+    this.xapiMappingRegistry = xapiMappingRegistry;
   }
 
-
-  public Event fromXapi(Statement statement) {
+  @Override
+  public Event fromXapi(String tenantId, Statement statement) {
+    XapiMapping mapping = xapiMappingRegistry.get(tenantId);
     LocalDateTime eventTime;
     String timestamp = statement.getTimestamp(); 
     if (StringUtils.isNotBlank(timestamp)) {
@@ -158,34 +68,18 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
       Map<String, String> actorExtensions = new HashMap<>();
       String actorName = xapiActor.getName();
       
-      String openId = xapiActor.getOpenid();
-      String mbox = xapiActor.getMbox();
       XApiAccount xapiAccount = xapiActor.getAccount();
+      actorId = toCaliperAgentId(xapiActor);
       
-      if (StringUtils.isNotBlank(openId)) {
-        actorId = openId;
+      if (StringUtils.isNotBlank(xapiActor.getOpenid())) {
         actorType = ACTOR_TYPE_OPENID;
       }
-      else if (StringUtils.isNotBlank(mbox)) {
-        actorId = mbox;
+      else if (StringUtils.isNotBlank(xapiActor.getMbox())) {
         actorType = ACTOR_TYPE_MBOX;
       }
       else if (xapiAccount != null) {
-        String accountName = xapiAccount.getName();
-        String homePage = xapiAccount.getHomePage();
-        
-        if (StringUtils.isNotBlank(homePage)) {
-          
-          if (StringUtils.isNotBlank(accountName)) {
-            actorId = accountName;
-            actorExtensions.put("HOMEPAGE", homePage);
-          }
-          else {
-            actorId = homePage;
-          }
-        }
-        else if (StringUtils.isNotBlank(accountName)) {
-          actorId = accountName;
+        if (StringUtils.isNotBlank(xapiAccount.getHomePage()) && StringUtils.isNotBlank(xapiAccount.getName())) {
+          actorExtensions.put("HOMEPAGE", xapiAccount.getHomePage());
         }
         
         actorType = ACTOR_TYPE_ACCOUNT;
@@ -235,10 +129,19 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
     
     // ACTION
     String caliperAction = null;
+    // default to event, change if there is something more specific
+    String caliperType = EventType.EVENT.getValue();
     XApiVerb xapiVerb = statement.getVerb();
     if (xapiVerb != null) {
       String verbId = xapiVerb.getId();
-      caliperAction = xApiVerbToCaliperAction(verbId);
+      XapiMapping.VerbMapping verbMapping = mapping.verb(verbId);
+      if (verbMapping != null) {
+        caliperAction = verbMapping.action;
+        caliperType = verbMapping.eventType;
+      }
+      else {
+        caliperAction = verbId;
+      }
     }
     // ACTION END
     
@@ -247,7 +150,7 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
     XApiObject xapiObject = statement.getObject();
     if (xapiObject != null) {
       
-      String objectType = xapiObjectTypeToCaliperEntityType(null);
+      String objectType = xapiObjectTypeToCaliperEntityType(mapping, null);
       String objectName = null;
       String objectDescription = null;
       Map<String,String> objectExtensions = null;
@@ -257,7 +160,7 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
       if (xapiObjectDefinition != null) {
         String xapiObjectDefinitionType = xapiObjectDefinition.getType();
         if (StringUtils.isNotBlank(xapiObjectDefinitionType)) {
-          objectType = xapiObjectTypeToCaliperEntityType(xapiObjectDefinitionType);
+          objectType = xapiObjectTypeToCaliperEntityType(mapping, xapiObjectDefinitionType);
         }
         
         Map<String,String> names = xapiObjectDefinition.getName();
@@ -319,8 +222,8 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
       if (xapiContextActivities != null) {       
         List<XApiObject> contextActivityParents = xapiContextActivities.getParent();
         
-        if (contextActivityParents != null && contextActivityParents.size() == 1
-            && contextActivityParents.get(0).getId().contains("portal/site")) {
+        if (mapping.getSiteParentMarker() != null && contextActivityParents != null && contextActivityParents.size() == 1
+            && contextActivityParents.get(0).getId().contains(mapping.getSiteParentMarker())) {
           caliperGroup 
             = new Group.Builder()
               .withId(StringUtils.substringAfterLast(contextActivityParents.get(0).getId(), "/"))
@@ -339,17 +242,11 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
             if (groupings.size() == 1) {
               grouping = groupings.get(0);
               
-              if (extensions != null) {
-                Object paramMap = null;
-                try {
-                  paramMap = extensions.get(new URI("http://lrs.learninglocker.net/define/extensions/moodle_logstore_standard_log"));
-                } 
-                catch (URISyntaxException e) {
-                  // TODO
-                }
+              if (extensions != null && mapping.getCourseContextExtension() != null) {
+                Object paramMap = extensions.get(mapping.getCourseContextExtension());
                 if (paramMap != null && paramMap instanceof Map) {
                   Map<String, String> groupExtMap = (Map<String, String>)paramMap;
-                  id = groupExtMap.get("courseid");
+                  id = groupExtMap.get(mapping.getCourseContextIdField());
                   type = "http://purl.imsglobal.org/caliper/v1/lis/CourseSection";
                 }
               }
@@ -359,20 +256,14 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
                 grouping = xo;
                 XApiObjectDefinition xapiObjectDefinition = xo.getDefinition();
                 if (xapiObjectDefinition != null) {
-                  if ("http://lrs.learninglocker.net/define/type/moodle/course".equals(xapiObjectDefinition.getType())) {               
+                  if (mapping.getCourseGroupingType() != null && mapping.getCourseGroupingType().equals(xapiObjectDefinition.getType())) {               
                     type = "http://purl.imsglobal.org/caliper/v1/lis/CourseSection";                 
                     Map<URI, Object> groupExt = xapiObjectDefinition.getExtensions();
-                    if (groupExt != null) {
-                      try {
-                        Object paramMap = groupExt.get(new URI("http://lrs.learninglocker.net/define/extensions/moodle_course"));
-                        if (paramMap instanceof Map) {
-                          Map<String, String> groupExtMap = (Map<String, String>)paramMap;
-                          id = groupExtMap.get("id");
-                        }
-                        
-                      } 
-                      catch (URISyntaxException e) {
-                        //TODO
+                    if (groupExt != null && mapping.getCourseGroupingExtension() != null) {
+                      Object paramMap = groupExt.get(mapping.getCourseGroupingExtension());
+                      if (paramMap instanceof Map) {
+                        Map<String, String> groupExtMap = (Map<String, String>)paramMap;
+                        id = groupExtMap.get(mapping.getCourseGroupingIdField());
                       }
                     }
                     
@@ -530,14 +421,16 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
         .withAgent(caliperActor)
         .withObject(caliperObject)
         .withEventTime(instant)
-        .withContext(xapiToCaliperType(statement))
+        .withContext(caliperType)
         .withGroup(caliperGroup)
         .withGenerated(caliperResult)
         .build();
     
   }
   
-  public Statement toXapi(Event event) throws URISyntaxException {
+  @Override
+  public Statement toXapi(String tenantId, Event event) throws URISyntaxException {
+    XapiMapping mapping = xapiMappingRegistry.get(tenantId);
     Statement statement = new Statement();
     statement.setId(event.getId());
     
@@ -590,7 +483,7 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
       if (caliperResultExtensions != null && !caliperResultExtensions.isEmpty()) {
         xapiResultExtensions = new HashMap<>();
         for (Map.Entry<String,String> entry : caliperResultExtensions.entrySet()) {
-          xapiResultExtensions.put(new URI(entry.getKey()), entry.getValue());
+          xapiResultExtensions.put(extensionKey(entry.getKey()), entry.getValue());
         }
         
         XApiResult xapiResult = new XApiResult();
@@ -605,7 +498,7 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
     String action = event.getAction();
     if (StringUtils.isNotBlank(action)) {
       XApiVerb xapiVerb = new XApiVerb();
-      xapiVerb.setId(caliperActionToXapiVerb(action));
+      xapiVerb.setId(caliperActionToXapiVerb(mapping, action));
       statement.setVerb(xapiVerb);
     }
     // ACTION END
@@ -627,13 +520,13 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
         xapiObjectDefinition.setDescription(Collections.singletonMap("en", description));
       }
       
-      xapiObjectDefinition.setType(caliperEntityTypeToXapiObjectType(object.getType()));
+      xapiObjectDefinition.setType(mapping.objectTypeOf(object.getType()));
       
       Map<String,String> extensions = object.getExtensions();
       if (extensions != null && !extensions.isEmpty()) {
         Map<URI, java.lang.Object> xapiExtensions = new HashMap<>();
         for (String key : extensions.keySet()) {
-          xapiExtensions.put(new URI(key), extensions.get(key));
+          xapiExtensions.put(extensionKey(key), extensions.get(key));
         }
         xapiObjectDefinition.setExtensions(xapiExtensions);
       }
@@ -652,7 +545,7 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
       if (contextExtensions != null && !contextExtensions.isEmpty()) {
         Map<URI,java.lang.Object> extensions = new HashMap<>();
         for (String key : contextExtensions.keySet()) {
-          extensions.put(new URI(key), extensions.get(key));
+          extensions.put(extensionKey(key), extensions.get(key));
         }
         xapiContext.setExtensions(extensions);
       }
@@ -670,69 +563,73 @@ public class DefaultXapiToCaliperConversionService implements XapiConversionServ
     return statement;
   }
   
-  private String xApiVerbToCaliperAction(String xapiVerbId) {
-    Action caliperAction = verbActionMap.getKey(xapiVerbId);
-    if (caliperAction == null) {
-      return xapiVerbId;
+  @Override
+  public String toCaliperAction(String tenantId, String xapiVerbId) {
+    XapiMapping.VerbMapping verbMapping = xapiMappingRegistry.get(tenantId).verb(xapiVerbId);
+    return verbMapping == null ? xapiVerbId : verbMapping.action;
+  }
+
+  @Override
+  public String toCaliperAgentId(XApiActor xapiActor) {
+    String openId = xapiActor.getOpenid();
+    String mbox = xapiActor.getMbox();
+    XApiAccount xapiAccount = xapiActor.getAccount();
+    
+    if (StringUtils.isNotBlank(openId)) {
+      return openId;
+    }
+    else if (StringUtils.isNotBlank(mbox)) {
+      return mbox;
+    }
+    else if (xapiAccount != null) {
+      String accountName = xapiAccount.getName();
+      String homePage = xapiAccount.getHomePage();
+      
+      if (StringUtils.isNotBlank(accountName)) {
+        return accountName;
+      }
+      else if (StringUtils.isNotBlank(homePage)) {
+        return homePage;
+      }
     }
     
-    return caliperAction.getValue();
+    return null;
   }
   
-  private String caliperActionToXapiVerb(String caliperAction) {
-    String verb = null;
-    try {
-      verb = verbActionMap.get(Action.valueOf(caliperAction));
-      if (StringUtils.isBlank(verb)) {
-        return DEFAULT_XAPI_VERB;
-      }
-
-    }
-    catch (IllegalArgumentException e) {
+  private String caliperActionToXapiVerb(XapiMapping mapping, String caliperAction) {
+    String verb = mapping.verbOf(caliperAction);
+    if (StringUtils.isBlank(verb)) {
       return DEFAULT_XAPI_VERB;
     }
     
     return verb;
   }
   
-  private String xapiObjectTypeToCaliperEntityType(String xapiType) {
+  private String xapiObjectTypeToCaliperEntityType(XapiMapping mapping, String xapiType) {
     
     if (StringUtils.isBlank(xapiType)) {
       return EntityType.DIGITAL_RESOURCE.getValue();
     }
     
-    Type caliperType = objectEntityMap.getKey(xapiType);
+    String caliperType = mapping.entityTypeOf(xapiType);
     if (caliperType == null) {
       return xapiType;
     }
     
-    return caliperType.getValue();
+    return caliperType;
   }
   
-  private String caliperEntityTypeToXapiObjectType(String caliperType) {
-    String xapiType = objectEntityMap.get(caliperType);
-    if (StringUtils.isBlank(xapiType)) {
-      return caliperType;
+  /**
+   * @return the parsed key, parsed once for all the statements
+   */
+  private URI extensionKey(String key) throws URISyntaxException {
+    URI uri = extensionKeys.get(key);
+    if (uri == null) {
+      uri = new URI(key);
+      if (extensionKeys.size() < MAX_EXTENSION_KEYS)
+        extensionKeys.putIfAbsent(key, uri);
     }
-    
-    return xapiType;
-  }
-  
-  private String xapiToCaliperType(Statement statement) {
-    // default to event
-    String type = EventType.EVENT.getValue();
-    // change if there is something more specific
-    XApiVerb xapiVerb = statement.getVerb();
-    if (xapiVerb != null) {
-      String verbId = xapiVerb.getId();
-      Action caliperAction = verbActionMap.getKey(verbId);
-      EventType eventType = actionEventMap.get(caliperAction);
-      if (eventType != null) {
-        type = eventType.getValue();
-      }
-    }
-    
-    return type;
+    return uri;
   }
 
 
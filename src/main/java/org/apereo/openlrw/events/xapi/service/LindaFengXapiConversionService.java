@@ -1,33 +0,0 @@
-package org.apereo.openlrw.events.xapi.service;
-
-import org.apereo.openlrw.caliper.Event;
-import org.apereo.openlrw.xapi.Statement;
-
-import java.net.URISyntaxException;
-
-
-/**
- * @author ggilbert
- *
- */
-public class LindaFengXapiConversionService implements XapiConversionService {
-
-  /* (non-Javadoc)
-   * @see org.apereo.openlrs.converters.XapiConversionService#fromXapi(org.apereo.openlrs.model.xapi.Statement)
-   */
-  @Override
-  public Event fromXapi(Statement statement) {
-    // TODO Auto-generated method stub
-    return null;
-  }
-
-  /* (non-Javadoc)
-   * @see org.apereo.openlrs.converters.XapiConversionService#toXapi(org.apereo.openlrs.model.event.Event)
-   */
-  @Override
-  public Statement toXapi(Event event) throws URISyntaxException {
-    // TODO Auto-generated method stub
-    return null;
-  }
-
-}
@@ -2,14 +2,28 @@ package org.apereo.openlrw.events.xapi.service;
 
 import org.apereo.openlrw.caliper.Event;
 import org.apereo.openlrw.xapi.Statement;
+import org.apereo.openlrw.xapi.XApiActor;
 
 import java.net.URISyntaxException;
 
 
+/**
+ * Converts with the {@link XapiMapping} of the tenant
+ */
 public interface XapiConversionService {
 
-  Event fromXapi(Statement statement);
+  Event fromXapi(String tenantId, Statement statement);
 
-  Statement toXapi(Event event) throws URISyntaxException;
+  Statement toXapi(String tenantId, Event event) throws URISyntaxException;
 
-}
\ No newline at end of file
+  /**
+   * @return the action of the events converted from the statements with this verb
+   */
+  String toCaliperAction(String tenantId, String xapiVerbId);
+
+  /**
+   * @return the id of the agent of the events converted from the statements of this actor
+   */
+  String toCaliperAgentId(XApiActor xapiActor);
+
+}
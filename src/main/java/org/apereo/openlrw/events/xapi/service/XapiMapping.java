@@ -0,0 +1,334 @@
+package org.apereo.openlrw.events.xapi.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.collections4.BidiMap;
+import org.apache.commons.collections4.bidimap.DualHashBidiMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.events.xapi.service.repository.XapiMappingProfile;
+import org.apereo.openlrw.events.xapi.service.repository.XapiMappingRule;
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.entities.DigitalResourceType;
+import org.imsglobal.caliper.entities.EntityType;
+import org.imsglobal.caliper.entities.Type;
+import org.imsglobal.caliper.events.EventType;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The lookup tables and grouping fields of a {@link XapiMappingProfile}, compiled once and read
+ * without locking by every statement. {@link #DEFAULT} is the mapping of the tenants without profile.
+ */
+public final class XapiMapping {
+
+  /** the Moodle and Learning Locker mapping */
+  public static final XapiMapping DEFAULT = defaults();
+
+  /** the tables the lookups are compiled from */
+  private final ImmutableMap<String, String> verbActions;
+  private final ImmutableMap<String, String> eventTypes;
+
+  /** action and event type of the events of each mapped verb */
+  private final ImmutableMap<String, VerbMapping> verbMappings;
+  /** verb of each mapped action */
+  private final ImmutableMap<String, String> actionVerbs;
+  /** entity type of each mapped object type */
+  private final ImmutableMap<String, String> objectEntityTypes;
+  /** object type of the entity types mapped by the object type rules of a profile, the others being written as they are */
+  private final ImmutableMap<String, String> entityObjectTypes;
+
+  private final String siteParentMarker;
+  private final URI courseContextExtension;
+  private final String courseContextIdField;
+  private final String courseGroupingType;
+  private final URI courseGroupingExtension;
+  private final String courseGroupingIdField;
+
+  private XapiMapping(Map<String, String> verbActions, Map<String, String> eventTypes, Map<String, String> objectTypes,
+      Map<String, String> actionVerbs, Map<String, String> entityObjectTypes, String siteParentMarker,
+      URI courseContextExtension, String courseContextIdField, String courseGroupingType,
+      URI courseGroupingExtension, String courseGroupingIdField) {
+    this.verbActions = ImmutableMap.copyOf(verbActions);
+    this.eventTypes = ImmutableMap.copyOf(eventTypes);
+
+    ImmutableMap.Builder<String, VerbMapping> verbs = ImmutableMap.builder();
+    for (Map.Entry<String, String> verbAction : verbActions.entrySet()) {
+      String eventType = eventTypes.getOrDefault(verbAction.getValue(), EventType.EVENT.getValue());
+      verbs.put(verbAction.getKey(), new VerbMapping(verbAction.getValue(), eventType));
+    }
+    this.verbMappings = verbs.build();
+    this.actionVerbs = ImmutableMap.copyOf(actionVerbs);
+    this.objectEntityTypes = ImmutableMap.copyOf(objectTypes);
+    this.entityObjectTypes = ImmutableMap.copyOf(entityObjectTypes);
+
+    this.siteParentMarker = siteParentMarker;
+    this.courseContextExtension = courseContextExtension;
+    this.courseContextIdField = courseContextIdField;
+    this.courseGroupingType = courseGroupingType;
+    this.courseGroupingExtension = courseGroupingExtension;
+    this.courseGroupingIdField = courseGroupingIdField;
+  }
+
+  /**
+   * The rules of the profile are added to the default ones when it inherits them, replacing the
+   * default rules of the same verbs, types and actions. The verbs and object types of its rules are
+   * also the ones the events of their action and entity type are written with, the other entity
+   * types being written as object types, as with the default mapping.
+   *
+   * @param profile
+   * @return the compiled profile
+   * @throws IllegalArgumentException when a rule is incomplete or an extension is not a URI
+   */
+  public static XapiMapping compile(XapiMappingProfile profile) {
+    boolean inherit = profile.isInheritDefaults();
+    Map<String, String> verbActions = table(inherit, DEFAULT.verbActions);
+    Map<String, String> eventTypes = table(inherit, DEFAULT.eventTypes);
+    Map<String, String> objectTypes = table(inherit, DEFAULT.objectEntityTypes);
+    Map<String, String> actionVerbs = table(inherit, DEFAULT.actionVerbs);
+    Map<String, String> entityObjectTypes = new LinkedHashMap<>();
+
+    for (XapiMappingRule rule : rules(profile.getVerbs(), "verbs")) {
+      verbActions.put(rule.getFrom(), rule.getTo());
+      actionVerbs.put(rule.getTo(), rule.getFrom());
+    }
+    for (XapiMappingRule rule : rules(profile.getEventTypes(), "eventTypes")) {
+      eventTypes.put(rule.getFrom(), rule.getTo());
+    }
+    for (XapiMappingRule rule : rules(profile.getObjectTypes(), "objectTypes")) {
+      objectTypes.put(rule.getFrom(), rule.getTo());
+      entityObjectTypes.put(rule.getTo(), rule.getFrom());
+    }
+
+    return new XapiMapping(verbActions, eventTypes, objectTypes, actionVerbs, entityObjectTypes,
+        field(profile.getSiteParentMarker(), inherit, DEFAULT.siteParentMarker),
+        uri(field(profile.getCourseContextExtension(), inherit, string(DEFAULT.courseContextExtension)), "courseContextExtension"),
+        field(profile.getCourseContextIdField(), inherit, DEFAULT.courseContextIdField),
+        field(profile.getCourseGroupingType(), inherit, DEFAULT.courseGroupingType),
+        uri(field(profile.getCourseGroupingExtension(), inherit, string(DEFAULT.courseGroupingExtension)), "courseGroupingExtension"),
+        field(profile.getCourseGroupingIdField(), inherit, DEFAULT.courseGroupingIdField));
+  }
+
+  private static Map<String, String> table(boolean inherit, Map<String, String> defaults) {
+    return inherit ? new LinkedHashMap<>(defaults) : new LinkedHashMap<>();
+  }
+
+  private static List<XapiMappingRule> rules(List<XapiMappingRule> rules, String table) {
+    if (rules == null)
+      return ImmutableList.of();
+    for (XapiMappingRule rule : rules) {
+      if (rule == null || StringUtils.isBlank(rule.getFrom()) || StringUtils.isBlank(rule.getTo()))
+        throw new IllegalArgumentException("Incomplete rule in " + table + ": " + rule);
+    }
+    return rules;
+  }
+
+  private static String field(String value, boolean inherit, String defaultValue) {
+    if (StringUtils.isNotBlank(value))
+      return value;
+    return inherit ? defaultValue : null;
+  }
+
+  private static URI uri(String value, String field) {
+    if (value == null)
+      return null;
+    try {
+      return URI.create(value);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(field + " is not a URI: " + value, e);
+    }
+  }
+
+  private static String string(URI uri) {
+    return uri == null ? null : uri.toString();
+  }
+
+  /**
+   * @return the action and event type of the events of the verb, null when it is not mapped
+   */
+  VerbMapping verb(String xapiVerbId) {
+    return xapiVerbId == null ? null : verbMappings.get(xapiVerbId);
+  }
+
+  /**
+   * @return the verb of the statements of the action, null when it is not mapped
+   */
+  String verbOf(String caliperAction) {
+    return caliperAction == null ? null : actionVerbs.get(caliperAction);
+  }
+
+  /**
+   * @return the entity type of the object type, null when it is not mapped
+   */
+  String entityTypeOf(String xapiType) {
+    return xapiType == null ? null : objectEntityTypes.get(xapiType);
+  }
+
+  /**
+   * @return the object type of the entity type, the entity type itself when it is not mapped
+   */
+  String objectTypeOf(String caliperType) {
+    return caliperType == null ? null : entityObjectTypes.getOrDefault(caliperType, caliperType);
+  }
+
+  /**
+   * @return the text identifying a parent as a course section, null when the parents are not looked at
+   */
+  String getSiteParentMarker() {
+    return siteParentMarker;
+  }
+
+  URI getCourseContextExtension() {
+    return courseContextExtension;
+  }
+
+  String getCourseContextIdField() {
+    return courseContextIdField;
+  }
+
+  String getCourseGroupingType() {
+    return courseGroupingType;
+  }
+
+  URI getCourseGroupingExtension() {
+    return courseGroupingExtension;
+  }
+
+  String getCourseGroupingIdField() {
+    return courseGroupingIdField;
+  }
+
+  static final class VerbMapping {
+    final String action;
+    final String eventType;
+
+    VerbMapping(String action, String eventType) {
+      this.action = action;
+      this.eventType = eventType;
+    }
+  }
+
+  /**
+   * The mapping the conversion always had. The events are written with the verb of their action
+   * name and with their entity type as object type.
+   */
+  private static XapiMapping defaults() {
+    BidiMap<Action, String> verbActionMap = new DualHashBidiMap<>();
+    verbActionMap.put(Action.ABANDONED, "https://w3id.org/xapi/adl/verbs/abandoned");
+    verbActionMap.put(Action.ATTACHED, "http://activitystrea.ms/schema/1.0/attach");
+    verbActionMap.put(Action.BOOKMARKED, "http://id.tincanapi.com/verb/bookmarked");
+    verbActionMap.put(Action.COMMENTED, "http://adlnet.gov/expapi/verbs/commented");
+    verbActionMap.put(Action.COMPLETED, "http://adlnet.gov/expapi/verbs/completed");
+    verbActionMap.put(Action.DISLIKED, "http://activitystrea.ms/schema/1.0/dislike");
+    verbActionMap.put(Action.GRADED, "http://adlnet.gov/expapi/verbs/scored");
+    verbActionMap.put(Action.LIKED, "http://activitystrea.ms/schema/1.0/like");
+    verbActionMap.put(Action.LOGGED_IN, "https://brindlewaye.com/xAPITerms/verbs/loggedin/");
+    verbActionMap.put(Action.LOGGED_OUT, "https://brindlewaye.com/xAPITerms/verbs/loggedout/");
+    verbActionMap.put(Action.PAUSED, "http://id.tincanapi.com/verb/paused");
+    verbActionMap.put(Action.QUESTIONED, "http://adlnet.gov/expapi/verbs/asked");
+    verbActionMap.put(Action.REPLIED, "http://adlnet.gov/expapi/verbs/responded");
+    verbActionMap.put(Action.RESUMED, "http://adlnet.gov/expapi/verbs/resumed");
+    verbActionMap.put(Action.REVIEWED, "http://id.tincanapi.com/verb/reviewed");
+    verbActionMap.put(Action.SEARCHED, "http://activitystrea.ms/schema/1.0/search");
+    verbActionMap.put(Action.SHARED, "http://activitystrea.ms/schema/1.0/share");
+    verbActionMap.put(Action.SKIPPED, "http://id.tincanapi.com/verb/skipped");
+    verbActionMap.put(Action.STARTED, "http://activitystrea.ms/schema/1.0/start");
+    verbActionMap.put(Action.SUBMITTED, "http://activitystrea.ms/schema/1.0/submit");
+    verbActionMap.put(Action.TAGGED, "http://activitystrea.ms/schema/1.0/tag");
+    verbActionMap.put(Action.VIEWED, "http://id.tincanapi.com/verb/viewed");
+
+    BidiMap<Type, String> objectEntityMap = new DualHashBidiMap<>();
+    // ToDo support other xapi annotation types
+    objectEntityMap.put(EntityType.ANNOTATION, "http://risc-inc.com/annotator/activities/highlight");
+    objectEntityMap.put(EntityType.COURSE_SECTION, "http://adlnet.gov/expapi/activities/course");
+    objectEntityMap.put(EntityType.DIGITAL_RESOURCE, "http://adlnet.gov/expapi/activities/media");
+    objectEntityMap.put(EntityType.GROUP, "http://activitystrea.ms/schema/1.0/group");
+    objectEntityMap.put(EntityType.LEARNING_OBJECTIVE, "http://adlnet.gov/expapi/activities/objective");
+    objectEntityMap.put(EntityType.PERSON, "http://activitystrea.ms/schema/1.0/person");
+    objectEntityMap.put(EntityType.ORGANIZATION, "http://activitystrea.ms/schema/1.0/organization");
+    objectEntityMap.put(EntityType.SOFTWARE_APPLICATION, "http://activitystrea.ms/schema/1.0/application");
+    objectEntityMap.put(DigitalResourceType.MEDIA_OBJECT, "http://adlnet.gov/expapi/activities/media");
+    objectEntityMap.put(DigitalResourceType.WEB_PAGE, "http://activitystrea.ms/schema/1.0/page");
+
+    Map<Action, EventType> actionEventMap = new HashMap<>();
+    actionEventMap.put(Action.ABANDONED, EventType.ASSIGNABLE);
+    actionEventMap.put(Action.ACTIVATED, EventType.ASSIGNABLE);
+    actionEventMap.put(Action.ATTACHED, EventType.ANNOTATION);
+    actionEventMap.put(Action.BOOKMARKED, EventType.ANNOTATION);
+    actionEventMap.put(Action.CHANGED_RESOLUTION, EventType.MEDIA);
+    actionEventMap.put(Action.CHANGED_SIZE, EventType.MEDIA);
+    actionEventMap.put(Action.CHANGED_VOLUME, EventType.MEDIA);
+    actionEventMap.put(Action.CLASSIFIED, EventType.ANNOTATION);
+    actionEventMap.put(Action.CLOSED_POPOUT, EventType.MEDIA);
+    actionEventMap.put(Action.COMMENTED, EventType.ANNOTATION);
+    actionEventMap.put(Action.COMPLETED, EventType.ASSIGNABLE);
+    actionEventMap.put(Action.DEACTIVATED, EventType.ASSIGNABLE);
+    actionEventMap.put(Action.DESCRIBED, EventType.ANNOTATION);
+    actionEventMap.put(Action.DISLIKED, EventType.ANNOTATION);
+    actionEventMap.put(Action.DISABLED_CLOSED_CAPTIONING, EventType.MEDIA);
+    actionEventMap.put(Action.ENABLED_CLOSED_CAPTIONING, EventType.MEDIA);
+    actionEventMap.put(Action.ENDED, EventType.MEDIA);
+    actionEventMap.put(Action.ENTERED_FULLSCREEN, EventType.MEDIA);
+    actionEventMap.put(Action.EXITED_FULLSCREEN, EventType.MEDIA);
+    actionEventMap.put(Action.FORWARDED_TO, EventType.MEDIA);
+    actionEventMap.put(Action.GRADED, EventType.OUTCOME);
+    actionEventMap.put(Action.HID, EventType.ASSIGNABLE);
+    actionEventMap.put(Action.HIGHLIGHTED, EventType.ANNOTATION);
+    actionEventMap.put(Action.JUMPED_TO, EventType.MEDIA);
+    actionEventMap.put(Action.IDENTIFIED, EventType.ANNOTATION);
+    actionEventMap.put(Action.LIKED, EventType.ANNOTATION);
+    actionEventMap.put(Action.LINKED, EventType.ANNOTATION);
+    actionEventMap.put(Action.LOGGED_IN, EventType.SESSION);
+    actionEventMap.put(Action.LOGGED_OUT, EventType.SESSION);
+    actionEventMap.put(Action.MUTED, EventType.MEDIA);
+    actionEventMap.put(Action.NAVIGATED_TO, EventType.NAVIGATION);
+    actionEventMap.put(Action.OPENED_POPOUT, EventType.MEDIA);
+    actionEventMap.put(Action.PAUSED, EventType.MEDIA);
+    actionEventMap.put(Action.RANKED, EventType.ANNOTATION);
+    actionEventMap.put(Action.QUESTIONED, EventType.ANNOTATION);
+    actionEventMap.put(Action.RECOMMENDED, EventType.ANNOTATION);
+    actionEventMap.put(Action.REPLIED, EventType.ANNOTATION);
+    actionEventMap.put(Action.RESTARTED, EventType.ASSESSMENT);
+    actionEventMap.put(Action.RESUMED, EventType.MEDIA);
+    actionEventMap.put(Action.REVIEWED, EventType.ASSIGNABLE);
+    actionEventMap.put(Action.REWOUND, EventType.MEDIA);
+    actionEventMap.put(Action.SEARCHED, EventType.READING);
+    actionEventMap.put(Action.SHARED, EventType.ANNOTATION);
+    actionEventMap.put(Action.SHOWED, EventType.ASSIGNABLE);
+    actionEventMap.put(Action.SKIPPED, EventType.ASSESSMENT_ITEM);
+    actionEventMap.put(Action.STARTED, EventType.EVENT);
+    actionEventMap.put(Action.SUBMITTED, EventType.EVENT);
+    actionEventMap.put(Action.SUBSCRIBED, EventType.ANNOTATION);
+    actionEventMap.put(Action.TAGGED, EventType.ANNOTATION);
+    actionEventMap.put(Action.TIMED_OUT, EventType.SESSION);
+    actionEventMap.put(Action.VIEWED, EventType.EVENT);
+    actionEventMap.put(Action.UNMUTED, EventType.MEDIA);
+
+    Map<String, String> verbActions = new LinkedHashMap<>();
+    Map<String, String> actionVerbs = new LinkedHashMap<>();
+    for (Map.Entry<Action, String> verbAction : verbActionMap.entrySet()) {
+      verbActions.put(verbAction.getValue(), verbAction.getKey().getValue());
+      actionVerbs.put(verbAction.getKey().name(), verbAction.getValue());
+    }
+
+    Map<String, String> eventTypes = new LinkedHashMap<>();
+    for (Map.Entry<Action, EventType> actionEvent : actionEventMap.entrySet()) {
+      eventTypes.put(actionEvent.getKey().getValue(), actionEvent.getValue().getValue());
+    }
+
+    Map<String, String> objectTypes = new LinkedHashMap<>();
+    for (Map.Entry<Type, String> objectEntity : objectEntityMap.entrySet()) {
+      objectTypes.put(objectEntity.getValue(), objectEntity.getKey().getValue());
+    }
+
+    // no object type of the entity types, they are written as they are
+    return new XapiMapping(verbActions, eventTypes, objectTypes, actionVerbs, ImmutableMap.of(),
+        "portal/site",
+        URI.create("http://lrs.learninglocker.net/define/extensions/moodle_logstore_standard_log"), "courseid",
+        "http://lrs.learninglocker.net/define/type/moodle/course",
+        URI.create("http://lrs.learninglocker.net/define/extensions/moodle_course"), "id");
+  }
+}
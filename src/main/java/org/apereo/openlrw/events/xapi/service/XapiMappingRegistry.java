@@ -0,0 +1,175 @@
+package org.apereo.openlrw.events.xapi.service;
+
+import com.google.common.collect.ImmutableMap;
+import org.apereo.openlrw.events.xapi.service.repository.XapiMappingProfile;
+import org.apereo.openlrw.events.xapi.service.repository.XapiMappingProfileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The compiled {@link XapiMapping} of each tenant having a {@link XapiMappingProfile}.
+ *
+ * The profiles are compiled when the application is started, when one is saved or deleted through
+ * the registry and when they are reloaded. Every instance also looks for the profiles saved or deleted
+ * by the others every matthews.xapi.mappingRefreshMillis, compiling only the ones whose last modified
+ * time changed. The mappings are replaced all at once, the statements being converted meanwhile keeping
+ * the mapping they started with.
+ */
+@Service
+public class XapiMappingRegistry {
+  private static Logger logger = LoggerFactory.getLogger(XapiMappingRegistry.class);
+
+  private final XapiMappingProfileRepository xapiMappingProfileRepository;
+  private final AtomicReference<ImmutableMap<String, LoadedMapping>> mappings = new AtomicReference<>(ImmutableMap.of());
+
+  @Autowired
+  public XapiMappingRegistry(XapiMappingProfileRepository xapiMappingProfileRepository) {
+    this.xapiMappingProfileRepository = xapiMappingProfileRepository;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    try {
+      reload();
+    } catch (RuntimeException e) {
+      logger.error("Unable to load the xAPI mapping profiles, the default mapping is used", e);
+    }
+  }
+
+  /**
+   * @param tenantId
+   * @return the mapping of the tenant, the default one when it has no profile
+   */
+  public XapiMapping get(String tenantId) {
+    LoadedMapping loaded = tenantId == null ? null : mappings.get().get(tenantId);
+    return loaded == null || loaded.mapping == null ? XapiMapping.DEFAULT : loaded.mapping;
+  }
+
+  /**
+   * Compiles the stored profiles. A profile that does not compile is logged and its tenant keeps
+   * the mapping it had.
+   *
+   * @return the number of tenants having a profile
+   */
+  public int reload() {
+    return reload(true);
+  }
+
+  /**
+   * Compiles the profiles saved since they were loaded and drops the deleted ones, by whatever instance
+   */
+  @Scheduled(initialDelayString = "${matthews.xapi.mappingRefreshMillis:60000}", fixedDelayString = "${matthews.xapi.mappingRefreshMillis:60000}")
+  public void refresh() {
+    try {
+      reload(false);
+    } catch (RuntimeException e) {
+      logger.warn("Unable to refresh the xAPI mapping profiles: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * The profiles are read again when one was saved or deleted through the registry meanwhile,
+   * so the mappings are never replaced by ones missing that change.
+   *
+   * @param all whether the profiles whose last modified time did not change are compiled again
+   */
+  private int reload(boolean all) {
+    while (true) {
+      ImmutableMap<String, LoadedMapping> current = mappings.get();
+      Map<String, LoadedMapping> reloaded = new HashMap<>();
+      boolean changed = false;
+      for (XapiMappingProfile profile : xapiMappingProfileRepository.findAll()) {
+        LoadedMapping loaded = current.get(profile.getTenantId());
+        if (!all && loaded != null && Objects.equals(loaded.lastModified, profile.getLastModified())) {
+          reloaded.put(profile.getTenantId(), loaded);
+          continue;
+        }
+
+        XapiMapping mapping;
+        try {
+          mapping = XapiMapping.compile(profile);
+        } catch (IllegalArgumentException e) {
+          logger.error("Unable to compile the xAPI mapping profile of tenant {}: {}", profile.getTenantId(), e.getMessage());
+          mapping = loaded == null ? null : loaded.mapping;
+        }
+        // with its time, so a profile that does not compile is not compiled again until it is saved
+        reloaded.put(profile.getTenantId(), new LoadedMapping(mapping, profile.getLastModified()));
+        changed = true;
+      }
+
+      int profiles = (int) reloaded.values().stream().filter(m -> m.mapping != null).count();
+      if (!all && !changed && reloaded.size() == current.size()) {
+        // nothing saved or deleted
+        return profiles;
+      }
+      if (mappings.compareAndSet(current, ImmutableMap.copyOf(reloaded))) {
+        logger.info("{} xAPI mapping profiles loaded", profiles);
+        return profiles;
+      }
+    }
+  }
+
+  public List<XapiMappingProfile> findAll() {
+    return xapiMappingProfileRepository.findAll();
+  }
+
+  public Optional<XapiMappingProfile> findByTenantId(String tenantId) {
+    return xapiMappingProfileRepository.findById(tenantId);
+  }
+
+  /**
+   * Stores the profile and uses it for the statements of its tenant
+   *
+   * @param profile
+   * @return the saved profile
+   * @throws IllegalArgumentException when the profile does not compile, it is not saved then
+   */
+  public XapiMappingProfile save(XapiMappingProfile profile) {
+    XapiMapping mapping = XapiMapping.compile(profile);
+    XapiMappingProfile saved = xapiMappingProfileRepository.save(new XapiMappingProfile.Builder(profile).withLastModified(Instant.now()).build());
+    mappings.updateAndGet(m -> {
+      Map<String, LoadedMapping> updated = new HashMap<>(m);
+      updated.put(saved.getTenantId(), new LoadedMapping(mapping, saved.getLastModified()));
+      return ImmutableMap.copyOf(updated);
+    });
+    return saved;
+  }
+
+  /**
+   * Removes the profile of the tenant, its statements being converted with the default mapping
+   *
+   * @param tenantId
+   */
+  public void delete(String tenantId) {
+    xapiMappingProfileRepository.deleteById(tenantId);
+    mappings.updateAndGet(m -> {
+      Map<String, LoadedMapping> updated = new HashMap<>(m);
+      updated.remove(tenantId);
+      return ImmutableMap.copyOf(updated);
+    });
+  }
+
+  private static final class LoadedMapping {
+    /** null when the profile never compiled */
+    final XapiMapping mapping;
+    final Instant lastModified;
+
+    LoadedMapping(XapiMapping mapping, Instant lastModified) {
+      this.mapping = mapping;
+      this.lastModified = lastModified;
+    }
+  }
+}
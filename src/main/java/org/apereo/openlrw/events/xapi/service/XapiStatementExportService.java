@@ -0,0 +1,122 @@
+package org.apereo.openlrw.events.xapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.events.service.EventCursor;
+import org.apereo.openlrw.events.service.StoredTime;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.apereo.openlrw.xapi.Statement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Writes the statements of an org as a StatementResult, in the order they were stored, each
+ * event being converted while it is read from a MongoDB cursor. Only one batch of the cursor is
+ * held in memory, whatever the number of statements.
+ *
+ * The more link of the result reads the statements stored after the last written one, so a copy
+ * of the statements is kept up to date by following it, including the statements sent late with
+ * an older timestamp. See {@link StoredTime}.
+ *
+ * The ids are made by the instances writing the events, before their insert is committed, so an
+ * event may become visible after events having a greater id. The export stops at the events
+ * stored {@link #SETTLE_TIME} ago, leaving the ones that may still be in flight to the more link.
+ */
+@Service
+public class XapiStatementExportService {
+  private static Logger logger = LoggerFactory.getLogger(XapiStatementExportService.class);
+
+  private static final int CURSOR_BATCH_SIZE = 1000;
+  /** longer than the time between the id of an event being made and its insert being committed */
+  static final Duration SETTLE_TIME = Duration.ofSeconds(10);
+
+  private final MongoOperations mongoOps;
+  private final XapiConversionService xapiConversionService;
+  private final ObjectWriter statementWriter;
+
+  @Autowired
+  public XapiStatementExportService(MongoOperations mongoOperations, XapiConversionService xapiConversionService, ObjectMapper objectMapper) {
+    this.mongoOps = mongoOperations;
+    this.xapiConversionService = xapiConversionService;
+    this.statementWriter = objectMapper.writerFor(Statement.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  /**
+   * @param tenantId
+   * @param orgId
+   * @param since (optional) statements stored after this time
+   * @param cursor (optional) {@link EventCursor} given by a more link, replaces since
+   * @param moreLink the more link reading the statements after a cursor
+   * @param out where the statements are written, not closed
+   * @return the number of exported statements
+   */
+  public long export(final String tenantId, final String orgId, Instant since, String cursor,
+                     Function<EventCursor, String> moreLink, OutputStream out) throws IOException {
+    Criteria criteria = where("tenantId").is(tenantId).and("organizationId").is(orgId);
+    EventCursor after = StringUtils.isBlank(cursor) ? null : EventCursor.decode(cursor);
+
+    Criteria settled = StoredTime.before(Instant.now().minus(SETTLE_TIME));
+    if (after != null)
+      criteria.andOperator(StoredTime.after(after, Sort.Direction.ASC), settled);
+    else if (since != null)
+      criteria.andOperator(StoredTime.between(since, null), settled);
+    else
+      criteria.andOperator(settled);
+
+    Query query = new Query(criteria).with(StoredTime.ASCENDING_ORDER).cursorBatchSize(CURSOR_BATCH_SIZE).noCursorTimeout();
+    query.fields().include("event");
+
+    long exported = 0;
+    EventCursor last = after;
+    try (CloseableIterator<MongoEvent> mongoEvents = mongoOps.stream(query, MongoEvent.class);
+         JsonGenerator generator = statementWriter.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("statements");
+      while (mongoEvents.hasNext()) {
+        MongoEvent mongoEvent = mongoEvents.next();
+        EventCursor next = EventCursor.after(mongoEvent);
+        if (next != null)
+          last = next;
+
+        Statement statement;
+        try {
+          statement = xapiConversionService.toXapi(tenantId, mongoEvent.getEvent());
+        } catch (URISyntaxException | RuntimeException e) {
+          logger.warn("Event {} not exported: {}", mongoEvent.getId(), e.getMessage());
+          continue;
+        }
+        statementWriter.writeValue(generator, statement);
+
+        if (++exported % CURSOR_BATCH_SIZE == 1)
+          generator.flush();
+      }
+      generator.writeEndArray();
+      generator.writeStringField("more", last == null ? "" : moreLink.apply(last));
+      generator.writeEndObject();
+      generator.flush();
+    }
+
+    return exported;
+  }
+}
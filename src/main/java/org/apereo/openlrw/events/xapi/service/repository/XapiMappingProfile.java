@@ -0,0 +1,221 @@
+package org.apereo.openlrw.events.xapi.service.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How the xAPI statements of a tenant are converted to Caliper events, declared for its source system.
+ *
+ * The verbs give the Caliper action of the statements, the object types the Caliper type of their
+ * object and the event types the type of the event of an action. The grouping fields tell how the
+ * group of the event is found in the context of the statements:
+ * <ul>
+ * <li>siteParentMarker: a single parent whose id contains it is a course section, its id being the end of the parent id</li>
+ * <li>courseContextExtension, courseContextIdField: with a single grouping, the course section id is this field of this context extension</li>
+ * <li>courseGroupingType, courseGroupingExtension, courseGroupingIdField: among several groupings, the one of this type is the
+ * course section, its id being this field of this extension of the grouping</li>
+ * </ul>
+ *
+ * A profile inheriting the defaults adds its rules to the default mappings and leaves the grouping
+ * fields it does not give to their default, the Moodle and Learning Locker ones.
+ */
+@Document
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonDeserialize(builder = XapiMappingProfile.Builder.class)
+public class XapiMappingProfile implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  @Id
+  private String tenantId;
+  private String name;
+  private boolean inheritDefaults = true;
+  private List<XapiMappingRule> verbs = new ArrayList<>();
+  private List<XapiMappingRule> objectTypes = new ArrayList<>();
+  private List<XapiMappingRule> eventTypes = new ArrayList<>();
+  private String siteParentMarker;
+  private String courseContextExtension;
+  private String courseContextIdField;
+  private String courseGroupingType;
+  private String courseGroupingExtension;
+  private String courseGroupingIdField;
+  private Instant lastModified;
+
+  private XapiMappingProfile() {}
+
+  public String getTenantId() {
+    return tenantId;
+  }
+
+  /**
+   * @return the source system the profile is written for
+   */
+  public String getName() {
+    return name;
+  }
+
+  public boolean isInheritDefaults() {
+    return inheritDefaults;
+  }
+
+  /**
+   * @return the Caliper action of each xAPI verb
+   */
+  public List<XapiMappingRule> getVerbs() {
+    return verbs;
+  }
+
+  /**
+   * @return the Caliper entity type of each xAPI activity type
+   */
+  public List<XapiMappingRule> getObjectTypes() {
+    return objectTypes;
+  }
+
+  /**
+   * @return the Caliper event type of each Caliper action
+   */
+  public List<XapiMappingRule> getEventTypes() {
+    return eventTypes;
+  }
+
+  public String getSiteParentMarker() {
+    return siteParentMarker;
+  }
+
+  public String getCourseContextExtension() {
+    return courseContextExtension;
+  }
+
+  public String getCourseContextIdField() {
+    return courseContextIdField;
+  }
+
+  public String getCourseGroupingType() {
+    return courseGroupingType;
+  }
+
+  public String getCourseGroupingExtension() {
+    return courseGroupingExtension;
+  }
+
+  public String getCourseGroupingIdField() {
+    return courseGroupingIdField;
+  }
+
+  /**
+   * @return when the profile was last saved, the instances reloading the profiles whose time changed
+   */
+  public Instant getLastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringBuilder.reflectionToString(this, ToStringStyle.MULTI_LINE_STYLE);
+  }
+
+  public static class Builder {
+    private XapiMappingProfile _profile = new XapiMappingProfile();
+
+    public Builder() {}
+
+    /**
+     * @param profile whose fields are copied
+     */
+    public Builder(XapiMappingProfile profile) {
+      _profile.tenantId = profile.tenantId;
+      _profile.name = profile.name;
+      _profile.inheritDefaults = profile.inheritDefaults;
+      _profile.verbs = profile.verbs;
+      _profile.objectTypes = profile.objectTypes;
+      _profile.eventTypes = profile.eventTypes;
+      _profile.siteParentMarker = profile.siteParentMarker;
+      _profile.courseContextExtension = profile.courseContextExtension;
+      _profile.courseContextIdField = profile.courseContextIdField;
+      _profile.courseGroupingType = profile.courseGroupingType;
+      _profile.courseGroupingExtension = profile.courseGroupingExtension;
+      _profile.courseGroupingIdField = profile.courseGroupingIdField;
+      _profile.lastModified = profile.lastModified;
+    }
+
+    public Builder withTenantId(String tenantId) {
+      _profile.tenantId = tenantId;
+      return this;
+    }
+
+    public Builder withName(String name) {
+      _profile.name = name;
+      return this;
+    }
+
+    public Builder withInheritDefaults(boolean inheritDefaults) {
+      _profile.inheritDefaults = inheritDefaults;
+      return this;
+    }
+
+    public Builder withVerbs(List<XapiMappingRule> verbs) {
+      _profile.verbs = verbs == null ? new ArrayList<>() : verbs;
+      return this;
+    }
+
+    public Builder withObjectTypes(List<XapiMappingRule> objectTypes) {
+      _profile.objectTypes = objectTypes == null ? new ArrayList<>() : objectTypes;
+      return this;
+    }
+
+    public Builder withEventTypes(List<XapiMappingRule> eventTypes) {
+      _profile.eventTypes = eventTypes == null ? new ArrayList<>() : eventTypes;
+      return this;
+    }
+
+    public Builder withSiteParentMarker(String siteParentMarker) {
+      _profile.siteParentMarker = siteParentMarker;
+      return this;
+    }
+
+    public Builder withCourseContextExtension(String courseContextExtension) {
+      _profile.courseContextExtension = courseContextExtension;
+      return this;
+    }
+
+    public Builder withCourseContextIdField(String courseContextIdField) {
+      _profile.courseContextIdField = courseContextIdField;
+      return this;
+    }
+
+    public Builder withCourseGroupingType(String courseGroupingType) {
+      _profile.courseGroupingType = courseGroupingType;
+      return this;
+    }
+
+    public Builder withCourseGroupingExtension(String courseGroupingExtension) {
+      _profile.courseGroupingExtension = courseGroupingExtension;
+      return this;
+    }
+
+    public Builder withCourseGroupingIdField(String courseGroupingIdField) {
+      _profile.courseGroupingIdField = courseGroupingIdField;
+      return this;
+    }
+
+    public Builder withLastModified(Instant lastModified) {
+      _profile.lastModified = lastModified;
+      return this;
+    }
+
+    public XapiMappingProfile build() {
+      return _profile;
+    }
+  }
+}
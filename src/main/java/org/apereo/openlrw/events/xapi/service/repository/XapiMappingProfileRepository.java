@@ -0,0 +1,9 @@
+package org.apereo.openlrw.events.xapi.service.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * The profiles are found by their tenant id
+ */
+public interface XapiMappingProfileRepository extends MongoRepository<XapiMappingProfile, String> {
+}
@@ -0,0 +1,35 @@
+package org.apereo.openlrw.events.xapi.service.repository;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.io.Serializable;
+
+/**
+ * One entry of a mapping table of a {@link XapiMappingProfile}, from an xAPI value to a Caliper value
+ */
+public class XapiMappingRule implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private String from;
+  private String to;
+
+  private XapiMappingRule() {}
+
+  public XapiMappingRule(String from, String to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  public String getFrom() {
+    return from;
+  }
+
+  public String getTo() {
+    return to;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringBuilder.reflectionToString(this);
+  }
+}
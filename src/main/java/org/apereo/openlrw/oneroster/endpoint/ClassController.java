@@ -6,6 +6,8 @@ import org.apereo.model.oneroster.Enrollment;
 import org.apereo.model.oneroster.LineItem;
 import org.apereo.model.oneroster.Result;
 import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.events.service.RawEvent;
+import org.apereo.openlrw.events.service.repository.EventSummary;
 import org.apereo.openlrw.entity.MongoClassMappingRepository;
 import org.apereo.openlrw.oneroster.exception.EnrollmentNotFoundException;
 import org.apereo.openlrw.oneroster.exception.LineItemNotFoundException;
@@ -25,11 +27,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.apereo.openlrw.caliper.ClassEventStatistics;
-import org.apereo.openlrw.caliper.Event;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 
 /**
@@ -76,11 +78,30 @@ public class ClassController {
   }
 
   @RequestMapping(value = "/{classId}/events/user/{userId:.+}", method = RequestMethod.GET)
-  public Collection<Event> getEventForClassAndUser(JwtAuthenticationToken token, @PathVariable final String classId, @PathVariable final String userId) {
+  public Collection<RawEvent> getEventForClassAndUser(JwtAuthenticationToken token, @PathVariable final String classId, @PathVariable final String userId) {
     UserContext userContext = (UserContext) token.getPrincipal();
-    return eventService.getEventsForClassAndUser(userContext.getTenantId(), userContext.getOrgId(), classId, userId);
+    return eventService.getRawEventsForClassAndUser(userContext.getTenantId(), userContext.getOrgId(), classId, userId);
   }
   
+  /**
+   * @param token
+   * @param classId
+   * @param studentsOnly only the events sent with a student role
+   * @return the user, action, time and edApp of the events of the class
+   */
+  @RequestMapping(value = "/{classId}/events/summaries", method = RequestMethod.GET)
+  public List<EventSummary> getEventSummariesForClass(JwtAuthenticationToken token, @PathVariable final String classId,
+                                                      @RequestParam(name="studentsOnly",required=false,defaultValue="true") String studentsOnly) {
+    UserContext userContext = (UserContext) token.getPrincipal();
+    return eventService.getEventSummariesForClass(userContext.getTenantId(), userContext.getOrgId(), classId, Boolean.valueOf(studentsOnly));
+  }
+
+  @RequestMapping(value = "/{classId}/events/user/{userId}/summaries", method = RequestMethod.GET)
+  public List<EventSummary> getEventSummariesForClassAndUser(JwtAuthenticationToken token, @PathVariable final String classId, @PathVariable final String userId) {
+    UserContext userContext = (UserContext) token.getPrincipal();
+    return eventService.getEventSummariesForClassAndUser(userContext.getTenantId(), userContext.getOrgId(), classId, userId);
+  }
+
   @RequestMapping(value = "/{classId}/results/user/{userId}", method = RequestMethod.GET)
   public Collection<Result> getResultsForClassAndUser(JwtAuthenticationToken token, @PathVariable final String classId, @PathVariable final String userId) {
     UserContext userContext = (UserContext) token.getPrincipal();
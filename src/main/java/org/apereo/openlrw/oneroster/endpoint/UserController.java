@@ -5,7 +5,9 @@ import org.apereo.model.oneroster.Enrollment;
 import org.apereo.model.oneroster.Result;
 import org.apereo.model.oneroster.User;
 import org.apereo.openlrw.events.caliper.exception.EventNotFoundException;
+import org.apereo.openlrw.events.caliper.service.IdNormalizationCache;
 import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.events.service.RawEvent;
 import org.apereo.openlrw.common.exception.BadRequestException;
 import org.apereo.openlrw.entity.MongoUserMappingRepository;
 import org.apereo.openlrw.oneroster.exception.EnrollmentNotFoundException;
@@ -24,7 +26,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
-import org.apereo.openlrw.caliper.Event;
 
 import java.time.Instant;
 import java.util.Collection;
@@ -43,14 +44,17 @@ public class UserController {
   private MongoUserMappingRepository mongoUserMappingRepository;
   private ResultService resultService;
   private EventService eventService;
+  private IdNormalizationCache idNormalizationCache;
 
   @Autowired
-  public UserController(UserService userService, EnrollmentService enrollmentService, MongoUserMappingRepository mongoUserMappingRepository, ResultService resultService, EventService eventService) {
+  public UserController(UserService userService, EnrollmentService enrollmentService, MongoUserMappingRepository mongoUserMappingRepository, ResultService resultService, EventService eventService,
+      IdNormalizationCache idNormalizationCache) {
     this.userService = userService;
     this.enrollmentService = enrollmentService;
     this.mongoUserMappingRepository = mongoUserMappingRepository;
     this.resultService = resultService;
     this.eventService = eventService;
+    this.idNormalizationCache = idNormalizationCache;
   }
 
   /**
@@ -165,6 +169,7 @@ public class UserController {
               .build();
 
       UserMapping saved = mongoUserMappingRepository.save(userMapping);
+      idNormalizationCache.invalidateUserIds(userContext.getTenantId());
 
       return new ResponseEntity<>(saved, null, HttpStatus.CREATED);
     }
@@ -188,7 +193,7 @@ public class UserController {
   }
 
   @RequestMapping(value = "/{userId:.+}/events", method = RequestMethod.GET)
-  public Collection<Event> getEventsForUser(
+  public Collection<RawEvent> getEventsForUser(
           JwtAuthenticationToken token,
           @PathVariable final String userId,
           @RequestParam(value="from", required=false, defaultValue = "") String from,
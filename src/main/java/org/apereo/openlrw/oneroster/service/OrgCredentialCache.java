@@ -0,0 +1,91 @@
+package org.apereo.openlrw.oneroster.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.oneroster.service.repository.MongoOrg;
+import org.apereo.openlrw.oneroster.service.repository.MongoOrgRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the org credentials, read by every request authenticated with an API key.
+ * Unknown keys are remembered for a short time so that requests with made up keys do not
+ * reach MongoDB. Entries are dropped by {@link OrgService} when an org is saved.
+ *
+ * @see OrgCredentialCacheSettings
+ */
+@Service
+public class OrgCredentialCache {
+  private final MongoOrgRepository mongoOrgRepository;
+  private final Cache<String, MongoOrg> orgs;
+  private final Cache<String, Boolean> unknownKeys;
+
+  @Autowired
+  public OrgCredentialCache(MongoOrgRepository mongoOrgRepository, OrgCredentialCacheSettings settings) {
+    this.mongoOrgRepository = mongoOrgRepository;
+    this.orgs = CacheBuilder.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .expireAfterWrite(settings.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+        .build();
+    this.unknownKeys = CacheBuilder.newBuilder()
+        .maximumSize(settings.getUnknownKeysMaximumSize())
+        .expireAfterWrite(settings.getUnknownKeysExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+        .build();
+  }
+
+  /**
+   * @param apiKey
+   * @return the org with this API key, or null when there is none
+   */
+  public MongoOrg findByApiKey(final String apiKey) {
+    if (StringUtils.isBlank(apiKey) || unknownKeys.getIfPresent(apiKey) != null)
+      return null;
+
+    MongoOrg mongoOrg = orgs.getIfPresent(apiKey);
+    if (mongoOrg == null) {
+      mongoOrg = mongoOrgRepository.findByApiKey(apiKey);
+      if (mongoOrg == null)
+        unknownKeys.put(apiKey, Boolean.TRUE);
+      else
+        orgs.put(apiKey, mongoOrg);
+    }
+
+    return mongoOrg;
+  }
+
+  /**
+   * The secret is compared in constant time
+   *
+   * @param apiKey
+   * @param apiSecret
+   * @return the org with this API key and secret, or null when there is none
+   */
+  public MongoOrg findByApiKeyAndApiSecret(final String apiKey, final String apiSecret) {
+    MongoOrg mongoOrg = findByApiKey(apiKey);
+    if (mongoOrg == null || mongoOrg.getApiSecret() == null || apiSecret == null)
+      return null;
+
+    boolean matches = MessageDigest.isEqual(
+        mongoOrg.getApiSecret().getBytes(StandardCharsets.UTF_8),
+        apiSecret.getBytes(StandardCharsets.UTF_8));
+
+    return matches ? mongoOrg : null;
+  }
+
+  public void invalidate(final String apiKey) {
+    if (apiKey != null) {
+      orgs.invalidate(apiKey);
+      unknownKeys.invalidate(apiKey);
+    }
+  }
+
+  public void invalidateAll() {
+    orgs.invalidateAll();
+    unknownKeys.invalidateAll();
+  }
+}
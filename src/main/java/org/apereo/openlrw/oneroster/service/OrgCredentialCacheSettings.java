@@ -0,0 +1,64 @@
+package org.apereo.openlrw.oneroster.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the {@link OrgCredentialCache}
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matthews.cache.orgs")
+public class OrgCredentialCacheSettings {
+
+  /**
+   * Maximum number of orgs kept in memory.
+   */
+  private long maximumSize = 10000;
+
+  /**
+   * Time after which a cached org is read again from MongoDB.
+   */
+  private long expireAfterWriteSeconds = 600;
+
+  /**
+   * Maximum number of unknown API keys remembered.
+   */
+  private long unknownKeysMaximumSize = 10000;
+
+  /**
+   * Time during which an unknown API key is rejected without querying MongoDB.
+   */
+  private long unknownKeysExpireAfterWriteSeconds = 30;
+
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(long maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  public long getExpireAfterWriteSeconds() {
+    return expireAfterWriteSeconds;
+  }
+
+  public void setExpireAfterWriteSeconds(long expireAfterWriteSeconds) {
+    this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+  }
+
+  public long getUnknownKeysMaximumSize() {
+    return unknownKeysMaximumSize;
+  }
+
+  public void setUnknownKeysMaximumSize(long unknownKeysMaximumSize) {
+    this.unknownKeysMaximumSize = unknownKeysMaximumSize;
+  }
+
+  public long getUnknownKeysExpireAfterWriteSeconds() {
+    return unknownKeysExpireAfterWriteSeconds;
+  }
+
+  public void setUnknownKeysExpireAfterWriteSeconds(long unknownKeysExpireAfterWriteSeconds) {
+    this.unknownKeysExpireAfterWriteSeconds = unknownKeysExpireAfterWriteSeconds;
+  }
+}
@@ -23,11 +23,13 @@ import java.util.stream.Collectors;
 @Service
 public class OrgService {
   private final MongoOrgRepository mongoOrgRepository;
+  private final OrgCredentialCache orgCredentialCache;
   private static Logger logger = LoggerFactory.getLogger(OrgService.class);
 
   @Autowired
-  public OrgService(MongoOrgRepository  mongoOrgRepository) {
+  public OrgService(MongoOrgRepository  mongoOrgRepository, OrgCredentialCache orgCredentialCache) {
     this.mongoOrgRepository = mongoOrgRepository;
+    this.orgCredentialCache = orgCredentialCache;
   }
   
   public Org save(final String tenantId, Org org) {
@@ -55,11 +57,12 @@ public class OrgService {
     }
     
     MongoOrg saved = mongoOrgRepository.save(mongoOrgToSave);
+    orgCredentialCache.invalidate(saved.getApiKey());
     return saved.getOrg();
   }
   
   public Org findByApiKeyAndApiSecret(final String apiKey, final String apiSecret) throws OrgNotFoundException {
-    MongoOrg mongoOrg = mongoOrgRepository.findByApiKeyAndApiSecret(apiKey, apiSecret);
+    MongoOrg mongoOrg = orgCredentialCache.findByApiKeyAndApiSecret(apiKey, apiSecret);
     
     if (mongoOrg == null)
       throw new OrgNotFoundException("Org not found.");
@@ -68,7 +71,7 @@ public class OrgService {
   }
   
   public Org findByApiKey(final String apiKey) throws OrgNotFoundException {
-    MongoOrg mongoOrg = mongoOrgRepository.findByApiKey(apiKey);
+    MongoOrg mongoOrg = orgCredentialCache.findByApiKey(apiKey);
     
     if (mongoOrg == null)
       throw new OrgNotFoundException("Org not found.");
@@ -122,6 +125,7 @@ public class OrgService {
         .build();
     
     mongoOrgRepository.save(updatedMongoOrg);
+    orgCredentialCache.invalidate(updatedMongoOrg.getApiKey());
   }
   
   private Org fromOrg(Org from, final String tenantId) {
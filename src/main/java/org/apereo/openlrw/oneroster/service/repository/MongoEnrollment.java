@@ -2,6 +2,7 @@ package org.apereo.openlrw.oneroster.service.repository;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apereo.openlrw.common.CaseInsensitiveKey;
 import org.apereo.model.oneroster.Enrollment;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -17,6 +18,7 @@ public class MongoEnrollment {
   private String tenantId;
   private String orgId;
   private String userSourcedId;
+  private String userSourcedIdKey;
   private String classSourcedId;
   
   private MongoEnrollment() {}
@@ -41,6 +43,13 @@ public class MongoEnrollment {
     return userSourcedId;
   }
 
+  /**
+   * @return the user sourcedId as looked up whatever its case, see {@link CaseInsensitiveKey}
+   */
+  public String getUserSourcedIdKey() {
+    return userSourcedIdKey;
+  }
+
   public String getClassSourcedId() {
     return classSourcedId;
   }
@@ -139,6 +148,7 @@ public class MongoEnrollment {
     }
     
     public MongoEnrollment build() {
+      _mongoEnrollment.userSourcedIdKey = CaseInsensitiveKey.of(_mongoEnrollment.userSourcedId);
       return _mongoEnrollment;
     }
   }
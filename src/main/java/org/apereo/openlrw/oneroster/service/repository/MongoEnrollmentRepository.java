@@ -2,20 +2,26 @@ package org.apereo.openlrw.oneroster.service.repository;
 
 import org.apereo.model.oneroster.Role;
 import org.apereo.model.oneroster.Status;
+import org.apereo.openlrw.common.CaseInsensitiveKey;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.util.Collection;
 import java.util.List;
 
 /**
+ * The user sourcedId lookups ignoring the case match {@link MongoEnrollment#getUserSourcedIdKey()} exactly,
+ * or the user sourcedId with a case insensitive regular expression in the enrollments without a key,
+ * see {@link CaseInsensitiveKey#matching(String, String, String)}.
+ *
  * @author ggilbert
  * @author xchopin <xavier.chopin@univ-lorraine.fr>
  */
 public interface MongoEnrollmentRepository extends MongoRepository<MongoEnrollment, String> {
-  MongoEnrollment findByTenantIdAndOrgIdAndClassSourcedIdAndUserSourcedIdIgnoreCase(final String tenantId, final String orgId, final String classSourcedId, final String userSourcedId);
+  MongoEnrollment findByTenantIdAndOrgIdAndClassSourcedIdAndUserSourcedIdKey(final String tenantId, final String orgId, final String classSourcedId, final String userSourcedIdKey);
   Integer countByTenantIdAndOrgIdAndClassSourcedIdAndEnrollmentStatusAndEnrollmentRole(final String tenantId, final String orgId, final String classSourcedId, final Status status, final Role role);
-  Collection<MongoEnrollment> findByTenantIdAndOrgIdAndUserSourcedIdIgnoreCaseAndEnrollmentStatus(final String tenantId, final String orgId, final String userSourcedId, final Status status);
+  Collection<MongoEnrollment> findByTenantIdAndOrgIdAndUserSourcedIdKeyAndEnrollmentStatus(final String tenantId, final String orgId, final String userSourcedIdKey, final Status status);
   Collection<MongoEnrollment> findByTenantIdAndOrgIdAndClassSourcedIdAndEnrollmentStatus(final String tenantId, final String orgId, final String classSourcedId, final Status status);
   Collection<MongoEnrollment> findByTenantIdAndOrgIdAndEnrollmentRole(final String tenantId, final String orgId, final String Role);
   List<MongoEnrollment> findTopByTenantIdAndOrgIdOrderByEnrollmentBeginDateDesc(final String tenantId, final String orgId, Pageable pageRequest);
@@ -23,4 +29,18 @@ public interface MongoEnrollmentRepository extends MongoRepository<MongoEnrollme
   List<MongoEnrollment> findTopByTenantIdAndOrgId(final String tenantId, final String orgId, Pageable pageRequest);
   Long deleteByTenantIdAndOrgIdAndEnrollmentSourcedId(String tenantId, String orgId, String sourcedId);
   Long deleteAllByTenantIdAndOrgId(String tenantId, String orgId);
+
+  // Matching the key, or the pattern of the user sourcedId in the enrollments without a key
+  @Query("{ 'tenantId': ?0, 'orgId': ?1, 'classSourcedId': ?2, $or: [ { 'userSourcedIdKey': ?3 }, { 'userSourcedIdKey': { $exists: false }, 'userSourcedId': { $regex: ?4, $options: 'i' } } ] }")
+  MongoEnrollment findByTenantIdAndOrgIdAndClassSourcedIdAndUserSourcedIdKeyOrPattern(final String tenantId, final String orgId, final String classSourcedId, final String userSourcedIdKey, final String userSourcedIdPattern);
+  @Query("{ 'tenantId': ?0, 'orgId': ?1, 'enrollment.status': ?4, $or: [ { 'userSourcedIdKey': ?2 }, { 'userSourcedIdKey': { $exists: false }, 'userSourcedId': { $regex: ?3, $options: 'i' } } ] }")
+  Collection<MongoEnrollment> findByTenantIdAndOrgIdAndUserSourcedIdKeyOrPatternAndEnrollmentStatus(final String tenantId, final String orgId, final String userSourcedIdKey, final String userSourcedIdPattern, final Status status);
+
+  default MongoEnrollment findByTenantIdAndOrgIdAndClassSourcedIdAndUserSourcedIdIgnoreCase(final String tenantId, final String orgId, final String classSourcedId, final String userSourcedId) {
+    return findByTenantIdAndOrgIdAndClassSourcedIdAndUserSourcedIdKeyOrPattern(tenantId, orgId, classSourcedId, CaseInsensitiveKey.of(userSourcedId), CaseInsensitiveKey.pattern(userSourcedId));
+  }
+
+  default Collection<MongoEnrollment> findByTenantIdAndOrgIdAndUserSourcedIdIgnoreCaseAndEnrollmentStatus(final String tenantId, final String orgId, final String userSourcedId, final Status status) {
+    return findByTenantIdAndOrgIdAndUserSourcedIdKeyOrPatternAndEnrollmentStatus(tenantId, orgId, CaseInsensitiveKey.of(userSourcedId), CaseInsensitiveKey.pattern(userSourcedId), status);
+  }
 }
@@ -3,6 +3,7 @@ package org.apereo.openlrw.security.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apereo.openlrw.admin.AdminUserAuthenticationProvider;
 import org.apereo.openlrw.admin.AdminUserProcessingFilter;
+import org.apereo.openlrw.common.ContentEncodingFilter;
 import org.apereo.openlrw.security.RestAuthenticationEntryPoint;
 import org.apereo.openlrw.security.auth.ajax.AjaxAuthenticationProvider;
 import org.apereo.openlrw.security.auth.ajax.AjaxLoginProcessingFilter;
@@ -47,6 +48,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     public static final String XAPI_ENTRY_POINT = "/xAPI/statements";
     public static final String TOKEN_BASED_AUTH_ENTRY_POINT = "/api/**";
     public static final String TOKEN_REFRESH_ENTRY_POINT = "/api/auth/token";
+    public static final String ADMIN_ENTRY_POINT = "/api/admin/**";
     
     @Autowired private RestAuthenticationEntryPoint authenticationEntryPoint;
     @Autowired private AuthenticationSuccessHandler successHandler;
@@ -63,6 +65,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     
     @Autowired private XAPIRequestValidationFilter xAPIRequestValidationFilter;
     @Autowired private XAPIHeaderFilter xAPIHeaderFilter;
+    @Autowired private ContentEncodingFilter contentEncodingFilter;
     
     @Bean
     protected AdminUserProcessingFilter buildAdminUserLoginProcessingFilter() throws Exception {
@@ -110,6 +113,20 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
       return registrationBean;
     }
 
+    @Bean
+    public FilterRegistrationBean contentEncodingFilterBean() {
+      FilterRegistrationBean registrationBean = new FilterRegistrationBean();
+      registrationBean.setFilter(contentEncodingFilter);
+      List<String> urls = new ArrayList<String>(4);
+      urls.add("/api/caliper");
+      urls.add(ContentEncodingFilter.BULK_PATH);
+      urls.add("/key/caliper");
+      urls.add(XAPI_ENTRY_POINT);
+      registrationBean.setUrlPatterns(urls);
+      registrationBean.setOrder(2);
+      return registrationBean;
+    }
+
     @Bean
     @Override
     public AuthenticationManager authenticationManagerBean() throws Exception {
@@ -145,6 +162,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers(TOKEN_REFRESH_ENTRY_POINT).permitAll() // Token refresh end-point
         .and()
             .authorizeRequests()
+                .antMatchers(ADMIN_ENTRY_POINT).hasAuthority("ROLE_SUPER_ADMIN") // Administration End-points
                 .antMatchers(TOKEN_BASED_AUTH_ENTRY_POINT).authenticated() // Protected API End-points
         .and()
             .addFilterBefore(buildAjaxLoginProcessingFilter(), UsernamePasswordAuthenticationFilter.class)
@@ -0,0 +1,56 @@
+package org.apereo.openlrw.tenant.service;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.apereo.openlrw.tenant.Tenant;
+import org.apereo.openlrw.tenant.service.repository.TenantRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the tenants, read on every event that is saved.
+ * Entries are reloaded once they are older than the configured refresh time
+ * and dropped by {@link TenantService#save(Tenant)}. Unknown tenants are not cached.
+ *
+ * @see TenantCacheSettings
+ */
+@Service
+public class TenantCache {
+  private final LoadingCache<String, Optional<Tenant>> tenants;
+
+  @Autowired
+  public TenantCache(final TenantRepository tenantRepository, TenantCacheSettings settings) {
+    this.tenants = CacheBuilder.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .refreshAfterWrite(settings.getRefreshAfterWriteSeconds(), TimeUnit.SECONDS)
+        .build(new CacheLoader<String, Optional<Tenant>>() {
+          @Override
+          public Optional<Tenant> load(String tenantId) {
+            return tenantRepository.findById(tenantId);
+          }
+        });
+  }
+
+  public Optional<Tenant> findById(final String tenantId) {
+    if (tenantId == null)
+      return Optional.empty();
+
+    Optional<Tenant> tenant = tenants.getUnchecked(tenantId);
+    if (!tenant.isPresent())
+      tenants.invalidate(tenantId);
+    return tenant;
+  }
+
+  public void invalidate(final String tenantId) {
+    if (tenantId != null)
+      tenants.invalidate(tenantId);
+  }
+
+  public void invalidateAll() {
+    tenants.invalidateAll();
+  }
+}
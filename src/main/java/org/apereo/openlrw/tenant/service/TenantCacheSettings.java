@@ -0,0 +1,38 @@
+package org.apereo.openlrw.tenant.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the {@link TenantCache}
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matthews.cache.tenants")
+public class TenantCacheSettings {
+
+  /**
+   * Maximum number of tenants kept in memory.
+   */
+  private long maximumSize = 1000;
+
+  /**
+   * Time after which a cached tenant is reloaded from MongoDB on its next lookup.
+   */
+  private long refreshAfterWriteSeconds = 300;
+
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(long maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  public long getRefreshAfterWriteSeconds() {
+    return refreshAfterWriteSeconds;
+  }
+
+  public void setRefreshAfterWriteSeconds(long refreshAfterWriteSeconds) {
+    this.refreshAfterWriteSeconds = refreshAfterWriteSeconds;
+  }
+}
@@ -1,5 +1,6 @@
 package org.apereo.openlrw.tenant.service;
 
+import org.apereo.openlrw.events.caliper.service.IdNormalizationCache;
 import org.apereo.openlrw.tenant.Tenant;
 import org.apereo.openlrw.tenant.service.repository.TenantRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,16 +16,23 @@ import java.util.Optional;
 @Service
 public class TenantService {
   private final TenantRepository tenantRepository;
+  private final TenantCache tenantCache;
+  private final IdNormalizationCache idNormalizationCache;
   
   public static final String DEFAULT_TENANT_NAME = "DEFAULT_TENANT";
   
   @Autowired
-  public TenantService(TenantRepository tenantRepository) {
+  public TenantService(TenantRepository tenantRepository, TenantCache tenantCache, IdNormalizationCache idNormalizationCache) {
     this.tenantRepository = tenantRepository;
+    this.tenantCache = tenantCache;
+    this.idNormalizationCache = idNormalizationCache;
   }
   
   public Tenant save(Tenant tenant) {
-    return tenantRepository.save(tenant);
+    Tenant savedTenant = tenantRepository.save(tenant);
+    tenantCache.invalidate(savedTenant.getId());
+    idNormalizationCache.invalidateTenant(savedTenant.getId());
+    return savedTenant;
   }
   
   public Collection<Tenant> findAll() {
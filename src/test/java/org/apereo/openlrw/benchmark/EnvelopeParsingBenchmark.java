@@ -0,0 +1,82 @@
+package org.apereo.openlrw.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apereo.openlrw.OpenLRW;
+import org.apereo.openlrw.caliper.Envelope;
+import org.apereo.openlrw.event.caliper.requests.MediaEventTest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of reading a Caliper envelope from JSON, Smile and CBOR, per event.
+ *
+ * Run with the test classpath: java -cp ... org.apereo.openlrw.benchmark.EnvelopeParsingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(EnvelopeParsingBenchmark.EVENTS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnvelopeParsingBenchmark {
+  static final int EVENTS = 100;
+
+  private ObjectReader jsonReader;
+  private ObjectReader smileReader;
+  private ObjectReader cborReader;
+
+  private byte[] json;
+  private byte[] smile;
+  private byte[] cbor;
+
+  @Setup
+  public void setup() throws Exception {
+    ObjectMapper jsonMapper = OpenLRW.configure(new ObjectMapper());
+    ObjectMapper smileMapper = OpenLRW.configure(new ObjectMapper(new SmileFactory()));
+    ObjectMapper cborMapper = OpenLRW.configure(new ObjectMapper(new CBORFactory()));
+
+    ObjectNode envelope = (ObjectNode) jsonMapper.readTree(MediaEventTest.MEDIA_EVENT);
+    JsonNode event = envelope.get("data").get(0);
+    ArrayNode data = envelope.putArray("data");
+    for (int i = 0; i < EVENTS; i++) {
+      data.add(event.deepCopy());
+    }
+
+    json = jsonMapper.writeValueAsBytes(envelope);
+    smile = smileMapper.writeValueAsBytes(envelope);
+    cbor = cborMapper.writeValueAsBytes(envelope);
+
+    jsonReader = jsonMapper.readerFor(Envelope.class);
+    smileReader = smileMapper.readerFor(Envelope.class);
+    cborReader = cborMapper.readerFor(Envelope.class);
+  }
+
+  @Benchmark
+  public Envelope json() throws Exception {
+    return jsonReader.readValue(json);
+  }
+
+  @Benchmark
+  public Envelope smile() throws Exception {
+    return smileReader.readValue(smile);
+  }
+
+  @Benchmark
+  public Envelope cbor() throws Exception {
+    return cborReader.readValue(cbor);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(EnvelopeParsingBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,93 @@
+package org.apereo.openlrw.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apereo.openlrw.OpenLRW;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.events.xapi.service.DefaultXapiToCaliperConversionService;
+import org.apereo.openlrw.events.xapi.service.XapiConversionService;
+import org.apereo.openlrw.events.xapi.service.XapiMappingRegistry;
+import org.apereo.openlrw.events.xapi.service.repository.XapiMappingProfileRepository;
+import org.apereo.openlrw.xapi.Statement;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the statements converted per second by the xAPI conversion service, both ways,
+ * for a Learning Locker statement of a Moodle course converted with the default mapping.
+ *
+ * Run with the test classpath: java -cp ... org.apereo.openlrw.benchmark.XapiConversionBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XapiConversionBenchmark {
+  private static final String TENANT_ID = "tenant";
+  static final String MOODLE_STATEMENT =
+      "{\n" +
+      "  \"id\": \"6a9b1f44-3c1e-4f8e-9a52-0d7c1e4b2f10\",\n" +
+      "  \"timestamp\": \"2019-11-01T10:00:00Z\",\n" +
+      "  \"actor\": {\n" +
+      "    \"name\": \"Student\",\n" +
+      "    \"account\": { \"homePage\": \"https://moodle.example.edu\", \"name\": \"554433\" }\n" +
+      "  },\n" +
+      "  \"verb\": { \"id\": \"http://id.tincanapi.com/verb/viewed\" },\n" +
+      "  \"object\": {\n" +
+      "    \"id\": \"https://moodle.example.edu/mod/page/view.php?id=42\",\n" +
+      "    \"definition\": {\n" +
+      "      \"type\": \"http://activitystrea.ms/schema/1.0/page\",\n" +
+      "      \"name\": { \"en\": \"Week 1\" },\n" +
+      "      \"extensions\": { \"http://lrs.learninglocker.net/define/extensions/moodle_module\": \"page\" }\n" +
+      "    }\n" +
+      "  },\n" +
+      "  \"context\": {\n" +
+      "    \"extensions\": {\n" +
+      "      \"http://lrs.learninglocker.net/define/extensions/info\": \"moodle\"\n" +
+      "    },\n" +
+      "    \"contextActivities\": {\n" +
+      "      \"grouping\": [\n" +
+      "        { \"id\": \"https://moodle.example.edu\", \"definition\": { \"type\": \"http://id.tincanapi.com/activitytype/lms\" } },\n" +
+      "        { \"id\": \"https://moodle.example.edu/course/view.php?id=7\", \"definition\": {\n" +
+      "          \"type\": \"http://lrs.learninglocker.net/define/type/moodle/course\",\n" +
+      "          \"name\": { \"en\": \"Course 7\" },\n" +
+      "          \"extensions\": { \"http://lrs.learninglocker.net/define/extensions/moodle_course\": { \"id\": \"7\" } }\n" +
+      "        } }\n" +
+      "      ]\n" +
+      "    }\n" +
+      "  }\n" +
+      "}";
+
+  private XapiConversionService conversionService;
+  private Statement statement;
+  private Event event;
+
+  @Setup
+  public void setup() throws Exception {
+    conversionService = new DefaultXapiToCaliperConversionService(new XapiMappingRegistry(mock(XapiMappingProfileRepository.class)));
+
+    ObjectMapper mapper = OpenLRW.configure(new ObjectMapper());
+    statement = mapper.readValue(MOODLE_STATEMENT, Statement.class);
+    event = conversionService.fromXapi(TENANT_ID, statement);
+  }
+
+  @Benchmark
+  public Event fromXapi() {
+    return conversionService.fromXapi(TENANT_ID, statement);
+  }
+
+  @Benchmark
+  public Statement toXapi() throws Exception {
+    return conversionService.toXapi(TENANT_ID, event);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(XapiConversionBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,119 @@
+package org.apereo.openlrw.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apereo.openlrw.OpenLRW;
+import org.apereo.openlrw.common.advice.ExceptionHandlerControllerAdvice;
+import org.apereo.openlrw.common.exception.PayloadTooLargeException;
+import org.apereo.openlrw.event.caliper.requests.MediaEventTest;
+import org.apereo.openlrw.events.caliper.endpoint.CaliperController;
+import org.apereo.openlrw.events.service.IngestionSettings;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ContentEncodingFilterTest {
+
+  private static final String BODY = "{\"data\":[]}";
+
+  private IngestionSettings settings = new IngestionSettings();
+  private ContentEncodingFilter unit;
+
+  @Before
+  public void setup() {
+    unit = new ContentEncodingFilter(settings);
+  }
+
+  @Test
+  public void testGzip() throws Exception {
+    HttpServletRequest decoded = filter(request("gzip", gzip(BODY)));
+    assertNull(decoded.getHeader(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(BODY, StreamUtils.copyToString(decoded.getInputStream(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testDeflate() throws Exception {
+    HttpServletRequest decoded = filter(request("deflate", deflate(BODY)));
+    assertEquals(BODY, StreamUtils.copyToString(decoded.getInputStream(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testUnsupportedEncoding() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    unit.doFilter(request("br", BODY.getBytes(StandardCharsets.UTF_8)), response, new MockFilterChain());
+    assertEquals(415, response.getStatus());
+  }
+
+  @Test(expected = PayloadTooLargeException.class)
+  public void testDecompressedSizeIsCapped() throws Exception {
+    settings.setMaxDecompressedBytes(5);
+    HttpServletRequest decoded = filter(request("gzip", gzip(BODY)));
+    StreamUtils.copyToString(decoded.getInputStream(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testOversizedEnvelopeIsAnswered413() throws Exception {
+    settings.setMaxDecompressedBytes(MediaEventTest.MEDIA_EVENT.length() / 2);
+    MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new CaliperController(null, null, null, settings))
+        .setMessageConverters(new MappingJackson2HttpMessageConverter(OpenLRW.configure(new ObjectMapper())))
+        .setControllerAdvice(new ExceptionHandlerControllerAdvice())
+        .addFilters(unit)
+        .build();
+
+    mockMvc.perform(post("/api/caliper")
+        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(gzip(MediaEventTest.MEDIA_EVENT)))
+        .andExpect(status().isPayloadTooLarge());
+  }
+
+  private HttpServletRequest filter(MockHttpServletRequest request) throws Exception {
+    MockFilterChain chain = new MockFilterChain();
+    unit.doFilter(request, new MockHttpServletResponse(), chain);
+    return (HttpServletRequest) chain.getRequest();
+  }
+
+  private static MockHttpServletRequest request(String encoding, byte[] content) {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/caliper");
+    request.setServletPath("/api/caliper");
+    request.addHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+    request.setContentType("application/json");
+    request.setContent(content);
+    return request;
+  }
+
+  private static byte[] gzip(String value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(value.getBytes(StandardCharsets.UTF_8));
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] deflate(String value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DeflaterOutputStream deflate = new DeflaterOutputStream(out)) {
+      deflate.write(value.getBytes(StandardCharsets.UTF_8));
+    }
+    return out.toByteArray();
+  }
+}
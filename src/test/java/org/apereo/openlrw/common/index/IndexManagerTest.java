@@ -0,0 +1,40 @@
+package org.apereo.openlrw.common.index;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class IndexManagerTest {
+
+  @Test
+  public void testDescendingKeys() {
+    Document keys = DeclaredIndex.of(Object.class, "name", "test", "tenantId", "-eventTime").getKeys();
+    assertEquals(Arrays.asList("tenantId", "eventTime"), Arrays.asList(keys.keySet().toArray()));
+    assertEquals(1, keys.get("tenantId"));
+    assertEquals(-1, keys.get("eventTime"));
+  }
+
+  @Test
+  public void testFindByKeysWhateverTheNameAndNumberType() {
+    Document existing = new Document("name", "other_name")
+        .append("key", new Document("tenantId", 1.0).append("eventTime", -1L));
+
+    Document found = IndexManager.findByKeys(Collections.singletonList(existing),
+        new Document("tenantId", 1).append("eventTime", -1));
+
+    assertSame(existing, found);
+  }
+
+  @Test
+  public void testFindByKeysIsOrderAndDirectionSensitive() {
+    Document existing = new Document("name", "index").append("key", new Document("tenantId", 1).append("eventTime", 1));
+
+    assertNull(IndexManager.findByKeys(Collections.singletonList(existing), new Document("eventTime", 1).append("tenantId", 1)));
+    assertNull(IndexManager.findByKeys(Collections.singletonList(existing), new Document("tenantId", 1).append("eventTime", -1)));
+    assertNull(IndexManager.findByKeys(Collections.singletonList(existing), new Document("tenantId", 1)));
+  }
+}
@@ -0,0 +1,76 @@
+package org.apereo.openlrw.common.migration;
+
+import com.mongodb.client.MongoCollection;
+import org.apereo.openlrw.MongoServerConfig;
+import org.apereo.openlrw.OpenLRW;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.apereo.openlrw.events.service.repository.MongoEventRepository;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes={OpenLRW.class, MongoServerConfig.class})
+public class CaseInsensitiveKeyMigrationTest {
+
+  @Autowired private MongoOperations mongoOps;
+  @Autowired private MongoEventRepository mongoEventRepository;
+  @Autowired private CaseInsensitiveKeyMigration unit;
+
+  private MongoCollection<Document> events;
+
+  @Before
+  public void init() {
+    mongoOps.dropCollection(MongoEvent.class);
+    events = mongoOps.createCollection(MongoEvent.class);
+  }
+
+  private void insertWithoutKey(int count) {
+    List<Document> documents = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      documents.add(new Document("tenantId", "t1").append("organizationId", "o1").append("userId", "User-" + i));
+    }
+    events.insertMany(documents);
+  }
+
+  @Test
+  public void testBackfillStoresTheKeysOfEveryBatch() {
+    insertWithoutKey(CaseInsensitiveKeyMigration.BATCH_SIZE + 10);
+
+    long updated = unit.backfill(mongoOps.getCollectionName(MongoEvent.class), "userId", "userIdKey");
+
+    assertEquals(CaseInsensitiveKeyMigration.BATCH_SIZE + 10, updated);
+    assertEquals(0, events.countDocuments(new Document("userIdKey", new Document("$exists", false))));
+    assertEquals("user-7", events.find(new Document("userId", "User-7")).first().getString("userIdKey"));
+  }
+
+  @Test
+  public void testBackfillSkipsTheDocumentsWithAKey() {
+    insertWithoutKey(3);
+    unit.backfill(mongoOps.getCollectionName(MongoEvent.class), "userId", "userIdKey");
+
+    assertEquals(0, unit.backfill(mongoOps.getCollectionName(MongoEvent.class), "userId", "userIdKey"));
+  }
+
+  @Test
+  public void testLookupsFindTheDocumentsNotBackfilledYet() {
+    insertWithoutKey(2);
+
+    assertEquals(1, mongoEventRepository.findByTenantIdAndOrganizationIdAndUserIdIgnoreCase("t1", "o1", "USER-1").size());
+
+    unit.backfill(mongoOps.getCollectionName(MongoEvent.class), "userId", "userIdKey");
+
+    assertEquals(1, mongoEventRepository.findByTenantIdAndOrganizationIdAndUserIdIgnoreCase("t1", "o1", "USER-1").size());
+    assertEquals(0, mongoEventRepository.findByTenantIdAndOrganizationIdAndUserIdIgnoreCase("t1", "o1", "USER-.").size());
+  }
+}
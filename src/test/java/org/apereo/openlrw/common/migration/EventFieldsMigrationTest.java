@@ -0,0 +1,68 @@
+package org.apereo.openlrw.common.migration;
+
+import org.apereo.openlrw.MongoServerConfig;
+import org.apereo.openlrw.OpenLRW;
+import org.apereo.openlrw.caliper.Agent;
+import org.apereo.openlrw.caliper.Entity;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes={OpenLRW.class, MongoServerConfig.class})
+public class EventFieldsMigrationTest {
+
+  @Autowired private MongoOperations mongoOps;
+  @Autowired private EventFieldsMigration unit;
+
+  @Before
+  public void init() {
+    mongoOps.dropCollection(MongoEvent.class);
+  }
+
+  /**
+   * Saves an event the way the former version did, without the top level fields
+   */
+  private void saveWithoutFields(String eventId) {
+    Event event = new Event.Builder()
+        .withId(eventId)
+        .withAction("Viewed")
+        .withContext("context")
+        .withType("type")
+        .withEventTime(Instant.parse("2019-11-01T10:00:00Z"))
+        .withAgent(new Agent.Builder().withId("user-1").withType("Person").build())
+        .withObject(new Entity.Builder().withId("object").withType("type").build())
+        .build();
+    mongoOps.save(new MongoEvent.Builder().withTenantId("t1").withOrganizationId("o1").withEvent(event).build());
+    mongoOps.updateFirst(new Query(where("event.id").is(eventId)),
+        new Update().unset("eventTime").unset("action").unset("eventType").unset("edAppId").unset("student"), MongoEvent.class);
+  }
+
+  @Test
+  public void testEventsSavedAfterThePassAreCopiedByTheNextOne() {
+    saveWithoutFields("event-1");
+    assertEquals(1, unit.migrate());
+    assertTrue(unit.isComplete());
+
+    // an instance of the former version still running
+    saveWithoutFields("event-2");
+    assertEquals(1, unit.migrate());
+
+    MongoEvent copied = mongoOps.findOne(new Query(where("event.id").is("event-2")), MongoEvent.class);
+    assertEquals(Instant.parse("2019-11-01T10:00:00Z"), copied.getEventTime());
+    assertEquals(0, unit.migrate());
+  }
+}
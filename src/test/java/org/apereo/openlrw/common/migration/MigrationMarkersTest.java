@@ -0,0 +1,56 @@
+package org.apereo.openlrw.common.migration;
+
+import org.apereo.openlrw.MongoServerConfig;
+import org.apereo.openlrw.OpenLRW;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes={OpenLRW.class, MongoServerConfig.class})
+public class MigrationMarkersTest {
+
+  @Autowired private MongoOperations mongoOps;
+  @Autowired private MigrationMarkers unit;
+
+  @Before
+  public void init() {
+    mongoOps.dropCollection(MigrationMarker.class);
+  }
+
+  @Test
+  public void testLeaseIsHeldByOneInstance() {
+    assertTrue(unit.lease("lease_test", Duration.ofMinutes(1)));
+    assertFalse(unit.isDone("lease_test"));
+
+    // another instance
+    mongoOps.updateFirst(new Query(where("name").is("lease_test")), new Update().set("leasedBy", "other"), MigrationMarker.class);
+    assertFalse(unit.lease("lease_test", Duration.ofMinutes(1)));
+
+    mongoOps.updateFirst(new Query(where("name").is("lease_test")), new Update().set("leasedUntil", Instant.now().minusSeconds(1)), MigrationMarker.class);
+    assertTrue(unit.lease("lease_test", Duration.ofMinutes(1)));
+  }
+
+  @Test
+  public void testMarkerStaysDoneWhenLeased() {
+    unit.markDone("done_test");
+    assertTrue(unit.lease("done_test", Duration.ofMinutes(1)));
+    unit.release("done_test");
+
+    MigrationMarker marker = mongoOps.findById("done_test", MigrationMarker.class);
+    assertNotNull(marker.getCompletedAt());
+    assertNull(marker.getLeasedUntil());
+  }
+}
@@ -160,4 +160,39 @@ public class MongoEventRepositoryTest {
     assertThat(found.size(), is(equalTo(1)));
   }
 
+  @Test
+  public void testFindByUserIdIgnoringTheCase() {
+    unit.deleteAll();
+
+    MongoEvent mongoEvent =
+        new MongoEvent.Builder()
+        .withClassId("test-classid-1")
+        .withOrganizationId("test-orgid-1")
+        .withUserId("Test-UserId-1")
+        .withTenantId("test-tenantid-1")
+        .withEvent(mediaEvent)
+        .build();
+
+    unit.save(mongoEvent);
+
+    assertThat(mongoEvent.getUserIdKey(), is(equalTo("test-userid-1")));
+    assertThat(unit.findByTenantIdAndOrganizationIdAndClassIdAndUserIdIgnoreCase("test-tenantid-1", "test-orgid-1", "test-classid-1", "TEST-USERID-1").size(), is(equalTo(1)));
+    assertThat(unit.findByTenantIdAndOrganizationIdAndUserIdIgnoreCase("test-tenantid-1", "test-orgid-1", "test-userid-1").size(), is(equalTo(1)));
+  }
+
+  @Test
+  public void testEventFieldsAreCopied() {
+    MongoEvent mongoEvent =
+        new MongoEvent.Builder()
+        .withOrganizationId("test-orgid-1")
+        .withTenantId("test-tenantid-1")
+        .withEvent(mediaEvent)
+        .build();
+
+    MongoEvent found = unit.findById(unit.save(mongoEvent).getId()).get();
+    assertThat(found.getEventTime(), is(equalTo(mediaEvent.getEventTime())));
+    assertThat(found.getAction(), is(equalTo(mediaEvent.getAction())));
+    assertThat(found.getEventType(), is(equalTo(mediaEvent.getType())));
+    assertThat(found.getEdAppId(), is(equalTo(mediaEvent.getEdApp().getId())));
+  }
 }
@@ -0,0 +1,79 @@
+package org.apereo.openlrw.event;
+
+import org.apereo.openlrw.caliper.Agent;
+import org.apereo.openlrw.caliper.Entity;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.springframework.data.util.CloseableIterator;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Events and streams shared by the tests of the services reading the events from a mocked MongoOperations
+ */
+public final class TestEvents {
+
+  public static final String TENANT = "tenant";
+  public static final String ORG = "org";
+
+  private TestEvents() {}
+
+  /**
+   * @return a minimal valid Caliper event
+   */
+  public static Event event(String id, String action, String agentId, String eventTime) {
+    return new Event.Builder()
+        .withId(id)
+        .withAction(action)
+        .withContext("context")
+        .withType("type")
+        .withEventTime(Instant.parse(eventTime))
+        .withAgent(new Agent.Builder().withId(agentId).withType("Person").build())
+        .withObject(new Entity.Builder().withId("object").withType("type").build())
+        .build();
+  }
+
+  /**
+   * @return the stored event of {@link #TENANT} and {@link #ORG}, to be completed
+   */
+  public static MongoEvent.Builder mongoEvent(Event event) {
+    return new MongoEvent.Builder().withTenantId(TENANT).withOrganizationId(ORG).withEvent(event);
+  }
+
+  /**
+   * @return a stream of the items, as returned by MongoOperations.stream or aggregateStream
+   */
+  public static <T> Stream<T> stream(List<T> items) {
+    return new Stream<>(items.iterator());
+  }
+
+  public static final class Stream<T> implements CloseableIterator<T> {
+    private final Iterator<T> iterator;
+    private boolean closed;
+
+    private Stream(Iterator<T> iterator) {
+      this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public T next() {
+      return iterator.next();
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    public boolean isClosed() {
+      return closed;
+    }
+  }
+}
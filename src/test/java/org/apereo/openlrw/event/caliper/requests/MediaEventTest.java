@@ -1,16 +1,20 @@
 package org.apereo.openlrw.event.caliper.requests;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apereo.openlrw.OpenLRW;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.apereo.openlrw.caliper.Envelope;
 
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 /**
@@ -23,6 +27,8 @@ import static org.junit.Assert.assertNotNull;
 public class MediaEventTest {
 
   @Autowired private ObjectMapper mapper;
+  @Autowired private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+  @Autowired private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
   
   public static String MEDIA_EVENT =
     "{"+
@@ -159,4 +165,17 @@ public class MediaEventTest {
     assertNotNull(envelope);
   }
 
+  @Test
+  public void whenSmileAndCborReadLikeJson() throws Exception {
+    JsonNode tree = mapper.readTree(MEDIA_EVENT);
+
+    ObjectMapper smileMapper = smileHttpMessageConverter.getObjectMapper();
+    Envelope fromSmile = smileMapper.readValue(smileMapper.writeValueAsBytes(tree), Envelope.class);
+    assertEquals(1, fromSmile.getData().size());
+
+    ObjectMapper cborMapper = cborHttpMessageConverter.getObjectMapper();
+    Envelope fromCbor = cborMapper.readValue(cborMapper.writeValueAsBytes(tree), Envelope.class);
+    assertEquals(fromSmile.getData().get(0).getEventTime(), fromCbor.getData().get(0).getEventTime());
+  }
+
 }
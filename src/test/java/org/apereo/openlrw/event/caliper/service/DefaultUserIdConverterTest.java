@@ -0,0 +1,98 @@
+package org.apereo.openlrw.event.caliper.service;
+
+import org.apereo.model.entity.UserMapping;
+import org.apereo.openlrw.Vocabulary;
+import org.apereo.openlrw.caliper.Agent;
+import org.apereo.openlrw.caliper.Entity;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.entity.MongoUserMappingRepository;
+import org.apereo.openlrw.events.caliper.service.DefaultUserIdConverter;
+import org.apereo.openlrw.events.caliper.service.IdNormalizationCache;
+import org.apereo.openlrw.events.caliper.service.IdNormalizationCacheSettings;
+import org.apereo.openlrw.tenant.Tenant;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class DefaultUserIdConverterTest {
+
+  @Mock
+  private MongoUserMappingRepository mongoUserMappingRepository;
+
+  private IdNormalizationCache idNormalizationCache;
+  private DefaultUserIdConverter unit;
+
+  private Tenant tenant = new Tenant.Builder().withId("t1").withName("tenant").build();
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    idNormalizationCache = new IdNormalizationCache(new IdNormalizationCacheSettings());
+    unit = new DefaultUserIdConverter(mongoUserMappingRepository, idNormalizationCache);
+
+    UserMapping userMapping = new UserMapping.Builder()
+        .withTenantId("t1")
+        .withOrganizationId("o1")
+        .withUserExternalId("jdoe")
+        .withUserSourcedId("123")
+        .withDateLastModified(Instant.now())
+        .build();
+    when(mongoUserMappingRepository.findByTenantIdAndUserExternalIdIgnoreCase("t1", "jdoe")).thenReturn(userMapping);
+  }
+
+  @Test
+  public void testMappedUserIsLookedUpOnce() {
+    assertEquals("123", unit.convert(tenant, event("https://moodle.ncsu.edu/user/jdoe")));
+    assertEquals("123", unit.convert(tenant, event("https://moodle.ncsu.edu/user/jdoe")));
+    verify(mongoUserMappingRepository, times(1)).findByTenantIdAndUserExternalIdIgnoreCase("t1", "jdoe");
+  }
+
+  @Test
+  public void testMappingDomainsComeFromTenant() {
+    Tenant configured = new Tenant.Builder().withId("t2").withName("tenant")
+        .withMetadata(Collections.singletonMap(Vocabulary.TENANT_USER_MAPPING_DOMAINS, "example.edu"))
+        .build();
+
+    assertEquals("jdoe", unit.convert(configured, event("https://moodle.ncsu.edu/user/jdoe")));
+    unit.convert(configured, event("https://lms.example.edu/user/jdoe"));
+    verify(mongoUserMappingRepository, times(1)).findByTenantIdAndUserExternalIdIgnoreCase("t2", "jdoe");
+  }
+
+  @Test
+  public void testUserPrefix() {
+    Tenant prefixed = new Tenant.Builder().withId("t3").withName("tenant")
+        .withMetadata(Collections.singletonMap(Vocabulary.TENANT_USER_PREFIX, "https://lms.example.edu/user"))
+        .build();
+
+    assertEquals("a/b", unit.convert(prefixed, event("https://lms.example.edu/user/a/b")));
+    assertEquals("plain", unit.convert(prefixed, event("plain")));
+  }
+
+  @Test
+  public void testMappingSaveInvalidatesUserIds() {
+    when(mongoUserMappingRepository.findByTenantIdAndUserExternalIdIgnoreCase("t1", "jsmith")).thenReturn(null);
+    assertEquals("jsmith", unit.convert(tenant, event("https://moodle.ncsu.edu/user/jsmith")));
+
+    idNormalizationCache.invalidateUserIds("t1");
+    unit.convert(tenant, event("https://moodle.ncsu.edu/user/jsmith"));
+    verify(mongoUserMappingRepository, times(2)).findByTenantIdAndUserExternalIdIgnoreCase("t1", "jsmith");
+  }
+
+  private static Event event(String agentId) {
+    return new Event.Builder()
+        .withAction("action")
+        .withContext("context")
+        .withType("type")
+        .withEventTime(Instant.now())
+        .withAgent(new Agent.Builder().withId(agentId).withType("Person").build())
+        .withObject(new Entity.Builder().withId("object").withType("type").build())
+        .build();
+  }
+}
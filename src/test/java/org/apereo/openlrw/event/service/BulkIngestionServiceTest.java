@@ -0,0 +1,121 @@
+package org.apereo.openlrw.event.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.events.service.BatchSaveResult;
+import org.apereo.openlrw.events.service.BulkIngestionService;
+import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.events.service.IngestionSettings;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class BulkIngestionServiceTest {
+
+  private static final String EVENT = "{\"@context\":\"http://purl.imsglobal.org/ctx/caliper/v1p1\",\"@type\":\"Event\","
+      + "\"actor\":{\"@id\":\"user-%d\",\"@type\":\"Person\"},\"action\":\"Viewed\","
+      + "\"object\":{\"@id\":\"page\",\"@type\":\"WebPage\"},\"eventTime\":\"2019-11-01T10:00:00.000Z\"}";
+
+  @Mock
+  private EventService eventService;
+
+  private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private IngestionSettings settings = new IngestionSettings();
+  private BulkIngestionService unit;
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    settings.setBatchSize(2);
+    unit = new BulkIngestionService(eventService, settings, objectMapper);
+
+    when(eventService.saveAll(eq("tenant"), eq("org"), anyList())).thenAnswer(invocation -> {
+      List<Event> events = invocation.getArgument(2);
+      BatchSaveResult result = mock(BatchSaveResult.class);
+      when(result.getIds()).thenReturn(events.stream().map(e -> "id").collect(Collectors.toList()));
+      return result;
+    });
+  }
+
+  @Test
+  public void testImport() throws Exception {
+    String body = String.format(EVENT, 1) + "\n"
+        + "not json\n"
+        + "\n"
+        + String.format(EVENT, 2) + "\n"
+        + String.format(EVENT, 3) + "\n";
+
+    StringWriter out = new StringWriter();
+    try (JsonGenerator summary = objectMapper.getFactory().createGenerator(out)) {
+      assertEquals(3, unit.importEvents("tenant", "org", new StringReader(body), summary));
+    }
+
+    List<JsonNode> records = records(out);
+    assertEquals(2, records.size());
+    assertEquals(2, records.get(0).get("line").asInt());
+    assertEquals(3, records.get(1).get("accepted").asInt());
+    assertEquals(5, records.get(1).get("lines").asInt());
+    verify(eventService, times(2)).saveAll(eq("tenant"), eq("org"), anyList());
+  }
+
+  @Test
+  public void testLongLineIsRejected() throws Exception {
+    settings.setMaxBulkLineLength(String.format(EVENT, 1).length());
+    String body = String.format(EVENT, 1) + "\r\n"
+        + StringUtils.repeat(' ', 20000) + String.format(EVENT, 2) + "\n"
+        + String.format(EVENT, 3);
+
+    StringWriter out = new StringWriter();
+    try (JsonGenerator summary = objectMapper.getFactory().createGenerator(out)) {
+      assertEquals(2, unit.importEvents("tenant", "org", new StringReader(body), summary));
+    }
+
+    List<JsonNode> records = records(out);
+    assertEquals(2, records.size());
+    assertEquals(2, records.get(0).get("line").asInt());
+    assertEquals(3, records.get(1).get("lines").asInt());
+  }
+
+  @Test
+  public void testFailureEndsWithAnErrorRecord() throws Exception {
+    when(eventService.saveAll(eq("tenant"), eq("org"), anyList())).thenThrow(new IllegalStateException("down"));
+    String body = String.format(EVENT, 1) + "\n"
+        + String.format(EVENT, 2) + "\n"
+        + String.format(EVENT, 3) + "\n"
+        + String.format(EVENT, 4) + "\n";
+
+    StringWriter out = new StringWriter();
+    try (JsonGenerator summary = objectMapper.getFactory().createGenerator(out)) {
+      assertEquals(0, unit.importEvents("tenant", "org", new StringReader(body), summary));
+    }
+
+    List<JsonNode> records = records(out);
+    assertEquals(1, records.size());
+    assertEquals("down", records.get(0).get("error").asText());
+    assertEquals(2, records.get(0).get("lines").asInt());
+  }
+
+  private List<JsonNode> records(StringWriter out) throws Exception {
+    List<JsonNode> records = new ArrayList<>();
+    for (String line : out.toString().split("\n"))
+      records.add(objectMapper.readTree(line));
+    return records;
+  }
+}
@@ -0,0 +1,145 @@
+package org.apereo.openlrw.event.service;
+
+import org.apereo.openlrw.common.migration.EventFieldsMigration;
+import org.apereo.openlrw.common.migration.MigrationMarkers;
+import org.apereo.openlrw.event.TestEvents;
+import org.apereo.openlrw.events.service.ClassActivityRollups;
+import org.apereo.openlrw.events.service.repository.MongoClassActivity;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apereo.openlrw.event.TestEvents.event;
+import static org.apereo.openlrw.event.TestEvents.stream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ClassActivityRollupsTest {
+
+  @Mock
+  private MongoOperations mongoOperations;
+
+  @Mock
+  private BulkOperations bulkOperations;
+
+  @Mock
+  private EventFieldsMigration eventFieldsMigration;
+
+  @Mock
+  private MigrationMarkers migrationMarkers;
+
+  private ClassActivityRollups unit;
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, MongoClassActivity.class)).thenReturn(bulkOperations);
+    unit = new ClassActivityRollups(mongoOperations, eventFieldsMigration, migrationMarkers);
+  }
+
+  @Test
+  public void testRecordMergesEventsOfTheSameDayUserAndAction() {
+    List<MongoEvent> mongoEvents = Arrays.asList(
+        mongoEvent("class-1", "user-1", "Viewed", "2019-11-01T10:00:00Z"),
+        mongoEvent("class-1", "user-1", "Viewed", "2019-11-01T23:59:59Z"),
+        mongoEvent("class-1", "user-1", "Viewed", "2019-11-02T00:00:00Z"),
+        mongoEvent(null, "user-1", "Viewed", "2019-11-01T10:00:00Z"));
+
+    unit.record(mongoEvents);
+
+    ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+    ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+    verify(bulkOperations, times(2)).upsert(queries.capture(), updates.capture());
+    verify(bulkOperations).execute();
+
+    for (int i = 0; i < 2; i++) {
+      String day = queries.getAllValues().get(i).getQueryObject().getString("day");
+      long count = ((Number) updates.getAllValues().get(i).getUpdateObject().get("$inc", Document.class).get("count")).longValue();
+      assertEquals("2019-11-01".equals(day) ? 2 : 1, count);
+    }
+  }
+
+  @Test
+  public void testRecordMarksTheOrgWhoseOnlyEventsAreRecorded() {
+    when(mongoOperations.count(any(Query.class), eq(MongoEvent.class))).thenReturn(2L);
+
+    unit.record(Arrays.asList(mongoEvent("class-1", "user-1", "Viewed", "2019-11-01T10:00:00Z"), mongoEvent(null, "user-1", "Viewed", "2019-11-01T10:00:00Z")));
+
+    verify(migrationMarkers).markDone("class_activity:tenant:org");
+  }
+
+  @Test
+  public void testRecordDoesNotMarkTheOrgHavingOtherEvents() {
+    when(mongoOperations.count(any(Query.class), eq(MongoEvent.class))).thenReturn(2L);
+
+    unit.record(Arrays.asList(mongoEvent("class-1", "user-1", "Viewed", "2019-11-01T10:00:00Z")));
+
+    verify(migrationMarkers, never()).markDone(any());
+  }
+
+  @Test
+  public void testRecordDoesNotFailTheSave() {
+    when(bulkOperations.execute()).thenThrow(new RuntimeException("down"));
+
+    unit.record(Arrays.asList(mongoEvent("class-1", "user-1", "Viewed", "2019-11-01T10:00:00Z")));
+
+    verify(bulkOperations).upsert(any(Query.class), any(Update.class));
+    verify(migrationMarkers, never()).markDone(any());
+  }
+
+  @Test
+  public void testNothingToRecord() {
+    unit.record(Arrays.asList(mongoEvent(null, "user-1", "Viewed", "2019-11-01T10:00:00Z")));
+
+    verify(mongoOperations, never()).bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(MongoClassActivity.class));
+  }
+
+  @Test
+  public void testRebuildReplacesOneClassAtATimeThenMarksTheOrg() {
+    when(mongoOperations.aggregateStream(any(TypedAggregation.class), eq(Document.class)))
+        .thenReturn(stream(Arrays.asList(group("class-1", "user-1", 3), group("class-1", "user-2", 1), group("class-2", "user-1", 2))))
+        .thenReturn(stream(Collections.<Document>emptyList()));
+
+    assertEquals(3, unit.rebuild("tenant", "org"));
+
+    // counters set, never deleted beforehand
+    ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+    verify(bulkOperations, times(3)).upsert(any(Query.class), updates.capture());
+    assertTrue(updates.getAllValues().stream().allMatch(update -> update.getUpdateObject().containsKey("$set")));
+
+    // then the counters of each class not written by the rebuild, and the classes left without events
+    ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+    verify(mongoOperations, times(3)).remove(removed.capture(), eq(MongoClassActivity.class));
+    String firstRemoval = removed.getAllValues().get(0).getQueryObject().toJson();
+    assertTrue(firstRemoval.contains("class-1"));
+    assertTrue(firstRemoval.contains("updatedAt"));
+    assertTrue(removed.getAllValues().get(1).getQueryObject().toJson().contains("class-2"));
+
+    verify(migrationMarkers).markDone("class_activity:tenant:org");
+  }
+
+  private static Document group(String classId, String userId, long count) {
+    return new Document("_id", new Document("classId", classId).append("day", "2019-11-01").append("userId", userId).append("action", "Viewed"))
+        .append("count", count);
+  }
+
+  private static MongoEvent mongoEvent(String classId, String userId, String action, String eventTime) {
+    return TestEvents.mongoEvent(event(eventTime, action, userId, eventTime)).withClassId(classId).withUserId(userId).build();
+  }
+}
@@ -0,0 +1,107 @@
+package org.apereo.openlrw.event.service;
+
+import org.apereo.openlrw.caliper.ClassEventStatistics;
+import org.apereo.openlrw.events.service.ClassStatisticsCache;
+import org.apereo.openlrw.events.service.ClassStatisticsCacheSettings;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ClassStatisticsCacheTest {
+
+  private ClassStatisticsCache unit;
+
+  @Before
+  public void setup() {
+    unit = new ClassStatisticsCache(new ClassStatisticsCacheSettings());
+  }
+
+  @Test
+  public void testCachedUntilEventsAreSaved() {
+    AtomicInteger computations = new AtomicInteger();
+
+    ClassEventStatistics first = unit.get("t", "o", "c", true, () -> statistics(computations.incrementAndGet()));
+    assertSame(first, unit.get("t", "o", "c", true, () -> statistics(computations.incrementAndGet())));
+    assertEquals(1, computations.get());
+
+    unit.get("t", "o", "c", false, () -> statistics(computations.incrementAndGet()));
+    unit.get("t", "o", "other", true, () -> statistics(computations.incrementAndGet()));
+    assertEquals(3, computations.get());
+
+    unit.invalidate("t", "o", "c");
+    unit.get("t", "o", "c", true, () -> statistics(computations.incrementAndGet()));
+    unit.get("t", "o", "c", false, () -> statistics(computations.incrementAndGet()));
+    unit.get("t", "o", "other", true, () -> statistics(computations.incrementAndGet()));
+    assertEquals(5, computations.get());
+  }
+
+  @Test
+  public void testConcurrentMissesComputeOnce() throws Exception {
+    AtomicInteger computations = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    try {
+      List<Future<ClassEventStatistics>> lookups = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        lookups.add(executor.submit(() -> unit.get("t", "o", "c", true, () -> {
+          computations.incrementAndGet();
+          await(release);
+          return statistics(1);
+        })));
+      }
+
+      Thread.sleep(100);
+      release.countDown();
+      for (Future<ClassEventStatistics> lookup : lookups) {
+        assertNotNull(lookup.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(1, computations.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testComputationOverlappingASaveIsNotKept() {
+    AtomicInteger computations = new AtomicInteger();
+    AtomicReference<ClassEventStatistics> computed = new AtomicReference<>();
+
+    ClassEventStatistics statistics = unit.get("t", "o", "c", true, () -> {
+      if (computations.incrementAndGet() == 1)
+        unit.invalidate("t", "o", "c");
+      computed.set(statistics(computations.get()));
+      return computed.get();
+    });
+
+    assertEquals(2, computations.get());
+    assertSame(computed.get(), statistics);
+    assertSame(statistics, unit.get("t", "o", "c", true, () -> statistics(computations.incrementAndGet())));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFailuresAreNotWrapped() {
+    unit.get("t", "o", "c", true, () -> {
+      throw new IllegalStateException();
+    });
+  }
+
+  private static ClassEventStatistics statistics(int totalEvents) {
+    return new ClassEventStatistics.Builder().withClassSourcedId("c").withTotalEvents(totalEvents).build();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
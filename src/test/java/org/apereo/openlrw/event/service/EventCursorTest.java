@@ -0,0 +1,94 @@
+package org.apereo.openlrw.event.service;
+
+import org.apereo.openlrw.caliper.Agent;
+import org.apereo.openlrw.caliper.Entity;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.common.exception.BadRequestException;
+import org.apereo.openlrw.events.service.EventCursor;
+import org.apereo.openlrw.events.service.EventFieldPaths;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class EventCursorTest {
+
+  @Test
+  public void testRoundTrip() {
+    Instant eventTime = Instant.parse("2019-11-01T10:00:00.123Z");
+    EventCursor cursor = EventCursor.after(mongoEvent("5dbc0e3c8f1b2a0001a1b2c3", eventTime));
+
+    String token = cursor.encode();
+    assertFalse(token.contains("="));
+    assertFalse(token.contains("/"));
+
+    EventCursor decoded = EventCursor.decode(token);
+    assertEquals(eventTime, decoded.getEventTime());
+    assertEquals("5dbc0e3c8f1b2a0001a1b2c3", decoded.getId());
+  }
+
+  @Test
+  public void testAscendingCriteria() {
+    EventCursor cursor = EventCursor.after(mongoEvent("5dbc0e3c8f1b2a0001a1b2c3", Instant.parse("2019-11-01T10:00:00Z")));
+
+    String ascending = cursor.criteria(Sort.Direction.ASC).getCriteriaObject().toJson();
+    assertTrue(ascending.contains("$gt"));
+    assertFalse(ascending.contains("$lt"));
+    assertEquals(cursor.criteria().getCriteriaObject(), cursor.criteria(Sort.Direction.DESC).getCriteriaObject());
+  }
+
+  @Test
+  public void testCriteriaOnTheCaliperEventTime() {
+    EventCursor cursor = EventCursor.after(mongoEvent("5dbc0e3c8f1b2a0001a1b2c3", Instant.parse("2019-11-01T10:00:00Z")));
+
+    String nested = cursor.criteria(EventFieldPaths.NESTED, Sort.Direction.DESC).getCriteriaObject().toJson();
+    assertTrue(nested.contains("event.eventTime"));
+    assertEquals(cursor.criteria().getCriteriaObject(), cursor.criteria(EventFieldPaths.TOP_LEVEL, Sort.Direction.DESC).getCriteriaObject());
+  }
+
+  @Test
+  public void testEventWithoutTime() {
+    EventCursor cursor = EventCursor.after(mongoEvent("5dbc0e3c8f1b2a0001a1b2c3", null));
+
+    EventCursor decoded = EventCursor.decode(cursor.encode());
+    assertNull(decoded.getEventTime());
+    assertEquals("5dbc0e3c8f1b2a0001a1b2c3", decoded.getId());
+
+    String descending = decoded.criteria().getCriteriaObject().toJson();
+    assertTrue(descending.contains("$lt"));
+    assertFalse(descending.contains("$or"));
+    assertTrue(decoded.criteria(Sort.Direction.ASC).getCriteriaObject().toJson().contains("$ne"));
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testNotBase64() {
+    EventCursor.decode("not a cursor!");
+  }
+
+  @Test(expected = BadRequestException.class)
+  public void testNotACursor() {
+    EventCursor.decode("bm90IGEgY3Vyc29y");
+  }
+
+  private static MongoEvent mongoEvent(String id, Instant eventTime) {
+    Event event = new Event.Builder()
+        .withId("event")
+        .withAction("action")
+        .withContext("context")
+        .withType("type")
+        .withEventTime(eventTime)
+        .withAgent(new Agent.Builder().withId("agent").withType("Person").build())
+        .withObject(new Entity.Builder().withId("object").withType("type").build())
+        .build();
+
+    return new MongoEvent.Builder()
+        .withId(id)
+        .withTenantId("tenant")
+        .withOrganizationId("org")
+        .withEvent(event)
+        .build();
+  }
+}
@@ -0,0 +1,93 @@
+package org.apereo.openlrw.event.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.common.migration.EventFieldsMigration;
+import org.apereo.openlrw.event.TestEvents;
+import org.apereo.openlrw.events.service.EventExportService;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.apereo.openlrw.event.TestEvents.event;
+import static org.apereo.openlrw.event.TestEvents.stream;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EventExportServiceTest {
+
+  @Mock
+  private MongoOperations mongoOperations;
+
+  @Mock
+  private EventFieldsMigration eventFieldsMigration;
+
+  private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private EventExportService unit;
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    when(eventFieldsMigration.isComplete()).thenReturn(true);
+    unit = new EventExportService(mongoOperations, objectMapper, eventFieldsMigration);
+  }
+
+  @Test
+  public void testOneEventPerLine() throws Exception {
+    TestEvents.Stream<MongoEvent> mongoEvents = stream(Arrays.asList(mongoEvent("event-1"), mongoEvent("event-2")));
+    when(mongoOperations.stream(any(Query.class), eq(MongoEvent.class))).thenReturn(mongoEvents);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long exported = unit.export("tenant", "org", null, null, null, null, out);
+
+    assertEquals(2, exported);
+    assertTrue(mongoEvents.isClosed());
+
+    String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n", -1);
+    assertEquals(3, lines.length);
+    assertEquals("event-1", objectMapper.readValue(lines[0], Event.class).getId());
+    assertEquals("event-2", objectMapper.readValue(lines[1], Event.class).getId());
+    assertEquals("", lines[2]);
+  }
+
+  @Test
+  public void testFilters() throws Exception {
+    when(mongoOperations.stream(any(Query.class), eq(MongoEvent.class))).thenReturn(stream(Collections.<MongoEvent>emptyList()));
+
+    unit.export("tenant", "org", Instant.parse("2019-11-01T00:00:00Z"), Instant.parse("2019-12-01T00:00:00Z"),
+        "edapp", "class-1", new ByteArrayOutputStream());
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoOperations).stream(query.capture(), eq(MongoEvent.class));
+
+    Document criteria = query.getValue().getQueryObject();
+    assertEquals("tenant", criteria.get("tenantId"));
+    assertEquals("org", criteria.get("organizationId"));
+    assertEquals("edapp", criteria.get("edAppId"));
+    assertEquals("class-1", criteria.get("classId"));
+    Document eventTime = criteria.get("eventTime", Document.class);
+    assertTrue(eventTime.containsKey("$gte"));
+    assertTrue(eventTime.containsKey("$lt"));
+  }
+
+  private static MongoEvent mongoEvent(String id) {
+    return TestEvents.mongoEvent(event(id, "action", "agent", "2019-11-01T10:00:00Z")).build();
+  }
+}
@@ -0,0 +1,63 @@
+package org.apereo.openlrw.event.service;
+
+import org.apereo.openlrw.events.service.TimeOrderedEventIdGenerator;
+import org.apereo.openlrw.events.service.UuidEventIdGenerator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventIdGeneratorTest {
+
+  @Test
+  public void testUuidFormat() {
+    String id = new UuidEventIdGenerator().nextId();
+    assertEquals(32, id.length());
+    assertTrue(id.matches("[0-9a-f]{32}"));
+  }
+
+  @Test
+  public void testTimeOrderedIdsSort() {
+    TimeOrderedEventIdGenerator generator = new TimeOrderedEventIdGenerator();
+    String previous = generator.nextId();
+    assertEquals(26, previous.length());
+    for (int i = 0; i < 100000; i++) {
+      String next = generator.nextId();
+      assertTrue(next.compareTo(previous) > 0);
+      previous = next;
+    }
+  }
+
+  @Test
+  public void testTimeOrderedIdsAreUniqueAcrossThreads() throws Exception {
+    TimeOrderedEventIdGenerator generator = new TimeOrderedEventIdGenerator();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<List<String>>> futures = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      futures.add(executor.submit(() -> {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10000; i++)
+          ids.add(generator.nextId());
+        return ids;
+      }));
+    }
+
+    Set<String> ids = new HashSet<>();
+    for (Future<List<String>> future : futures) {
+      List<String> threadIds = future.get();
+      List<String> sorted = new ArrayList<>(threadIds);
+      Collections.sort(sorted);
+      assertEquals(sorted, threadIds);
+      ids.addAll(threadIds);
+    }
+    executor.shutdown();
+    assertEquals(40000, ids.size());
+  }
+}
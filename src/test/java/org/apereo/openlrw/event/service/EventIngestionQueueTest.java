@@ -0,0 +1,171 @@
+package org.apereo.openlrw.event.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
+import org.apereo.openlrw.caliper.Envelope;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.event.caliper.requests.MinimalEventTest;
+import org.apereo.openlrw.events.caliper.exception.IngestionRejectedException;
+import org.apereo.openlrw.events.service.BatchSaveResult;
+import org.apereo.openlrw.events.service.EventIngestionQueue;
+import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.events.service.IngestionSettings;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EventIngestionQueueTest {
+
+  @Mock
+  private EventService eventService;
+
+  @Mock
+  private ExecutorService executorService;
+
+  private EventIngestionQueue unit;
+  private Event event;
+
+  @Before
+  public void setup() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    when(eventService.prepare(any(Event.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.findAndRegisterModules();
+    mapper.setDateFormat(new ISO8601DateFormat());
+    event = mapper.readValue(MinimalEventTest.MINIMAL_VIEWED_EVENT.getBytes("UTF-8"), Envelope.class).getData().get(0);
+
+    IngestionSettings settings = new IngestionSettings();
+    settings.setMode(IngestionSettings.Mode.QUEUE);
+    settings.setQueueCapacity(2);
+    settings.setWorkers(1);
+
+    // the mocked executor never runs the workers, so nothing drains the queue
+    unit = new EventIngestionQueue(eventService, settings, executorService);
+    unit.start();
+  }
+
+  @Test
+  public void testEnqueue() {
+    List<String> ids = unit.enqueue("tenant", "org", Arrays.asList(event, event));
+    assertThat(ids.size(), is(2));
+    assertThat(unit.size(), is(2));
+  }
+
+  @Test(expected = IngestionRejectedException.class)
+  public void testEnqueueWhenFull() {
+    unit.enqueue("tenant", "org", Arrays.asList(event, event, event));
+  }
+
+  @Test
+  public void testEnvelopeIsAcceptedAsAWhole() {
+    unit.enqueue("tenant", "org", Arrays.asList(event));
+    try {
+      unit.enqueue("tenant", "org", Arrays.asList(event, event));
+    } catch (IngestionRejectedException e) {
+      assertThat(unit.size(), is(1));
+      return;
+    }
+    throw new AssertionError("The queue should have been full");
+  }
+
+  @Test
+  public void testEnvelopeIsRejectedAsAWhole() {
+    when(eventService.prepare(any(Event.class))).thenReturn(event).thenThrow(new IllegalStateException("no id"));
+    try {
+      unit.enqueue("tenant", "org", Arrays.asList(event, event));
+      fail("The envelope should have been rejected");
+    } catch (IllegalStateException e) {
+      assertThat(unit.size(), is(0));
+    }
+
+    when(eventService.prepare(any(Event.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    assertThat(unit.enqueue("tenant", "org", Arrays.asList(event, event)).size(), is(2));
+  }
+
+  @Test
+  public void testBatchIsWrittenAgainUntilMongoAcceptsIt() throws Exception {
+    CountDownLatch written = new CountDownLatch(1);
+    when(eventService.saveAll(anyString(), anyString(), anyList())).thenThrow(new IllegalStateException("primary stepped down"));
+    when(eventService.saveAllIfAbsent(anyString(), anyString(), anyList()))
+        .thenThrow(new IllegalStateException("no primary"))
+        .thenAnswer(invocation -> {
+          written.countDown();
+          return new BatchSaveResult();
+        });
+
+    IngestionSettings settings = new IngestionSettings();
+    settings.setMode(IngestionSettings.Mode.QUEUE);
+    settings.setQueueCapacity(2);
+    settings.setWorkers(1);
+    settings.setBatchWaitMillis(10);
+    settings.setReplayRetryMillis(20);
+
+    ExecutorService workers = Executors.newSingleThreadExecutor();
+    EventIngestionQueue queue = new EventIngestionQueue(eventService, settings, workers);
+    queue.start();
+    try {
+      queue.enqueue("tenant", "org", Arrays.asList(event, event));
+      assertTrue(written.await(5, TimeUnit.SECONDS));
+      verify(eventService, times(2)).saveAllIfAbsent(anyString(), anyString(), anyList());
+    } finally {
+      queue.stop();
+      workers.shutdown();
+    }
+  }
+
+  @Test
+  public void testEventsBeingWrittenCountAgainstTheCapacity() throws Exception {
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch written = new CountDownLatch(1);
+    when(eventService.saveAll(anyString(), anyString(), anyList())).thenAnswer(invocation -> {
+      writing.countDown();
+      written.await(5, TimeUnit.SECONDS);
+      return new BatchSaveResult();
+    });
+
+    IngestionSettings settings = new IngestionSettings();
+    settings.setMode(IngestionSettings.Mode.QUEUE);
+    settings.setQueueCapacity(2);
+    settings.setWorkers(1);
+    settings.setBatchWaitMillis(10);
+
+    ExecutorService workers = Executors.newSingleThreadExecutor();
+    EventIngestionQueue queue = new EventIngestionQueue(eventService, settings, workers);
+    queue.start();
+    try {
+      queue.enqueue("tenant", "org", Arrays.asList(event, event));
+      assertTrue(writing.await(5, TimeUnit.SECONDS));
+      assertThat(queue.size(), is(0));
+      try {
+        queue.enqueue("tenant", "org", Arrays.asList(event));
+        fail("The events being written should fill the queue");
+      } catch (IngestionRejectedException e) {
+        // expected
+      }
+    } finally {
+      written.countDown();
+      queue.stop();
+      workers.shutdown();
+    }
+  }
+}
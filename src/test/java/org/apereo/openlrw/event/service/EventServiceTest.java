@@ -7,17 +7,25 @@ import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
 import org.apereo.model.oneroster.Org;
 import org.apereo.openlrw.MongoServerConfig;
 import org.apereo.openlrw.OpenLRW;
+import org.apereo.openlrw.events.service.BatchSaveResult;
+import org.apereo.openlrw.events.service.EventPage;
 import org.apereo.openlrw.events.service.EventService;
+import org.apereo.openlrw.events.service.RawEvent;
+import org.apereo.openlrw.events.service.repository.EventSummary;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
 import org.apereo.openlrw.event.caliper.requests.MediaEventTest;
 import org.apereo.openlrw.event.caliper.requests.MinimalEventTest;
 import org.apereo.openlrw.oneroster.service.repository.MongoOrg;
 import org.apereo.openlrw.oneroster.service.repository.MongoOrgRepository;
 import org.apereo.openlrw.tenant.Tenant;
 import org.apereo.openlrw.tenant.service.repository.TenantRepository;
+import org.bson.types.ObjectId;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
@@ -26,13 +34,20 @@ import org.apereo.openlrw.caliper.Event;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 /**
  * @author ggilbert
@@ -51,6 +66,9 @@ public class EventServiceTest {
   
   @Autowired
   private MongoOrgRepository mongoOrgRepository;
+
+  @Autowired
+  private MongoOperations mongoOperations;
   
   private Event mediaEvent;
   private Event event;
@@ -100,6 +118,60 @@ public class EventServiceTest {
     assertThat(id2, is(notNullValue()));
   }
   
+  @Test
+  public void testSaveAll() {
+    BatchSaveResult result = eventService.saveAll(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), Arrays.asList(mediaEvent, event));
+
+    assertThat(result.hasFailures(), is(false));
+    assertThat(result.getIds().size(), is(2));
+  }
+
+  @Test
+  public void testSaveAllIfAbsent() {
+    Event prepared = eventService.prepare(mediaEvent);
+    BatchSaveResult first = eventService.saveAllIfAbsent(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), Arrays.asList(prepared));
+    BatchSaveResult replayed = eventService.saveAllIfAbsent(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), Arrays.asList(prepared, event));
+
+    assertThat(first.getIds(), is(Collections.singletonList(prepared.getId())));
+    assertThat(replayed.hasFailures(), is(false));
+    assertThat(replayed.getIds().size(), is(2));
+    assertThat(mongoOperations.count(new Query(where("tenantId").is(savedTenant.getId()).and("event.id").is(prepared.getId())), MongoEvent.class), is(1L));
+  }
+
+  @Test
+  public void testFindExistingEventIds() {
+    String id = eventService.save(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), mediaEvent);
+
+    Set<String> existing = eventService.findExistingEventIds(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), Arrays.asList(id, UUID.randomUUID().toString()));
+    assertThat(existing, is(Collections.singleton(id)));
+  }
+
+  @Test
+  public void testFindEventsByCursor() {
+    eventService.saveAll(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), Arrays.asList(mediaEvent, event));
+
+    EventPage<Event> first = eventService.findEvents(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), null, null, null, null, null, 1, true, null);
+    assertThat(first.getEvents().size(), is(1));
+    assertThat(first.getNext(), is(notNullValue()));
+
+    EventPage<Event> second = eventService.findEvents(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), null, null, null, null, null, 1, true, first.getNext().encode());
+    assertThat(second.getEvents().size(), is(1));
+    assertTrue(new ObjectId(second.getNext().getId()).compareTo(new ObjectId(first.getNext().getId())) > 0);
+  }
+
+  @Test
+  public void testFindEventsOnTheTimeTheyWereStored() {
+    Instant before = Instant.now().minusSeconds(1);
+    String id = eventService.save(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), mediaEvent);
+
+    // sent in 2015
+    EventPage<Event> since = eventService.findEvents(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), null, null, null, before, null, 100, true, null);
+    assertTrue(since.getEvents().stream().anyMatch(e -> id.equals(e.getId())));
+
+    EventPage<Event> until = eventService.findEvents(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), null, null, null, null, before.minus(1, ChronoUnit.DAYS), 100, true, null);
+    assertTrue(until.getEvents().isEmpty());
+  }
+
   @Test
   public void testGetEventsForClassAndUser() {
     Collection<Event> events = eventService.getEventsForClassAndUser(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), "001", "554433");
@@ -107,6 +179,31 @@ public class EventServiceTest {
     assertTrue(events.size() > 0);
   }
 
+  @Test
+  public void testRawEventsAreWrittenLikeTheEvents() throws Exception {
+    eventService.save(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), mediaEvent);
+    ObjectMapper mapper = OpenLRW.configure(new ObjectMapper());
+
+    Collection<Event> events = eventService.getEventsForClassAndUser(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), "001", "554433");
+    Collection<RawEvent> rawEvents = eventService.getRawEventsForClassAndUser(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), "001", "554433");
+
+    assertThat(rawEvents.size(), is(events.size()));
+    assertThat(mapper.writeValueAsString(rawEvents), is(mapper.writeValueAsString(events)));
+  }
+
+  @Test
+  public void testGetEventSummariesForClassAndUser() {
+    String id = eventService.save(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), mediaEvent);
+    MongoEvent saved = mongoOperations.findOne(new Query(where("event.id").is(id)), MongoEvent.class);
+
+    List<EventSummary> summaries = eventService.getEventSummariesForClassAndUser(savedTenant.getId(), mongoOrg.getOrg().getSourcedId(), "001", "554433");
+    EventSummary summary = summaries.stream().filter(s -> s.getId().equals(saved.getId())).findFirst().get();
+    assertThat(summary.getClassId(), is("001"));
+    assertThat(summary.getAction(), is(mediaEvent.getAction()));
+    assertThat(summary.getEventTime(), is(mediaEvent.getEventTime()));
+    assertThat(summary.getEdAppId(), is(mediaEvent.getEdApp().getId()));
+  }
+
 
 
 //  @Test(expected=RuntimeException.class)
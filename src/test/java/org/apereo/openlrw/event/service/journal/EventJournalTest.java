@@ -0,0 +1,145 @@
+package org.apereo.openlrw.event.service.journal;
+
+import org.apereo.openlrw.events.service.journal.EventJournal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class EventJournalTest {
+
+  private static final int SEGMENT_SIZE = 256;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testAppendAndRead() throws Exception {
+    EventJournal journal = new EventJournal(folder.getRoot().toPath(), SEGMENT_SIZE);
+    journal.sync(journal.append(bytes("one")));
+    journal.sync(journal.append(bytes("two")));
+
+    List<EventJournal.JournalEntry> entries = journal.read(journal.getCheckpoint(), 10);
+    assertEquals(2, entries.size());
+    assertEquals("one", string(entries.get(0).getPayload()));
+    assertEquals("two", string(entries.get(1).getPayload()));
+
+    journal.checkpoint(entries.get(0).getPosition());
+    entries = journal.read(journal.getCheckpoint(), 10);
+    assertEquals(1, entries.size());
+    assertEquals("two", string(entries.get(0).getPayload()));
+  }
+
+  @Test
+  public void testRotationAndSegmentDeletion() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    EventJournal journal = new EventJournal(directory, SEGMENT_SIZE);
+    byte[] payload = new byte[100];
+    for (int i = 0; i < 5; i++) {
+      journal.sync(journal.append(payload));
+    }
+    assertEquals(3, segments(directory).size());
+
+    List<EventJournal.JournalEntry> entries = journal.read(journal.getCheckpoint(), 10);
+    assertEquals(5, entries.size());
+
+    journal.checkpoint(entries.get(4).getPosition());
+    assertEquals(1, segments(directory).size());
+    assertEquals(0, journal.lagBytes());
+  }
+
+  @Test
+  public void testRecoveryAfterRestart() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    EventJournal journal = new EventJournal(directory, SEGMENT_SIZE);
+    long first = journal.append(bytes("one"));
+    journal.sync(journal.append(bytes("two")));
+    journal.checkpoint(first);
+    journal.close();
+
+    EventJournal reopened = new EventJournal(directory, SEGMENT_SIZE);
+    List<EventJournal.JournalEntry> entries = reopened.read(reopened.getCheckpoint(), 10);
+    assertEquals(1, entries.size());
+    assertEquals("two", string(entries.get(0).getPayload()));
+  }
+
+  @Test
+  public void testPartialRecordIsDropped() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    EventJournal journal = new EventJournal(directory, SEGMENT_SIZE);
+    long first = journal.append(bytes("one"));
+    journal.sync(journal.append(bytes("two")));
+    journal.close();
+
+    // corrupt the payload of the second record as if the process died while writing it
+    try (RandomAccessFile file = new RandomAccessFile(segments(directory).get(0).toFile(), "rw")) {
+      file.seek(EventJournal.offsetOf(first) + 8);
+      file.write(bytes("XYZ"));
+    }
+
+    EventJournal reopened = new EventJournal(directory, SEGMENT_SIZE);
+    List<EventJournal.JournalEntry> entries = reopened.read(reopened.getCheckpoint(), 10);
+    assertEquals(1, entries.size());
+    assertEquals("one", string(entries.get(0).getPayload()));
+
+    reopened.sync(reopened.append(bytes("three")));
+    entries = reopened.read(reopened.getCheckpoint(), 10);
+    assertEquals(2, entries.size());
+    assertEquals("three", string(entries.get(1).getPayload()));
+  }
+
+  @Test
+  public void testRecordsAreAppendedAsAWhole() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    EventJournal journal = new EventJournal(directory, SEGMENT_SIZE);
+    journal.sync(journal.append(bytes("one")));
+
+    try {
+      journal.append(Arrays.asList(new byte[100], new byte[100], new byte[100]));
+      fail();
+    } catch (IOException e) {
+      assertEquals(1, journal.read(journal.getCheckpoint(), 10).size());
+    }
+
+    long start = journal.getWrittenPosition();
+    journal.sync(journal.append(Arrays.asList(bytes("two"), bytes("three"))));
+    journal.close();
+
+    // clear the length of the first record as if the process died before writing it
+    try (RandomAccessFile file = new RandomAccessFile(segments(directory).get(0).toFile(), "rw")) {
+      file.seek(EventJournal.offsetOf(start));
+      file.writeInt(0);
+    }
+
+    EventJournal reopened = new EventJournal(directory, SEGMENT_SIZE);
+    List<EventJournal.JournalEntry> entries = reopened.read(reopened.getCheckpoint(), 10);
+    assertEquals(1, entries.size());
+    assertEquals("one", string(entries.get(0).getPayload()));
+  }
+
+  private static List<Path> segments(Path directory) throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String string(byte[] value) {
+    return new String(value, StandardCharsets.UTF_8);
+  }
+}
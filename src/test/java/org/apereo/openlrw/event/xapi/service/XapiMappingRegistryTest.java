@@ -0,0 +1,141 @@
+package org.apereo.openlrw.event.xapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apereo.openlrw.OpenLRW;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.events.xapi.service.DefaultXapiToCaliperConversionService;
+import org.apereo.openlrw.events.xapi.service.XapiConversionService;
+import org.apereo.openlrw.events.xapi.service.XapiMapping;
+import org.apereo.openlrw.events.xapi.service.XapiMappingRegistry;
+import org.apereo.openlrw.events.xapi.service.repository.XapiMappingProfile;
+import org.apereo.openlrw.events.xapi.service.repository.XapiMappingProfileRepository;
+import org.apereo.openlrw.events.xapi.service.repository.XapiMappingRule;
+import org.apereo.openlrw.xapi.Statement;
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.events.EventType;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class XapiMappingRegistryTest {
+  private static final String READ_VERB = "http://example.edu/xapi/verbs/read";
+  private static final String STATEMENT =
+      "{\n" +
+      "  \"id\": \"0f7c4a52-1b3e-4d9a-8e61-2c5b7d9e1a30\",\n" +
+      "  \"timestamp\": \"2019-11-01T10:00:00Z\",\n" +
+      "  \"actor\": { \"account\": { \"homePage\": \"https://lms.example.edu\", \"name\": \"554433\" } },\n" +
+      "  \"verb\": { \"id\": \"" + READ_VERB + "\" },\n" +
+      "  \"object\": { \"id\": \"https://lms.example.edu/courses/12/pages/1\" },\n" +
+      "  \"context\": {\n" +
+      "    \"contextActivities\": {\n" +
+      "      \"parent\": [ { \"id\": \"https://lms.example.edu/courses/12\" } ]\n" +
+      "    }\n" +
+      "  }\n" +
+      "}";
+
+  @Mock
+  private XapiMappingProfileRepository xapiMappingProfileRepository;
+
+  private XapiMappingRegistry registry;
+  private XapiConversionService conversionService;
+  private Statement statement;
+
+  @Before
+  public void setup() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    when(xapiMappingProfileRepository.save(any(XapiMappingProfile.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    registry = new XapiMappingRegistry(xapiMappingProfileRepository);
+    conversionService = new DefaultXapiToCaliperConversionService(registry);
+    statement = OpenLRW.configure(new ObjectMapper()).readValue(STATEMENT, Statement.class);
+  }
+
+  @Test
+  public void testDefaultMapping() {
+    Event event = conversionService.fromXapi("tenant", statement);
+    assertEquals(READ_VERB, event.getAction());
+    assertEquals(EventType.EVENT.getValue(), event.getContext());
+    assertNull(event.getGroup());
+
+    assertEquals(Action.VIEWED.getValue(), conversionService.toCaliperAction("tenant", "http://id.tincanapi.com/verb/viewed"));
+  }
+
+  @Test
+  public void testProfileMapping() throws Exception {
+    registry.save(profile("tenant", new XapiMappingRule(READ_VERB, Action.VIEWED.getValue())));
+
+    Event event = conversionService.fromXapi("tenant", statement);
+    assertEquals(Action.VIEWED.getValue(), event.getAction());
+    assertEquals(EventType.EVENT.getValue(), event.getContext());
+    assertEquals("12", event.getGroup().getId());
+    assertEquals(READ_VERB, conversionService.toXapi("tenant", event).getVerb().getId());
+
+    // the defaults are inherited, the other tenants keep them
+    assertEquals(Action.VIEWED.getValue(), conversionService.toCaliperAction("tenant", "http://id.tincanapi.com/verb/viewed"));
+    assertEquals(READ_VERB, conversionService.fromXapi("other", statement).getAction());
+
+    registry.delete("tenant");
+    assertEquals(READ_VERB, conversionService.fromXapi("tenant", statement).getAction());
+  }
+
+  @Test
+  public void testInvalidProfileIsRejected() {
+    XapiMappingProfile valid = profile("tenant", new XapiMappingRule(READ_VERB, Action.VIEWED.getValue()));
+    XapiMappingProfile invalid = profile("tenant", new XapiMappingRule(READ_VERB, null));
+
+    try {
+      registry.save(invalid);
+      fail("An incomplete rule must be rejected");
+    } catch (IllegalArgumentException e) {
+      verify(xapiMappingProfileRepository, never()).save(any(XapiMappingProfile.class));
+    }
+
+    when(xapiMappingProfileRepository.findAll()).thenReturn(Collections.singletonList(valid));
+    assertEquals(1, registry.reload());
+    XapiMapping mapping = registry.get("tenant");
+
+    when(xapiMappingProfileRepository.findAll()).thenReturn(Collections.singletonList(invalid));
+    assertEquals(1, registry.reload());
+    assertSame(mapping, registry.get("tenant"));
+    assertSame(XapiMapping.DEFAULT, registry.get("other"));
+  }
+
+  @Test
+  public void testRefreshCompilesTheProfilesChangedByAnotherInstance() {
+    XapiMappingProfile saved = registry.save(profile("tenant", new XapiMappingRule(READ_VERB, Action.VIEWED.getValue())));
+    assertNotNull(saved.getLastModified());
+    XapiMapping mapping = registry.get("tenant");
+
+    when(xapiMappingProfileRepository.findAll()).thenReturn(Collections.singletonList(saved));
+    registry.refresh();
+    assertSame(mapping, registry.get("tenant"));
+
+    XapiMappingProfile changed = new XapiMappingProfile.Builder(profile("tenant", new XapiMappingRule(READ_VERB, Action.SEARCHED.getValue())))
+        .withLastModified(saved.getLastModified().plusSeconds(1))
+        .build();
+    when(xapiMappingProfileRepository.findAll()).thenReturn(Collections.singletonList(changed));
+    registry.refresh();
+    assertEquals(Action.SEARCHED.getValue(), conversionService.fromXapi("tenant", statement).getAction());
+
+    when(xapiMappingProfileRepository.findAll()).thenReturn(Collections.emptyList());
+    registry.refresh();
+    assertSame(XapiMapping.DEFAULT, registry.get("tenant"));
+  }
+
+  private static XapiMappingProfile profile(String tenantId, XapiMappingRule verb) {
+    return new XapiMappingProfile.Builder()
+        .withTenantId(tenantId)
+        .withName("Example LMS")
+        .withVerbs(Collections.singletonList(verb))
+        .withSiteParentMarker("/courses/")
+        .build();
+  }
+}
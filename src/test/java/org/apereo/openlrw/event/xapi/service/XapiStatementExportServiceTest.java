@@ -0,0 +1,115 @@
+package org.apereo.openlrw.event.xapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apereo.openlrw.caliper.Event;
+import org.apereo.openlrw.event.TestEvents;
+import org.apereo.openlrw.events.service.EventCursor;
+import org.apereo.openlrw.events.service.repository.MongoEvent;
+import org.apereo.openlrw.events.xapi.service.XapiConversionService;
+import org.apereo.openlrw.events.xapi.service.XapiStatementExportService;
+import org.apereo.openlrw.xapi.Statement;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apereo.openlrw.event.TestEvents.event;
+import static org.apereo.openlrw.event.TestEvents.stream;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class XapiStatementExportServiceTest {
+
+  @Mock
+  private MongoOperations mongoOperations;
+
+  @Mock
+  private XapiConversionService xapiConversionService;
+
+  private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+  private XapiStatementExportService unit;
+
+  @Before
+  public void setup() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    unit = new XapiStatementExportService(mongoOperations, xapiConversionService, objectMapper);
+
+    when(xapiConversionService.toXapi(anyString(), any(Event.class))).thenAnswer(invocation -> {
+      Statement statement = new Statement();
+      statement.setId(invocation.<Event>getArgument(1).getId());
+      return statement;
+    });
+  }
+
+  @Test
+  public void testStatementResult() throws Exception {
+    TestEvents.Stream<MongoEvent> mongoEvents = stream(Arrays.asList(mongoEvent("5dbc0e3c8f1b2a0001a1b2c1", "event-1"), mongoEvent("5dbc0e3c8f1b2a0001a1b2c2", "event-2")));
+    when(mongoOperations.stream(any(Query.class), eq(MongoEvent.class))).thenReturn(mongoEvents);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long exported = unit.export("tenant", "org", null, null, next -> "/xAPI/statements/export?cursor=" + next.getId(), out);
+
+    assertEquals(2, exported);
+    assertTrue(mongoEvents.isClosed());
+
+    JsonNode result = objectMapper.readTree(out.toByteArray());
+    assertEquals("event-1", result.get("statements").get(0).get("id").asText());
+    assertEquals("event-2", result.get("statements").get(1).get("id").asText());
+    assertEquals("/xAPI/statements/export?cursor=5dbc0e3c8f1b2a0001a1b2c2", result.get("more").asText());
+  }
+
+  @Test
+  public void testNothingToExport() throws Exception {
+    when(mongoOperations.stream(any(Query.class), eq(MongoEvent.class))).thenReturn(stream(Collections.<MongoEvent>emptyList()));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    unit.export("tenant", "org", Instant.parse("2019-11-01T00:00:00Z"), null, next -> "more", out);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoOperations).stream(query.capture(), eq(MongoEvent.class));
+    List<Document> ids = query.getValue().getQueryObject().getList("$and", Document.class);
+    assertTrue(ids.get(0).get("id", Document.class).containsKey("$gte"));
+    // the events that may still be in flight are left to the more link
+    assertTrue(ids.get(1).get("id", Document.class).containsKey("$lt"));
+    assertEquals(new Document("id", 1), query.getValue().getSortObject());
+
+    JsonNode result = objectMapper.readTree(out.toByteArray());
+    assertEquals(0, result.get("statements").size());
+    assertEquals("", result.get("more").asText());
+  }
+
+  @Test
+  public void testResumeAfterCursor() throws Exception {
+    when(mongoOperations.stream(any(Query.class), eq(MongoEvent.class))).thenReturn(stream(Collections.<MongoEvent>emptyList()));
+    String cursor = EventCursor.after(mongoEvent("5dbc0e3c8f1b2a0001a1b2c2", "event-2")).encode();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    unit.export("tenant", "org", null, cursor, EventCursor::encode, out);
+
+    ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+    verify(mongoOperations).stream(query.capture(), eq(MongoEvent.class));
+    List<Document> ids = query.getValue().getQueryObject().getList("$and", Document.class);
+    assertEquals(new Document("$gt", new ObjectId("5dbc0e3c8f1b2a0001a1b2c2")), ids.get(0).get("id"));
+    assertEquals(cursor, objectMapper.readTree(out.toByteArray()).get("more").asText());
+  }
+
+  private static MongoEvent mongoEvent(String id, String eventId) {
+    return TestEvents.mongoEvent(event(eventId, "action", "agent", "2019-11-01T10:00:00Z")).withId(id).build();
+  }
+}
@@ -0,0 +1,59 @@
+package org.apereo.openlrw.oneroster.service;
+
+import org.apereo.model.oneroster.Org;
+import org.apereo.openlrw.oneroster.service.repository.MongoOrg;
+import org.apereo.openlrw.oneroster.service.repository.MongoOrgRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.*;
+
+public class OrgCredentialCacheTest {
+
+  @Mock
+  private MongoOrgRepository mongoOrgRepository;
+
+  private OrgCredentialCache unit;
+
+  private MongoOrg mongoOrg = new MongoOrg.Builder()
+      .withApiKey("key")
+      .withApiSecret("secret")
+      .withTenantId("tenant-1")
+      .withOrg(new Org.Builder().withName("test").withSourcedId("org1").build())
+      .build();
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    unit = new OrgCredentialCache(mongoOrgRepository, new OrgCredentialCacheSettings());
+    when(mongoOrgRepository.findByApiKey("key")).thenReturn(mongoOrg);
+  }
+
+  @Test
+  public void testOrgIsReadOnce() {
+    assertEquals(mongoOrg, unit.findByApiKeyAndApiSecret("key", "secret"));
+    assertEquals(mongoOrg, unit.findByApiKey("key"));
+    verify(mongoOrgRepository, times(1)).findByApiKey("key");
+  }
+
+  @Test
+  public void testWrongSecret() {
+    assertNull(unit.findByApiKeyAndApiSecret("key", "wrong"));
+    assertNull(unit.findByApiKeyAndApiSecret("key", null));
+  }
+
+  @Test
+  public void testUnknownKeyIsRemembered() {
+    assertNull(unit.findByApiKeyAndApiSecret("unknown", "secret"));
+    assertNull(unit.findByApiKey("unknown"));
+    verify(mongoOrgRepository, times(1)).findByApiKey("unknown");
+
+    unit.invalidate("unknown");
+    unit.findByApiKey("unknown");
+    verify(mongoOrgRepository, times(2)).findByApiKey("unknown");
+  }
+}
@@ -0,0 +1,62 @@
+package org.apereo.openlrw.tenant;
+
+import org.apereo.openlrw.events.caliper.service.IdNormalizationCache;
+import org.apereo.openlrw.events.caliper.service.IdNormalizationCacheSettings;
+import org.apereo.openlrw.tenant.service.TenantCache;
+import org.apereo.openlrw.tenant.service.TenantCacheSettings;
+import org.apereo.openlrw.tenant.service.TenantService;
+import org.apereo.openlrw.tenant.service.repository.TenantRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.*;
+
+public class TenantCacheTest {
+
+  @Mock
+  private TenantRepository tenantRepository;
+
+  private TenantCache unit;
+
+  private Tenant tenant = new Tenant.Builder().withId("1").withName("tenant 1").build();
+
+  @Before
+  public void setup() {
+    MockitoAnnotations.initMocks(this);
+    unit = new TenantCache(tenantRepository, new TenantCacheSettings());
+    when(tenantRepository.findById("1")).thenReturn(Optional.of(tenant));
+    when(tenantRepository.findById("2")).thenReturn(Optional.empty());
+  }
+
+  @Test
+  public void testTenantIsReadOnce() {
+    assertEquals("tenant 1", unit.findById("1").get().getName());
+    assertEquals("tenant 1", unit.findById("1").get().getName());
+    verify(tenantRepository, times(1)).findById("1");
+  }
+
+  @Test
+  public void testUnknownTenantIsNotCached() {
+    assertFalse(unit.findById("2").isPresent());
+    assertFalse(unit.findById("2").isPresent());
+    verify(tenantRepository, times(2)).findById("2");
+  }
+
+  @Test
+  public void testSaveInvalidatesTenant() {
+    Tenant renamed = new Tenant.Builder().withId("1").withName("renamed").build();
+    when(tenantRepository.save(renamed)).thenReturn(renamed);
+
+    unit.findById("1");
+    when(tenantRepository.findById("1")).thenReturn(Optional.of(renamed));
+    new TenantService(tenantRepository, unit, new IdNormalizationCache(new IdNormalizationCacheSettings())).save(renamed);
+
+    assertEquals("renamed", unit.findById("1").get().getName());
+  }
+}